@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.*;
+
+import attendance.AttendanceStore;
+import attendance.LogData;
+
+/**
+ * This class implements the command line conversion of a log file from one store to another (see
+ * AttendanceStore), e.g. to switch a deployment to the binary store or to get an Excel CSV log
+ * file back from it:
+ *  java -jar TrcAttendance.jar convert log=Frc2016Attendance.csv out=Frc2016Attendance.bin to=binary
+ *  where the parameters are:
+ *  log=<LogFileName>       - specifies the log file to convert.
+ *  from=<StoreType>        - optionally specifies the store type of the log file, the default is
+ *                            csv.
+ *  out=<OutputFileName>    - specifies the converted log file. It is overwritten if it exists.
+ *  to=<StoreType>          - specifies the store type of the converted log file.
+ */
+public class AttendanceConvert
+{
+    /**
+     * This is the entry point of the conversion. It is also called by the main method of the
+     * program when the first command line parameter is "convert".
+     *
+     * @param args specifies the command line parameters.
+     */
+    public static void main(String[] args)
+    {
+        System.setProperty("java.awt.headless", "true");
+
+        File logFile = null;
+        File outFile = null;
+        String fromType = "csv";
+        String toType = null;
+
+        try
+        {
+            for (int i = 0; i < args.length; i++)
+            {
+                String[] fields = args[i].trim().split("=");
+                if (fields.length == 2)
+                {
+                    if (fields[0].equalsIgnoreCase("log"))
+                    {
+                        logFile = new File(fields[1]);
+                    }
+                    else if (fields[0].equalsIgnoreCase("from"))
+                    {
+                        fromType = fields[1];
+                    }
+                    else if (fields[0].equalsIgnoreCase("out"))
+                    {
+                        outFile = new File(fields[1]);
+                    }
+                    else if (fields[0].equalsIgnoreCase("to"))
+                    {
+                        toType = fields[1];
+                    }
+                    else
+                    {
+                        throw new IllegalArgumentException(
+                                "Invalid command line parameter \"" + fields[0] + "\".");
+                    }
+                }
+                else
+                {
+                    throw new IllegalArgumentException(
+                            "Invalid command line syntax \"" + args[i] + "\".");
+                }
+            }
+
+            if (logFile == null || outFile == null || toType == null)
+            {
+                throw new IllegalArgumentException("Missing log=<LogFileName>, out=<OutputFileName> or to=<StoreType>.");
+            }
+
+            if (toType.equalsIgnoreCase("memory"))
+            {
+                throw new IllegalArgumentException("Cannot convert to the memory store.");
+            }
+
+            LogData data = AttendanceStore.create(fromType, logFile).load();
+            AttendanceStore.create(toType, outFile).save(data);
+            System.out.printf("Converted %s (%d attendants, %d sessions) to %s.\n",
+                    logFile, data.getNames().size(), data.getSessions().size(), outFile);
+        }
+        catch (IllegalArgumentException | IOException e)
+        {
+            System.err.println("AttendanceConvert: " + e.getMessage());
+            System.exit(1);
+        }
+    }   //main
+
+}   //class AttendanceConvert
@@ -0,0 +1,492 @@
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import attendance.AttendanceEvent;
+import attendance.AttendanceLog;
+import attendance.AttendanceLogEvent;
+import attendance.AttendanceLogListener;
+import attendance.AttendanceServer;
+import attendance.AttendanceStore;
+import attendance.Attendant;
+import attendance.BadgeScanner;
+import attendance.CsvAttendanceStore;
+import attendance.EventStore;
+import attendance.LogFileChanges;
+import attendance.LogFileWatcher;
+import attendance.Session;
+import attendance.SessionJournal;
+
+/**
+ * This class implements the headless daemon of the Attendance Logger program, e.g. for an always
+ * on box at the door. It runs a meeting without any UI: it only loads the attendance log, the
+ * session log and the event store, and takes check-ins and check-outs from badge scans on the
+ * standard input (one badge ID per line, as typed by a keyboard wedge scanner) and optionally
+ * from the check-in server. It never touches AWT or Swing, so it starts quickly with a small heap
+ * when run directly:
+ *  java -Xmx32m -cp TrcAttendance.jar AttendanceDaemon log=Frc2016Attendance.csv port=8080
+ *  or through the launcher of the jar (see TrcAttendanceLauncher), which loads no AWT either:
+ *  java -jar TrcAttendance.jar daemon log=Frc2016Attendance.csv port=8080
+ *  where the parameters are:
+ *  log=<LogFileName>       - specifies the log file.
+ *  place=<MeetingPlace>    - optionally specifies the meeting place.
+ *  meeting=<MeetingTypes>  - optionally specifies the meeting types separated by "/" (e.g.
+ *                            Mechanical/Programming), the default is Other.
+ *  port=<ServerPort>       - optionally starts the check-in server on this port.
+ *  host=<HostAddress>      - optionally specifies the address the check-in server listens on,
+ *                            e.g. 0.0.0.0 for every network interface. By default it only takes
+ *                            requests from this computer since the API has no authentication.
+ *  store=<StoreType>       - optionally specifies how the log is stored: csv (default) or
+ *                            binary (see AttendanceStore).
+ *  input=stdin|none        - optionally turns off reading badge scans from the standard input.
+ *
+ * If a session log exists, the meeting it records is resumed. Otherwise a meeting is created for
+ * the current date and time. When the daemon is stopped (e.g. Ctrl-C or a service stop), all
+ * attendants still checked in are checked out and the log file is saved. Without the check-in
+ * server, the daemon also stops at the end of the standard input. Edits of the log file made by
+ * other programs while the daemon runs are merged into the log so that they are not overwritten.
+ */
+public class AttendanceDaemon implements AttendanceLogListener, LogFileWatcher.Listener
+{
+    private static final int SERVER_THREADS = 4;
+
+    private AttendanceLog attendanceLog;
+    private File sessionLogFile;
+    private SessionJournal sessionJournal = null;
+    private EventStore eventStore;
+    private AttendanceServer attendanceServer = null;
+    private LogFileWatcher logFileWatcher = null;
+    private boolean closed = false;
+
+    /**
+     * This is the entry point of the daemon. It is also called by the main method of the
+     * program when the first command line parameter is "daemon".
+     *
+     * @param args specifies the command line parameters.
+     */
+    public static void main(String[] args)
+    {
+        System.setProperty("java.awt.headless", "true");
+
+        File logFile = null;
+        String place = "";
+        String meeting = "Other";
+        String storeType = "csv";
+        String host = null;
+        int port = 0;
+        boolean readStdin = true;
+
+        try
+        {
+            for (int i = 0; i < args.length; i++)
+            {
+                String[] fields = args[i].trim().split("=");
+                if (fields.length == 2)
+                {
+                    if (fields[0].equalsIgnoreCase("log"))
+                    {
+                        logFile = new File(fields[1]);
+                    }
+                    else if (fields[0].equalsIgnoreCase("place"))
+                    {
+                        place = fields[1];
+                    }
+                    else if (fields[0].equalsIgnoreCase("meeting"))
+                    {
+                        meeting = fields[1];
+                    }
+                    else if (fields[0].equalsIgnoreCase("port"))
+                    {
+                        port = Integer.parseInt(fields[1]);
+                    }
+                    else if (fields[0].equalsIgnoreCase("host"))
+                    {
+                        host = fields[1];
+                    }
+                    else if (fields[0].equalsIgnoreCase("store"))
+                    {
+                        //
+                        // The session log is deleted once the log is saved, so a meeting saved
+                        // to the memory store would be lost.
+                        //
+                        if (fields[1].equalsIgnoreCase("memory"))
+                        {
+                            throw new IllegalArgumentException("The memory store cannot keep a meeting.");
+                        }
+                        storeType = fields[1];
+                    }
+                    else if (fields[0].equalsIgnoreCase("input"))
+                    {
+                        if (!fields[1].equalsIgnoreCase("stdin") && !fields[1].equalsIgnoreCase("none"))
+                        {
+                            throw new IllegalArgumentException("Invalid input \"" + fields[1] + "\".");
+                        }
+                        readStdin = fields[1].equalsIgnoreCase("stdin");
+                    }
+                    else
+                    {
+                        throw new IllegalArgumentException(
+                                "Invalid command line parameter \"" + fields[0] + "\".");
+                    }
+                }
+                else
+                {
+                    throw new IllegalArgumentException(
+                            "Invalid command line syntax \"" + args[i] + "\".");
+                }
+            }
+
+            if (logFile == null)
+            {
+                throw new IllegalArgumentException("Missing log=<LogFileName>.");
+            }
+
+            if (!readStdin && port <= 0)
+            {
+                throw new IllegalArgumentException("No input (input=stdin or port=<ServerPort>).");
+            }
+
+            final AttendanceDaemon daemon = new AttendanceDaemon(
+                    AttendanceStore.create(storeType, logFile), place, meeting, host, port);
+            Runtime.getRuntime().addShutdownHook(new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    daemon.close();
+                }
+            });
+
+            if (readStdin)
+            {
+                daemon.readScans(new BufferedReader(new InputStreamReader(System.in)));
+            }
+
+            if (port > 0)
+            {
+                //
+                // Keep serving until the daemon is stopped.
+                //
+                Thread.currentThread().join();
+            }
+            System.exit(0);
+        }
+        catch (IllegalArgumentException | IOException e)
+        {
+            System.err.println("AttendanceDaemon: " + e.getMessage());
+            System.exit(1);
+        }
+        catch (InterruptedException e)
+        {
+            System.exit(0);
+        }
+    }   //main
+
+    /**
+     * Constructor: Create an instance of the object. It opens the log file, resumes the meeting
+     * of the session log or creates a new one, and starts the check-in server if requested.
+     *
+     * @param store specifies the store of the log.
+     * @param place specifies the meeting place of a new meeting.
+     * @param meeting specifies the meeting types of a new meeting.
+     * @param host specifies the address the check-in server listens on, null for the loopback
+     *             interface only.
+     * @param port specifies the port of the check-in server, 0 for no server.
+     * @throws IOException if a file cannot be read or the server cannot be started.
+     * @throws IllegalArgumentException if the log file contains invalid data.
+     */
+    public AttendanceDaemon(AttendanceStore store, String place, String meeting, String host, int port)
+        throws IOException, IllegalArgumentException
+    {
+        attendanceLog = new AttendanceLog(store, false);
+        sessionLogFile = SessionJournal.getDefaultFile(store.getFile());
+        eventStore = new EventStore(EventStore.getDefaultFolder(store.getFile()));
+
+        if (SessionJournal.adoptLegacyFile(attendanceLog))
+        {
+            System.out.printf("Took over %s of an older version.\n", SessionJournal.getLegacyFile());
+        }
+
+        if (sessionLogFile.exists())
+        {
+            resumeSession();
+        }
+        else
+        {
+            attendanceLog.createSession(getDefaultSessionInfo(place, meeting));
+        }
+        sessionJournal = new SessionJournal(sessionLogFile, attendanceLog.getCurrentSession());
+        //
+        // Subscribe after the meeting has been resumed so that the replayed transactions are not
+        // logged again.
+        //
+        attendanceLog.addListener(this);
+        if (store instanceof CsvAttendanceStore)
+        {
+            logFileWatcher = new LogFileWatcher(attendanceLog, LogFileWatcher.DEFAULT_SETTLE_MILLIS, this);
+        }
+
+        if (port > 0)
+        {
+            attendanceServer = new AttendanceServer(host, port, SERVER_THREADS);
+            attendanceServer.setLog(attendanceLog);
+            attendanceServer.start();
+        }
+
+        Session session = attendanceLog.getCurrentSession();
+        System.out.printf("Meeting of %s at %s started with %d attendants.\n",
+                session.getDate(), session.getPlace(), attendanceLog.getNumAttendants());
+    }   //AttendanceDaemon
+
+    /**
+     * This method returns the meeting info of a new meeting: the current time rounded to the
+     * half hour, its date and two hours later. The date is taken from the rounded time, so that a
+     * meeting started just before midnight is dated the next day along with its start time.
+     *
+     * @param place specifies the meeting place.
+     * @param meeting specifies the meeting types.
+     * @return meeting info fields.
+     */
+    private static String[] getDefaultSessionInfo(String place, String meeting)
+    {
+        LocalDateTime now = LocalDateTime.now();
+        int minute = now.getMinute() < 15? 0: now.getMinute() < 45? 30: 60;
+        LocalDateTime start = now.truncatedTo(ChronoUnit.HOURS).plusMinutes(minute);
+        DateTimeFormatter timeFormat = DateTimeFormatter.ofPattern("HH:mm");
+
+        return new String[] {
+                start.format(DateTimeFormatter.ofPattern("MM/dd/yyyy")),
+                start.format(timeFormat),
+                start.plusHours(2).format(timeFormat),
+                place, meeting};
+    }   //getDefaultSessionInfo
+
+    /**
+     * This method resumes the meeting recorded in the session log, e.g. after a power failure.
+     * The transactions are redone without logging them again.
+     *
+     * @throws IOException if the session log cannot be read.
+     */
+    private void resumeSession() throws IOException
+    {
+        try (SessionJournal.Reader sessionLog = new SessionJournal.Reader(sessionLogFile))
+        {
+            attendanceLog.createSession(sessionLog.getSessionInfo());
+
+            List<AttendanceEvent> events;
+            while ((events = sessionLog.readTransaction()) != null)
+            {
+                for (AttendanceEvent event: events)
+                {
+                    Attendant attendant = attendanceLog.findAttendant(event.getName());
+                    if (attendant == null)
+                    {
+                        System.out.printf("Skipped %s of unknown attendant %s in session log.\n",
+                                event.getType() == AttendanceEvent.Type.CHECK_IN? "check-in": "check-out",
+                                event.getName());
+                    }
+                    else
+                    {
+                        if (event.getType() == AttendanceEvent.Type.CHECK_IN)
+                        {
+                            attendanceLog.checkIn(attendant, event.getTimestamp());
+                        }
+                        else
+                        {
+                            attendanceLog.checkOut(attendant, event.getTimestamp());
+                        }
+                    }
+                }
+            }
+        }
+    }   //resumeSession
+
+    /**
+     * This method processes badge scans, one badge ID per line, until the end of the input.
+     *
+     * @param input specifies the input to read the scans from.
+     * @throws IOException if the input cannot be read.
+     */
+    public void readScans(BufferedReader input) throws IOException
+    {
+        BadgeScanner badgeScanner = new BadgeScanner(attendanceLog, BadgeScanner.DEFAULT_DEBOUNCE_MILLIS);
+        String line;
+
+        while ((line = input.readLine()) != null)
+        {
+            String id = line.trim();
+            if (id.length() > 0 && !badgeScanner.processScan(id, System.currentTimeMillis()))
+            {
+                System.out.printf("Unknown badge %s.\n", id);
+            }
+        }
+    }   //readScans
+
+    /**
+     * This method stops the daemon. It checks out all attendants still checked in, saves the log
+     * file and deletes the session log.
+     */
+    public synchronized void close()
+    {
+        if (!closed)
+        {
+            closed = true;
+            if (attendanceServer != null)
+            {
+                attendanceServer.setLog(null);
+                attendanceServer.stop();
+            }
+
+            List<Attendant> attendants = new ArrayList<Attendant>();
+            for (Attendant attendant: attendanceLog.getAttendants())
+            {
+                if (attendant.isCheckedIn())
+                {
+                    attendants.add(attendant);
+                }
+            }
+            attendanceLog.checkOut(attendants, System.currentTimeMillis());
+            if (logFileWatcher != null)
+            {
+                logFileWatcher.close();
+            }
+
+            boolean saved = false;
+            try
+            {
+                //
+                // This also waits for the check-outs to reach the session log and the event store.
+                //
+                attendanceLog.closeLogFile();
+                saved = true;
+            }
+            catch (IOException e)
+            {
+                //
+                // Keep the session log so the meeting can be recovered.
+                //
+                System.err.println("AttendanceDaemon: failed to save (" + e.getMessage() + ").");
+            }
+
+            sessionJournal.close();
+            try
+            {
+                eventStore.close();
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+
+            if (saved)
+            {
+                sessionLogFile.delete();
+                System.out.println("Log file saved.");
+            }
+        }
+    }   //close
+
+    //
+    // Implements AttendanceLogListener interface.
+    //
+
+    /**
+     * This method is called on the log's dispatcher thread with the events of the log, whichever
+     * input source caused them. The check-ins and check-outs are written to the session log and
+     * the event store. Renames of attendants already in the session log are recorded in it.
+     *
+     * @param log specifies the attendance log.
+     * @param events specifies the events.
+     */
+    @Override
+    public void onLogEvents(AttendanceLog log, List<AttendanceLogEvent> events)
+    {
+        List<AttendanceEvent> storeEvents = new ArrayList<AttendanceEvent>(events.size());
+
+        for (AttendanceLogEvent event: events)
+        {
+            boolean checkOut = event.getType() == AttendanceLogEvent.Type.CHECK_OUT;
+            if (checkOut || event.getType() == AttendanceLogEvent.Type.CHECK_IN)
+            {
+                sessionJournal.logTransactions(checkOut, event.getAttendants(), event.getTimestamp());
+                for (Attendant attendant: event.getAttendants())
+                {
+                    storeEvents.add(new AttendanceEvent(
+                            checkOut? AttendanceEvent.Type.CHECK_OUT: AttendanceEvent.Type.CHECK_IN,
+                            attendant.toString(), event.getTimestamp()));
+                    System.out.printf("%s %s.\n", checkOut? "Checked out": "Checked in", attendant);
+                }
+            }
+            else if (event.getType() == AttendanceLogEvent.Type.ATTENDANTS_CHANGED)
+            {
+                sessionJournal.logRenames(event.getAttendants());
+            }
+        }
+
+        try
+        {
+            eventStore.append(storeEvents);
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }   //onLogEvents
+
+    //
+    // Implements LogFileWatcher.Listener interface.
+    //
+
+    /**
+     * This method is called on the watcher thread after the edits of the log file made by
+     * another program have been merged into the log.
+     *
+     * @param log specifies the AttendanceLog.
+     * @param changes specifies the merged changes.
+     */
+    @Override
+    public void onLogFileReloaded(AttendanceLog log, LogFileChanges changes)
+    {
+        System.out.printf("Merged %d changed rows of %s.\n", changes.getNumChangedRows(), log.getFile().getName());
+    }   //onLogFileReloaded
+
+    /**
+     * This method is called on the watcher thread if the edits of the log file made by another
+     * program could not be merged.
+     *
+     * @param log specifies the AttendanceLog.
+     * @param e specifies the reason of the failure.
+     */
+    @Override
+    public void onLogFileReloadFailed(AttendanceLog log, Exception e)
+    {
+        System.err.printf("AttendanceDaemon: changes to %s could not be merged and will be overwritten (%s).\n",
+                log.getFile().getName(), e.getMessage());
+    }   //onLogFileReloadFailed
+
+}   //class AttendanceDaemon
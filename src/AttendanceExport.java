@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.*;
+import java.util.ArrayList;
+
+import attendance.JsonLinesExporter;
+
+/**
+ * This class implements the command line export of the Attendance Logger program. It exports log
+ * files and session logs in JSON Lines format (one JSON object per line) for downstream tools.
+ * It doesn't use any UI so it can run without a display, e.g.
+ *  java -jar TrcAttendance.jar export log=Frc2016Attendance.csv out=Frc2016Attendance.jsonl
+ *  where the parameters are:
+ *  log=<LogFileName>       - specifies a log file to be exported, can be repeated.
+ *  journal=<SessionLog>    - specifies a session log (e.g. TrcAttendance.SessionLog.txt) whose
+ *                            raw check-in and check-out events are to be exported, can be repeated.
+ *  out=<JsonFileName>      - optionally specifies the file to write to instead of the console.
+ */
+public class AttendanceExport
+{
+    /**
+     * This is the entry point of the export. It is also called by the main method of the
+     * program when the first command line parameter is "export".
+     *
+     * @param args specifies the command line parameters.
+     */
+    public static void main(String[] args)
+    {
+        System.setProperty("java.awt.headless", "true");
+
+        ArrayList<File> sources = new ArrayList<File>();
+        ArrayList<Boolean> isJournal = new ArrayList<Boolean>();
+        File outFile = null;
+
+        try
+        {
+            for (int i = 0; i < args.length; i++)
+            {
+                String[] fields = args[i].trim().split("=");
+                if (fields.length == 2)
+                {
+                    if (fields[0].equalsIgnoreCase("log") || fields[0].equalsIgnoreCase("journal"))
+                    {
+                        sources.add(new File(fields[1]));
+                        isJournal.add(fields[0].equalsIgnoreCase("journal"));
+                    }
+                    else if (fields[0].equalsIgnoreCase("out"))
+                    {
+                        outFile = new File(fields[1]);
+                    }
+                    else
+                    {
+                        throw new IllegalArgumentException(
+                                "Invalid command line parameter \"" + fields[0] + "\".");
+                    }
+                }
+                else
+                {
+                    throw new IllegalArgumentException(
+                            "Invalid command line syntax \"" + args[i] + "\".");
+                }
+            }
+
+            if (sources.isEmpty())
+            {
+                throw new IllegalArgumentException(
+                        "Nothing to export (log=<LogFileName> or journal=<SessionLog>).");
+            }
+
+            Writer output = new BufferedWriter(outFile != null?
+                    new FileWriter(outFile): new OutputStreamWriter(System.out));
+            JsonLinesExporter exporter = new JsonLinesExporter(output);
+            for (int i = 0; i < sources.size(); i++)
+            {
+                if (isJournal.get(i))
+                {
+                    exporter.exportJournal(sources.get(i));
+                }
+                else
+                {
+                    exporter.exportLog(sources.get(i));
+                }
+            }
+            output.close();
+        }
+        catch (IllegalArgumentException | IOException e)
+        {
+            System.err.println("AttendanceExport: " + e.getMessage());
+            System.exit(1);
+        }
+    }   //main
+
+}   //class AttendanceExport
@@ -0,0 +1,442 @@
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.*;
+import java.util.concurrent.*;
+
+import attendance.AttendanceLog;
+import attendance.Attendant;
+import attendance.SessionJournal;
+
+/**
+ * This class implements the command line load test of the Attendance Logger program. It drives
+ * the check-in core (AttendanceLog and Attendant) and the session journal with synthetic meetings
+ * and reports the throughput, the latency percentiles of a check-in or check-out and the garbage
+ * collector activity, e.g. to size the hardware of a kiosk or to catch performance regressions.
+ * Nothing is written to the log file; the session journal goes to a temporary file.
+ *
+ * The attendants are split evenly among the worker threads. Each thread runs one meeting after
+ * another for its attendants: most attendants come to a meeting, arriving around the start time
+ * (normally distributed, 15 minutes standard deviation) and staying for a log-normally distributed
+ * time (90 minutes median). The check-ins and check-outs of a meeting are replayed in time order.
+ *  java -jar TrcAttendance.jar loadtest attendants=1000 events=2000000 threads=4
+ *  where the parameters are:
+ *  attendants=<Count>      - optionally specifies the number of attendants, 10 to 100000, the
+ *                            default is 300.
+ *  events=<Count>          - optionally specifies the number of check-ins and check-outs, the
+ *                            default is 1000000.
+ *  threads=<Count>         - optionally specifies the number of worker threads, the default is 1.
+ *  journal=yes|no          - optionally turns off the session journal.
+ *  seed=<Number>           - optionally specifies the random seed to repeat a run.
+ */
+public class AttendanceLoadTest
+{
+    private static final double ATTEND_PROBABILITY = 0.8;
+    private static final double ARRIVAL_STDDEV_MILLIS = 15*60*1000.0;
+    private static final double MEDIAN_STAY_MILLIS = 90*60*1000.0;
+    private static final double STAY_SIGMA = 0.5;
+    private static final long MILLIS_PER_DAY = 24*60*60*1000L;
+    private static final int EVENT_TIME_SHIFT = 18;
+    private static final long EVENT_ATTENDANT_MASK = (1L << EVENT_TIME_SHIFT) - 1;
+
+    /**
+     * This class implements a latency histogram with logarithmic buckets: each power of two is
+     * split into 8 linear sub-buckets, so percentiles are accurate to about 12% at any scale
+     * using a small fixed amount of memory.
+     */
+    private static class LatencyHistogram
+    {
+        private static final int SUB_BUCKETS = 8;
+        private long[] counts = new long[64*SUB_BUCKETS];
+        private long totalCount = 0;
+        private long maxValue = 0;
+
+        /**
+         * This method records a latency.
+         *
+         * @param nanos specifies the latency in nanoseconds.
+         */
+        void record(long nanos)
+        {
+            counts[getBucket(Math.max(nanos, 0))]++;
+            totalCount++;
+            maxValue = Math.max(maxValue, nanos);
+        }   //record
+
+        /**
+         * This method adds the counts of another histogram to this one.
+         *
+         * @param other specifies the other histogram.
+         */
+        void add(LatencyHistogram other)
+        {
+            for (int i = 0; i < counts.length; i++)
+            {
+                counts[i] += other.counts[i];
+            }
+            totalCount += other.totalCount;
+            maxValue = Math.max(maxValue, other.maxValue);
+        }   //add
+
+        /**
+         * This method returns the bucket of a value.
+         *
+         * @param value specifies the value.
+         * @return bucket index.
+         */
+        private static int getBucket(long value)
+        {
+            if (value < SUB_BUCKETS)
+            {
+                return (int)value;
+            }
+
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int)(value >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+            return (exponent - 2)*SUB_BUCKETS + subBucket;
+        }   //getBucket
+
+        /**
+         * This method returns the highest value of a bucket.
+         *
+         * @param bucket specifies the bucket index.
+         * @return highest value of the bucket.
+         */
+        private static long getBucketLimit(int bucket)
+        {
+            if (bucket < SUB_BUCKETS)
+            {
+                return bucket;
+            }
+
+            int exponent = bucket/SUB_BUCKETS + 2;
+            long subBucket = bucket%SUB_BUCKETS;
+            return ((SUB_BUCKETS + subBucket + 1) << (exponent - 3)) - 1;
+        }   //getBucketLimit
+
+        /**
+         * This method returns a percentile of the recorded latencies.
+         *
+         * @param percentile specifies the percentile (0 to 100).
+         * @return latency in nanoseconds that the percentile of the recorded latencies do not
+         *         exceed.
+         */
+        long getPercentile(double percentile)
+        {
+            long rank = (long)Math.ceil(percentile/100.0*totalCount);
+            long count = 0;
+
+            for (int i = 0; i < counts.length; i++)
+            {
+                count += counts[i];
+                if (count >= rank && count > 0)
+                {
+                    return Math.min(getBucketLimit(i), maxValue);
+                }
+            }
+
+            return maxValue;
+        }   //getPercentile
+
+    }   //class LatencyHistogram
+
+    /**
+     * This class implements a worker thread running meetings for a share of the attendants.
+     */
+    private static class Worker implements Callable<LatencyHistogram>
+    {
+        private AttendanceLog log;
+        private SessionJournal journal;
+        private List<Attendant> attendants;
+        private long numEvents;
+        private Random random;
+
+        /**
+         * Constructor: Create an instance of the object.
+         *
+         * @param log specifies the attendance log.
+         * @param journal specifies the session journal, null if none.
+         * @param attendants specifies the attendants of the worker.
+         * @param numEvents specifies the number of events to generate.
+         * @param seed specifies the random seed.
+         */
+        Worker(AttendanceLog log, SessionJournal journal, List<Attendant> attendants, long numEvents, long seed)
+        {
+            this.log = log;
+            this.journal = journal;
+            this.attendants = attendants;
+            this.numEvents = numEvents;
+            this.random = new Random(seed);
+        }   //Worker
+
+        /**
+         * This method runs meetings until the number of events is reached.
+         *
+         * @return latencies of the check-ins and check-outs.
+         */
+        @Override
+        public LatencyHistogram call()
+        {
+            LatencyHistogram histogram = new LatencyHistogram();
+            //
+            // Each event is encoded in a long as the time since the start of its meeting, the
+            // attendant and the event type, so that a meeting is sorted in time order as a
+            // primitive array without creating an object per event. The time is relative to the
+            // meeting rather than the test so that it fits however many meetings are run.
+            //
+            long[] events = new long[attendants.size()*2];
+            long baseTime = System.currentTimeMillis();
+            long meetingStart = 0;
+            long generated = 0;
+
+            while (generated < numEvents)
+            {
+                int count = 0;
+                for (int i = 0; i < attendants.size() && generated + count < numEvents; i++)
+                {
+                    if (random.nextDouble() < ATTEND_PROBABILITY)
+                    {
+                        long arrival = (long)Math.abs(random.nextGaussian()*ARRIVAL_STDDEV_MILLIS);
+                        long stay = 1 + (long)(MEDIAN_STAY_MILLIS*Math.exp(random.nextGaussian()*STAY_SIGMA));
+                        events[count++] = (arrival << EVENT_TIME_SHIFT) | ((long)i << 1) | 1;
+                        events[count++] = ((arrival + stay) << EVENT_TIME_SHIFT) | ((long)i << 1);
+                    }
+                }
+                Arrays.sort(events, 0, count);
+
+                for (int i = 0; i < count; i++)
+                {
+                    Attendant attendant = attendants.get((int)(events[i] & EVENT_ATTENDANT_MASK) >> 1);
+                    boolean checkIn = (events[i] & 1) != 0;
+                    long timestamp = baseTime + meetingStart + (events[i] >> EVENT_TIME_SHIFT);
+
+                    long startTime = System.nanoTime();
+                    boolean success = checkIn? log.checkIn(attendant, timestamp): log.checkOut(attendant, timestamp);
+                    if (success && journal != null)
+                    {
+                        journal.logTransaction(!checkIn, attendant, timestamp);
+                    }
+                    histogram.record(System.nanoTime() - startTime);
+                }
+
+                generated += count;
+                meetingStart += MILLIS_PER_DAY;
+            }
+
+            return histogram;
+        }   //call
+
+    }   //class Worker
+
+    /**
+     * This is the entry point of the load test. It is also called by the main method of the
+     * program when the first command line parameter is "loadtest".
+     *
+     * @param args specifies the command line parameters.
+     */
+    public static void main(String[] args)
+    {
+        System.setProperty("java.awt.headless", "true");
+
+        int numAttendants = 300;
+        long numEvents = 1000000;
+        int numThreads = 1;
+        boolean useJournal = true;
+        long seed = System.nanoTime();
+
+        try
+        {
+            for (int i = 0; i < args.length; i++)
+            {
+                String[] fields = args[i].trim().split("=");
+                if (fields.length == 2)
+                {
+                    if (fields[0].equalsIgnoreCase("attendants"))
+                    {
+                        numAttendants = Integer.parseInt(fields[1]);
+                        if (numAttendants < 10 || numAttendants > 100000)
+                        {
+                            throw new IllegalArgumentException("attendants must be 10 to 100000.");
+                        }
+                    }
+                    else if (fields[0].equalsIgnoreCase("events"))
+                    {
+                        numEvents = Long.parseLong(fields[1]);
+                    }
+                    else if (fields[0].equalsIgnoreCase("threads"))
+                    {
+                        numThreads = Integer.parseInt(fields[1]);
+                        if (numThreads < 1)
+                        {
+                            throw new IllegalArgumentException("threads must be at least 1.");
+                        }
+                    }
+                    else if (fields[0].equalsIgnoreCase("journal"))
+                    {
+                        useJournal = fields[1].equalsIgnoreCase("yes") || fields[1].equalsIgnoreCase("true");
+                    }
+                    else if (fields[0].equalsIgnoreCase("seed"))
+                    {
+                        seed = Long.parseLong(fields[1]);
+                    }
+                    else
+                    {
+                        throw new IllegalArgumentException(
+                                "Invalid command line parameter \"" + fields[0] + "\".");
+                    }
+                }
+                else
+                {
+                    throw new IllegalArgumentException(
+                            "Invalid command line syntax \"" + args[i] + "\".");
+                }
+            }
+
+            numThreads = Math.min(numThreads, numAttendants);
+            runLoadTest(numAttendants, numEvents, numThreads, useJournal, seed);
+        }
+        catch (IllegalArgumentException | IOException e)
+        {
+            System.err.println("AttendanceLoadTest: " + e.getMessage());
+            System.exit(1);
+        }
+    }   //main
+
+    /**
+     * This method runs the load test and prints the results.
+     *
+     * @param numAttendants specifies the number of attendants.
+     * @param numEvents specifies the number of check-ins and check-outs.
+     * @param numThreads specifies the number of worker threads.
+     * @param useJournal specifies true to write the session journal.
+     * @param seed specifies the random seed.
+     * @throws IOException if the temporary files cannot be created.
+     */
+    private static void runLoadTest(int numAttendants, long numEvents, int numThreads, boolean useJournal, long seed)
+        throws IOException
+    {
+        File logFile = File.createTempFile("LoadTest", ".csv");
+        File journalFile = File.createTempFile("LoadTest", ".txt");
+        journalFile.delete();
+
+        try
+        {
+            AttendanceLog log = new AttendanceLog(logFile, true);
+            String[] names = new String[numAttendants];
+            for (int i = 0; i < numAttendants; i++)
+            {
+                names[i] = String.format("Attendant%06d", i);
+            }
+            log.updateAttendants(names);
+            log.createSession(new String[] {"01/01/2000", "18:00", "20:00", "LoadTest", "Other"});
+            SessionJournal journal = useJournal? new SessionJournal(journalFile, log.getCurrentSession()): null;
+
+            List<List<Attendant>> shares = new ArrayList<List<Attendant>>();
+            for (int i = 0; i < numThreads; i++)
+            {
+                shares.add(new ArrayList<Attendant>());
+            }
+            List<Attendant> attendants = log.getAttendants();
+            for (int i = 0; i < attendants.size(); i++)
+            {
+                shares.get(i%numThreads).add(attendants.get(i));
+            }
+
+            System.out.printf("Attendants: %d, events: %d, threads: %d, journal: %s, seed: %d\n",
+                    numAttendants, numEvents, numThreads, useJournal? "yes": "no", seed);
+
+            MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+            List<GarbageCollectorMXBean> gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+            long[] gcCounts = new long[gcBeans.size()];
+            long[] gcTimes = new long[gcBeans.size()];
+            for (int i = 0; i < gcBeans.size(); i++)
+            {
+                gcCounts[i] = gcBeans.get(i).getCollectionCount();
+                gcTimes[i] = gcBeans.get(i).getCollectionTime();
+            }
+            long heapBefore = memoryBean.getHeapMemoryUsage().getUsed();
+
+            ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+            List<Future<LatencyHistogram>> futures = new ArrayList<Future<LatencyHistogram>>();
+            LatencyHistogram histogram = new LatencyHistogram();
+            long startTime = System.nanoTime();
+            try
+            {
+                for (int i = 0; i < numThreads; i++)
+                {
+                    long share = numEvents/numThreads + (i < numEvents%numThreads? 1: 0);
+                    futures.add(executor.submit(new Worker(log, journal, shares.get(i), share, seed + i)));
+                }
+                for (Future<LatencyHistogram> future: futures)
+                {
+                    histogram.add(future.get());
+                }
+            }
+            catch (InterruptedException | ExecutionException e)
+            {
+                throw new RuntimeException(e);
+            }
+            finally
+            {
+                executor.shutdownNow();
+            }
+            double seconds = (System.nanoTime() - startTime)/1e9;
+
+            long drainTime = System.nanoTime();
+            if (journal != null)
+            {
+                journal.close();
+            }
+            double drainSeconds = (System.nanoTime() - drainTime)/1e9;
+            long heapAfter = memoryBean.getHeapMemoryUsage().getUsed();
+
+            System.out.printf("Throughput: %.0f events/s (%d events in %.3f s)\n",
+                    histogram.totalCount/seconds, histogram.totalCount, seconds);
+            if (journal != null)
+            {
+                System.out.printf("Journal: %.3f s to drain, %d KB written\n", drainSeconds, journalFile.length()/1024);
+            }
+            System.out.printf("Latency (us): p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f\n",
+                    histogram.getPercentile(50)/1000.0, histogram.getPercentile(90)/1000.0,
+                    histogram.getPercentile(99)/1000.0, histogram.getPercentile(99.9)/1000.0,
+                    histogram.maxValue/1000.0);
+            for (int i = 0; i < gcBeans.size(); i++)
+            {
+                System.out.printf("GC %s: %d collections, %d ms\n", gcBeans.get(i).getName(),
+                        gcBeans.get(i).getCollectionCount() - gcCounts[i],
+                        gcBeans.get(i).getCollectionTime() - gcTimes[i]);
+            }
+            System.out.printf("Heap used: %d MB before, %d MB after, %d MB max\n",
+                    heapBefore >> 20, heapAfter >> 20, memoryBean.getHeapMemoryUsage().getMax() >> 20);
+        }
+        finally
+        {
+            logFile.delete();
+            journalFile.delete();
+        }
+    }   //runLoadTest
+
+}   //class AttendanceLoadTest
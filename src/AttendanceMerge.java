@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+
+import attendance.AttendanceLog;
+import attendance.JournalMerger;
+
+/**
+ * This class implements the command line journal merge of the Attendance Logger program. When
+ * several kiosks ran the same meeting against copies of the same log file, it merges their
+ * session logs in timestamp order into one session of the log file (see JournalMerger). It
+ * doesn't use any UI so it can run without a display, e.g.
+ *  java -jar TrcAttendance.jar merge log=Frc2016Attendance.csv journal=DoorA.txt journal=DoorB.txt
+ *  where the parameters are:
+ *  log=<LogFileName>       - specifies the log file to add the merged session to.
+ *  journal=<SessionLog>    - specifies the session log (<LogFile>.SessionLog.txt) of a kiosk, can be
+ *                            repeated.
+ *  out=<LogFileName>       - optionally specifies a new log file to write instead of updating
+ *                            the log file.
+ */
+public class AttendanceMerge
+{
+    /**
+     * This is the entry point of the merge. It is also called by the main method of the
+     * program when the first command line parameter is "merge".
+     *
+     * @param args specifies the command line parameters.
+     */
+    public static void main(String[] args)
+    {
+        System.setProperty("java.awt.headless", "true");
+
+        File logFile = null;
+        File outFile = null;
+        ArrayList<File> journalFiles = new ArrayList<File>();
+
+        try
+        {
+            for (int i = 0; i < args.length; i++)
+            {
+                String[] fields = args[i].trim().split("=");
+                if (fields.length == 2)
+                {
+                    if (fields[0].equalsIgnoreCase("log"))
+                    {
+                        logFile = new File(fields[1]);
+                    }
+                    else if (fields[0].equalsIgnoreCase("journal"))
+                    {
+                        journalFiles.add(new File(fields[1]));
+                    }
+                    else if (fields[0].equalsIgnoreCase("out"))
+                    {
+                        outFile = new File(fields[1]);
+                    }
+                    else
+                    {
+                        throw new IllegalArgumentException(
+                                "Invalid command line parameter \"" + fields[0] + "\".");
+                    }
+                }
+                else
+                {
+                    throw new IllegalArgumentException(
+                            "Invalid command line syntax \"" + args[i] + "\".");
+                }
+            }
+
+            if (logFile == null || journalFiles.isEmpty())
+            {
+                throw new IllegalArgumentException(
+                        "Nothing to merge (log=<LogFileName> journal=<SessionLog> ...).");
+            }
+
+            if (outFile != null)
+            {
+                Files.copy(logFile.toPath(), outFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                logFile = outFile;
+            }
+
+            AttendanceLog log = new AttendanceLog(logFile, false);
+            JournalMerger merger = new JournalMerger(journalFiles);
+            merger.merge(log);
+            log.closeLogFile();
+
+            System.out.printf("Merged %d events of %d session logs into %s (%d ignored).\n",
+                    merger.getNumEvents(), journalFiles.size(), logFile, merger.getNumIgnoredEvents());
+            for (String name: merger.getUnknownNames())
+            {
+                System.err.printf("Skipping unknown attendant \"%s\".\n", name);
+            }
+        }
+        catch (IllegalArgumentException | IOException e)
+        {
+            System.err.println("AttendanceMerge: " + e.getMessage());
+            System.exit(1);
+        }
+    }   //main
+
+}   //class AttendanceMerge
@@ -20,14 +20,19 @@
  * SOFTWARE.
  */
 
+import java.awt.EventQueue;
+import java.awt.Toolkit;
 import java.awt.event.*;
-import java.util.Comparator;
+import java.util.*;
 
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
 
 import attendance.AttendanceLog;
+import attendance.AttendanceLogEvent;
+import attendance.AttendanceLogListener;
 import attendance.Attendant;
+import attendance.BadgeScanner;
 
 /**
  * This class constructs the Attendance pane. It contains a check-in list and a check-out list.
@@ -35,54 +40,203 @@ import attendance.Attendant;
  * attendant checks in, he/she will be moved to the check-out list. When the attendant checks
  * out, the attendance time is recorded and the attendant will be moved back to the check-in
  * list.
+ * Both lists allow selecting multiple attendants. Tapping a name toggles its selection so that
+ * a whole group can be selected on a touch screen and checked in or out with one click. The
+ * group is recorded in the session log as a single entry and the lists are updated once.
+ * Attendants with a badge ID can also check in and out by scanning their badges with a keyboard
+ * wedge scanner which types the badge ID followed by Enter into the badge field. Each scan
+ * toggles the attendant between checked in and checked out. Repeated scans of the same badge
+ * within a short period are ignored.
+ * The lists follow the events of the attendance log, so check-ins made through the check-in
+ * server or the badge scanner show up the same way as those made on the pane.
  */
-public class AttendancePane implements ActionListener
+public class AttendancePane implements ActionListener, AttendanceLogListener
 {
+    private static final int VISIBLE_ROW_COUNT = 4;
+
     /**
-     * This class implements the SortedComboBoxModel that allows the elements in a ComboBox to
-     * be added in sorted order.
+     * This class implements the SortedListModel that keeps the elements of a List in sorted
+     * order. Single elements are inserted and removed with a binary search. Groups of elements
+     * are merged in or filtered out in one pass and fire a single change event.
      */
-    private class SortedComboBoxModel<E> extends DefaultComboBoxModel<E>
+    private class SortedListModel<E> extends AbstractListModel<E>
     {
         private static final long serialVersionUID = 1L;
         private Comparator<E> comparator;
+        private ArrayList<E> elements = new ArrayList<E>();
 
         /**
          * Constructor: Create an instance of the object.
          *
          * @param comparator specifies the custom comparator.
          */
-        public SortedComboBoxModel(Comparator<E> comparator)
+        public SortedListModel(Comparator<E> comparator)
         {
             super();
             this.comparator = comparator;
-        }   //SortedComboBoxModel
+        }   //SortedListModel
 
         /**
-         * This method inserts the specified element into the ComboBox at the sorted position.
+         * This method inserts the specified elements into the List at their sorted positions.
          *
-         * @param element specifies the element to be inserted into the ComboBox.
+         * @param newElements specifies the elements to be inserted into the List.
          */
-        @Override
-        public void addElement(E element)
+        public void addAll(Collection<E> newElements)
         {
-            int size = getSize();
-            int pos;
-            //
-            // Find the appropriate position to insert the element.
-            //
-            for (pos = 0; pos < size; pos++)
+            if (!newElements.isEmpty())
             {
-                E e = getElementAt(pos);
-                if (comparator.compare(element, e) < 0)
+                ArrayList<E> sorted = new ArrayList<E>(newElements);
+                Collections.sort(sorted, comparator);
+                //
+                // Merge the sorted new elements with the existing elements.
+                //
+                ArrayList<E> merged = new ArrayList<E>(elements.size() + sorted.size());
+                int i = 0, j = 0;
+                while (i < elements.size() && j < sorted.size())
                 {
-                    break;
+                    if (comparator.compare(sorted.get(j), elements.get(i)) < 0)
+                    {
+                        merged.add(sorted.get(j++));
+                    }
+                    else
+                    {
+                        merged.add(elements.get(i++));
+                    }
                 }
+                merged.addAll(elements.subList(i, elements.size()));
+                merged.addAll(sorted.subList(j, sorted.size()));
+                elements = merged;
+                fireContentsChanged(this, 0, elements.size() - 1);
+            }
+        }   //addAll
+
+        /**
+         * This method removes the specified elements from the List. Each run of adjacent removed
+         * elements is reported as a removed interval, so that the selection of the remaining
+         * elements moves with them.
+         *
+         * @param oldElements specifies the elements to be removed from the List.
+         */
+        public void removeAll(Collection<E> oldElements)
+        {
+            if (!oldElements.isEmpty())
+            {
+                int oldSize = elements.size();
+                HashSet<E> removeSet = new HashSet<E>(oldElements);
+                ArrayList<E> remaining = new ArrayList<E>(oldSize);
+                ArrayList<int[]> removedRuns = new ArrayList<int[]>();
+
+                for (int i = 0; i < oldSize; i++)
+                {
+                    E e = elements.get(i);
+                    if (!removeSet.contains(e))
+                    {
+                        remaining.add(e);
+                    }
+                    else if (!removedRuns.isEmpty() && removedRuns.get(removedRuns.size() - 1)[1] == i - 1)
+                    {
+                        removedRuns.get(removedRuns.size() - 1)[1] = i;
+                    }
+                    else
+                    {
+                        removedRuns.add(new int[]{i, i});
+                    }
+                }
+
+                if (!removedRuns.isEmpty())
+                {
+                    elements = remaining;
+                    //
+                    // Report the runs from the last to the first so that the indices of each run
+                    // are still valid after the runs reported before it have been removed.
+                    //
+                    for (int i = removedRuns.size() - 1; i >= 0; i--)
+                    {
+                        fireIntervalRemoved(this, removedRuns.get(i)[0], removedRuns.get(i)[1]);
+                    }
+                }
+            }
+        }   //removeAll
+
+        /**
+         * This method removes all elements from the List.
+         */
+        public void clear()
+        {
+            int oldSize = elements.size();
+            if (oldSize > 0)
+            {
+                elements = new ArrayList<E>();
+                fireIntervalRemoved(this, 0, oldSize - 1);
             }
-            super.insertElementAt(element, pos);
-        }   //addElement
+        }   //clear
 
-    }   //class SortedComboBoxModel
+        /**
+         * This method returns a copy of all the elements in the List.
+         *
+         * @return all elements in sorted order.
+         */
+        public ArrayList<E> getElements()
+        {
+            return new ArrayList<E>(elements);
+        }   //getElements
+
+        //
+        // Implements ListModel interface.
+        //
+
+        @Override
+        public int getSize()
+        {
+            return elements.size();
+        }   //getSize
+
+        @Override
+        public E getElementAt(int index)
+        {
+            return elements.get(index);
+        }   //getElementAt
+
+    }   //class SortedListModel
+
+    /**
+     * This class implements a ListSelectionModel that toggles the selection of an item when it
+     * is clicked instead of replacing the selection. This allows selecting multiple items on a
+     * touch screen without holding down the Ctrl key. Dragging across items does not toggle
+     * them repeatedly.
+     */
+    private class ToggleSelectionModel extends DefaultListSelectionModel
+    {
+        private static final long serialVersionUID = 1L;
+        private boolean gestureStarted = false;
+
+        @Override
+        public void setSelectionInterval(int index0, int index1)
+        {
+            if (getValueIsAdjusting())
+            {
+                if (gestureStarted) return;
+                gestureStarted = true;
+            }
+
+            if (isSelectedIndex(index0))
+            {
+                super.removeSelectionInterval(index0, index1);
+            }
+            else
+            {
+                super.addSelectionInterval(index0, index1);
+            }
+        }   //setSelectionInterval
+
+        @Override
+        public void setValueIsAdjusting(boolean isAdjusting)
+        {
+            gestureStarted = false;
+            super.setValueIsAdjusting(isAdjusting);
+        }   //setValueIsAdjusting
+
+    }   //class ToggleSelectionModel
 
     private TrcAttendance parent;
     private JPanel panel = new JPanel();
@@ -90,16 +244,24 @@ public class AttendancePane implements ActionListener
     // Check-in controls.
     //
     private JButton checkInButton = new JButton(" Check in ");
-    private SortedComboBoxModel<Attendant> checkInListModel =
-                new SortedComboBoxModel<Attendant>(new Attendant.NameComparator());
-    private JComboBox<Attendant> checkInList = new JComboBox<Attendant>(checkInListModel);
+    private SortedListModel<Attendant> checkInListModel =
+                new SortedListModel<Attendant>(new Attendant.NameComparator());
+    private JList<Attendant> checkInList = new JList<Attendant>(checkInListModel);
+    private JScrollPane checkInScrollPane = new JScrollPane(checkInList);
     //
     // Check-out controls.
     //
     private JButton checkOutButton = new JButton("Check out");
-    private SortedComboBoxModel<Attendant> checkOutListModel =
-                new SortedComboBoxModel<Attendant>(new Attendant.NameComparator());
-    private JComboBox<Attendant> checkOutList = new JComboBox<Attendant>(checkOutListModel);
+    private SortedListModel<Attendant> checkOutListModel =
+                new SortedListModel<Attendant>(new Attendant.NameComparator());
+    private JList<Attendant> checkOutList = new JList<Attendant>(checkOutListModel);
+    private JScrollPane checkOutScrollPane = new JScrollPane(checkOutList);
+    //
+    // Badge scanner controls.
+    //
+    private JLabel scanLabel = new JLabel("Badge", SwingConstants.CENTER);
+    private JTextField scanField = new JTextField();
+    private BadgeScanner badgeScanner = null;
 
     /**
      * Constructor: Create an instance of the object.
@@ -119,15 +281,27 @@ public class AttendancePane implements ActionListener
         //
         checkInButton.setFont(parent.smallFont);
         checkInButton.addActionListener(this);
-        checkInList.setFont(parent.bigFont);
-        checkInList.setEditable(false);
+        checkInList.setFont(parent.mediumFont);
+        checkInList.setSelectionModel(new ToggleSelectionModel());
+        checkInList.setVisibleRowCount(VISIBLE_ROW_COUNT);
         //
         // Initialize check-out controls.
         //
         checkOutButton.setFont(parent.smallFont);
         checkOutButton.addActionListener(this);
-        checkOutList.setFont(parent.bigFont);
-        checkOutList.setEditable(false);
+        checkOutList.setFont(parent.mediumFont);
+        checkOutList.setSelectionModel(new ToggleSelectionModel());
+        checkOutList.setVisibleRowCount(VISIBLE_ROW_COUNT);
+        //
+        // Initialize badge scanner controls. The buttons don't take the focus away from the
+        // badge field so that the scanner can be used right after a button is clicked.
+        //
+        scanLabel.setFont(parent.smallFont);
+        scanLabel.setLabelFor(scanField);
+        scanField.setFont(parent.mediumFont);
+        scanField.addActionListener(this);
+        checkInButton.setFocusable(false);
+        checkOutButton.setFocusable(false);
 
         //
         // Initialize component layout.
@@ -140,18 +314,23 @@ public class AttendancePane implements ActionListener
             layout.createSequentialGroup()
                 .addGroup(layout.createParallelGroup(GroupLayout.Alignment.LEADING)
                     .addComponent(checkInButton)
-                    .addComponent(checkOutButton))
+                    .addComponent(checkOutButton)
+                    .addComponent(scanLabel, GroupLayout.DEFAULT_SIZE, GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
                 .addGroup(layout.createParallelGroup(GroupLayout.Alignment.LEADING)
-                    .addComponent(checkInList)
-                    .addComponent(checkOutList)));
+                    .addComponent(checkInScrollPane)
+                    .addComponent(checkOutScrollPane)
+                    .addComponent(scanField)));
         layout.setVerticalGroup(
             layout.createSequentialGroup()
-                .addGroup(layout.createParallelGroup(GroupLayout.Alignment.BASELINE)
+                .addGroup(layout.createParallelGroup(GroupLayout.Alignment.LEADING)
                     .addComponent(checkInButton)
-                    .addComponent(checkInList))
-                .addGroup(layout.createParallelGroup(GroupLayout.Alignment.BASELINE)
+                    .addComponent(checkInScrollPane))
+                .addGroup(layout.createParallelGroup(GroupLayout.Alignment.LEADING)
                     .addComponent(checkOutButton)
-                    .addComponent(checkOutList)));
+                    .addComponent(checkOutScrollPane))
+                .addGroup(layout.createParallelGroup(GroupLayout.Alignment.BASELINE)
+                    .addComponent(scanLabel)
+                    .addComponent(scanField)));
 
         parent.frame.add(panel);
         clearPanel();
@@ -162,8 +341,8 @@ public class AttendancePane implements ActionListener
      */
     public void clearPanel()
     {
-        checkInList.removeAllItems();
-        checkOutList.removeAllItems();
+        clearLists();
+        scanField.setText("");
         setEnabled(false);
     }   //clearPanel
 
@@ -179,6 +358,12 @@ public class AttendancePane implements ActionListener
         checkInButton.setEnabled(enabled);
         checkOutList.setEnabled(enabled);
         checkOutButton.setEnabled(enabled);
+        scanLabel.setEnabled(enabled);
+        scanField.setEnabled(enabled);
+        if (enabled)
+        {
+            scanField.requestFocusInWindow();
+        }
     }   //setEnabled
 
     /**
@@ -186,124 +371,289 @@ public class AttendancePane implements ActionListener
      */
     public void clearLists()
     {
-        checkInList.removeAllItems();
-        checkOutList.removeAllItems();
+        checkInList.clearSelection();
+        checkOutList.clearSelection();
+        checkInListModel.clear();
+        checkOutListModel.clear();
+        badgeScanner = null;
     }   //clearLists
 
     /**
      * This method updates the check-in and check-out lists according to the attendants in the
-     * AttendanceLog.
+     * AttendanceLog. New attendants are added to the check-in list, or to the check-out list if
+     * they are checked in (e.g. when a log with a meeting in progress is shown again), and
+     * attendants no longer in the AttendanceLog are removed from both lists.
      *
      * @param log specifies the AttendanceLog object.
      */
     public void updateLists(AttendanceLog log)
     {
         int numAttendants = log.getNumAttendants();
+        HashSet<Attendant> logAttendants = new HashSet<Attendant>(numAttendants*2);
+        HashSet<Attendant> listAttendants = new HashSet<Attendant>(checkInListModel.getElements());
+        ArrayList<Attendant> newAttendants = new ArrayList<Attendant>();
+        ArrayList<Attendant> newCheckedIn = new ArrayList<Attendant>();
 
+        listAttendants.addAll(checkOutListModel.getElements());
         for (int i = 0; i < numAttendants; i++)
         {
             Attendant attendant = log.getAttendant(i);
-            if (checkInListModel.getIndexOf(attendant) == -1 &&
-                checkOutListModel.getIndexOf(attendant) == -1)
+            logAttendants.add(attendant);
+            if (!listAttendants.contains(attendant))
             {
                 //
                 // Add new attendant.
                 //
-                checkInList.addItem(attendant);
+                if (attendant.isCheckedIn())
+                {
+                    newCheckedIn.add(attendant);
+                }
+                else
+                {
+                    newAttendants.add(attendant);
+                }
             }
         }
 
-        for (int i = checkInList.getItemCount() - 1; i >= 0; i--)
-        {
-            if (!parent.attendanceLog.contains(checkInList.getItemAt(i)))
-            {
-                //
-                // The attendant has been removed, get rid of it from the check-in list.
-                //
-                checkInList.removeItemAt(i);
-            }
-        }
+        //
+        // Get rid of the attendants that have been removed.
+        //
+        listAttendants.removeAll(logAttendants);
+        checkInList.clearSelection();
+        checkOutList.clearSelection();
+        checkInListModel.removeAll(listAttendants);
+        checkOutListModel.removeAll(listAttendants);
+        checkInListModel.addAll(newAttendants);
+        checkOutListModel.addAll(newCheckedIn);
+    }   //updateLists
 
-        for (int i = checkOutList.getItemCount() - 1; i >= 0; i--)
+    /**
+     * This method checks out all the attendants that are checked in with the same check-out
+     * time. It is done as one group transaction: one session log entry and one update of each
+     * list. The attendants are taken from the log rather than the check-out list so that those
+     * checked in by another input source but not shown yet are also checked out.
+     */
+    public void checkOutAll()
+    {
+        List<Attendant> attendants = new ArrayList<Attendant>();
+
+        for (Attendant attendant: parent.attendanceLog.getAttendants())
         {
-            if (!parent.attendanceLog.contains(checkOutList.getItemAt(i)))
+            if (attendant.isCheckedIn())
             {
-                //
-                // The attendant has been removed, get rid of it from the check-out list.
-                //
-                checkOutList.removeItemAt(i);
+                attendants.add(attendant);
             }
         }
+        checkOutAttendants(attendants, System.currentTimeMillis());
+    }   //checkOutAll
 
-        if (checkInList.getItemCount() > 0)
+    /**
+     * This method checks in the selected attendant. The lists are updated when the check-in
+     * event of the log arrives.
+     *
+     * @param attendant specifies the attendant to be checked in.
+     * @param timestamp specifies the check-in time.
+     */
+    public void checkInAttendant(Attendant attendant, long timestamp)
+    {
+        if (attendant != null)
         {
-            checkInList.setSelectedIndex(0);
+            parent.attendanceLog.checkIn(attendant, timestamp);
         }
+    }   //checkInAttendant
+
+    /**
+     * This method checks in a group of attendants as a single transaction. Attendants already
+     * checked in by another input source are skipped. The lists are updated when the check-in
+     * event of the log arrives.
+     *
+     * @param attendants specifies the attendants to be checked in.
+     * @param timestamp specifies the check-in time.
+     */
+    public void checkInAttendants(List<Attendant> attendants, long timestamp)
+    {
+        parent.attendanceLog.checkIn(attendants, timestamp);
+    }   //checkInAttendants
+
+    /**
+     * This method moves attendants that have been checked in from the check-in list to the
+     * check-out list.
+     *
+     * @param attendants specifies the attendants that have been checked in.
+     */
+    private void showCheckedIn(List<Attendant> attendants)
+    {
+        checkInList.clearSelection();
+        checkInListModel.removeAll(attendants);
+        checkOutListModel.addAll(attendants);
+    }   //showCheckedIn
 
-        if (checkOutList.getItemCount() > 0)
+    /**
+     * This method checks out the selected attendant. The lists are updated when the check-out
+     * event of the log arrives.
+     *
+     * @param attendant specifies the attendant to be checked out.
+     * @param timestamp specifies the check-out time.
+     */
+    public void checkOutAttendant(Attendant attendant, long timestamp)
+    {
+        if (attendant != null)
         {
-            checkOutList.setSelectedIndex(0);
+            parent.attendanceLog.checkOut(attendant, timestamp);
         }
-    }   //updateLists
+    }   //checkOutAttendant
 
     /**
-     * This method checks out all the attendants from the check-out list.
+     * This method checks out a group of attendants as a single transaction. Attendants already
+     * checked out by another input source are skipped. The lists are updated when the check-out
+     * event of the log arrives.
+     *
+     * @param attendants specifies the attendants to be checked out.
+     * @param timestamp specifies the check-out time.
      */
-    public void checkOutAll()
+    public void checkOutAttendants(List<Attendant> attendants, long timestamp)
     {
-        while (checkOutList.getItemCount() > 0)
+        parent.attendanceLog.checkOut(attendants, timestamp);
+    }   //checkOutAttendants
+
+    /**
+     * This method moves attendants that have been checked out from the check-out list back to
+     * the check-in list.
+     *
+     * @param attendants specifies the attendants that have been checked out.
+     */
+    private void showCheckedOut(List<Attendant> attendants)
+    {
+        checkOutList.clearSelection();
+        if (attendants.size() == checkOutListModel.getSize())
         {
-            checkOutAttendant(checkOutList.getItemAt(0), System.currentTimeMillis(), true);
+            //
+            // Everybody is checking out, no need to filter the list.
+            //
+            checkOutListModel.clear();
         }
-    }   //checkOutAll
+        else
+        {
+            checkOutListModel.removeAll(attendants);
+        }
+        checkInListModel.addAll(attendants);
+    }   //showCheckedOut
 
     /**
-     * This method checks in the selected attendant by moving the attendant from the check-in
-     * list to the check-out list and mark the log file as dirty. If sessionLog is true, it also
-     * writes a transaction entry to the session log.
+     * This method moves renamed attendants to their new sorted positions on the list they are on.
      *
-     * @param attendant specifies the attendant to be checked in.
-     * @param timestamp specifies the check-in time.
-     * @param logTransaction specifies true to log a transaction entry in the session log.
+     * @param attendants specifies the attendants that have been renamed or otherwise changed.
      */
-    public void checkInAttendant(Attendant attendant, long timestamp, boolean logTransaction)
+    private void showChanged(List<Attendant> attendants)
     {
-        if (attendant != null)
+        HashSet<Attendant> checkedIn = new HashSet<Attendant>(checkOutListModel.getElements());
+        ArrayList<Attendant> changedCheckedIn = new ArrayList<Attendant>();
+        ArrayList<Attendant> changedCheckedOut = new ArrayList<Attendant>();
+
+        for (Attendant attendant: attendants)
         {
-            if (logTransaction)
+            if (checkedIn.contains(attendant))
             {
-                parent.logTransaction(false, attendant, timestamp);
+                changedCheckedIn.add(attendant);
+            }
+            else
+            {
+                changedCheckedOut.add(attendant);
             }
-            attendant.checkIn(timestamp);
-            checkInList.removeItem(attendant);
-            checkOutList.addItem(attendant);
-            parent.attendanceLog.setFileDirty();
         }
-    }   //checkInAttendant
+
+        checkInList.clearSelection();
+        checkOutList.clearSelection();
+        checkInListModel.removeAll(changedCheckedOut);
+        checkOutListModel.removeAll(changedCheckedIn);
+        checkInListModel.addAll(changedCheckedOut);
+        checkOutListModel.addAll(changedCheckedIn);
+    }   //showChanged
 
     /**
-     * This method checks out the selected attendant by moving the attendant from the check-out
-     * list back to the check-in list and mark the log file as dirty. If sessionLog is true, it also
-     * writes a transaction entry to the session log.
+     * This method processes a badge scan. It toggles the attendant with the badge ID between
+     * checked in and checked out (see BadgeScanner). An unknown badge just beeps.
      *
-     * @param attendant specifies the attendant to be checked out.
-     * @param timestamp specifies the check-out time.
-     * @param logTransaction specifies true to log a transaction entry in the session log.
+     * @param id specifies the scanned badge ID.
+     * @param timestamp specifies the scan time.
      */
-    public void checkOutAttendant(Attendant attendant, long timestamp, boolean logTransaction)
+    public void processScan(String id, long timestamp)
     {
-        if (attendant != null)
+        if (badgeScanner == null || badgeScanner.getLog() != parent.attendanceLog)
         {
-            if (logTransaction)
-            {
-                parent.logTransaction(true, attendant, timestamp);
-            }
-            attendant.checkOut(timestamp);
-            checkOutList.removeItem(attendant);
-            checkInList.addItem(attendant);
-            parent.attendanceLog.setFileDirty();
+            badgeScanner = new BadgeScanner(parent.attendanceLog, BadgeScanner.DEFAULT_DEBOUNCE_MILLIS);
         }
-    }   //checkOutAttendant
+
+        if (!badgeScanner.processScan(id, timestamp))
+        {
+            Toolkit.getDefaultToolkit().beep();
+        }
+    }   //processScan
+
+    //
+    // Implements AttendanceLogListener interface.
+    //
+
+    /**
+     * This method is called on the log's dispatcher thread with the events of the log, whichever
+     * input source caused them. The lists are updated on the UI thread, once for the whole batch
+     * of events.
+     *
+     * @param log specifies the AttendanceLog.
+     * @param events specifies the events.
+     */
+    @Override
+    public void onLogEvents(final AttendanceLog log, final List<AttendanceLogEvent> events)
+    {
+        EventQueue.invokeLater(
+                new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        //
+                        // Skip the events if the log file has been closed in the meantime.
+                        //
+                        if (parent.attendanceLog != log)
+                        {
+                            return;
+                        }
+
+                        for (AttendanceLogEvent event: events)
+                        {
+                            switch (event.getType())
+                            {
+                                case CHECK_IN:
+                                    showCheckedIn(event.getAttendants());
+                                    break;
+
+                                case CHECK_OUT:
+                                    showCheckedOut(event.getAttendants());
+                                    break;
+
+                                case ATTENDANTS_ADDED:
+                                    checkInListModel.addAll(event.getAttendants());
+                                    break;
+
+                                case ATTENDANTS_REMOVED:
+                                    checkInList.clearSelection();
+                                    checkOutList.clearSelection();
+                                    checkInListModel.removeAll(event.getAttendants());
+                                    checkOutListModel.removeAll(event.getAttendants());
+                                    break;
+
+                                case ATTENDANTS_CHANGED:
+                                    showChanged(event.getAttendants());
+                                    break;
+
+                                default:
+                                    break;
+                            }
+                        }
+                        parent.statusPane.refresh();
+                    }
+                });
+    }   //onLogEvents
 
     //
     // Implements ActionListener interface.
@@ -320,11 +670,17 @@ public class AttendancePane implements ActionListener
 
         if (source == checkInButton)
         {
-            checkInAttendant((Attendant)checkInList.getSelectedItem(), System.currentTimeMillis(), true);
+            checkInAttendants(checkInList.getSelectedValuesList(), System.currentTimeMillis());
         }
         else if (source == checkOutButton)
         {
-            checkOutAttendant((Attendant)checkOutList.getSelectedItem(), System.currentTimeMillis(), true);
+            checkOutAttendants(checkOutList.getSelectedValuesList(), System.currentTimeMillis());
+        }
+        else if (source == scanField)
+        {
+            String id = scanField.getText().trim();
+            scanField.setText("");
+            processScan(id, System.currentTimeMillis());
         }
     }   //actionPerformed
 
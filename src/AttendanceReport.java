@@ -0,0 +1,387 @@
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.*;
+import java.util.*;
+
+import attendance.AttendanceLog;
+import attendance.Attendant;
+import attendance.EligibilityService;
+import attendance.LogDirectoryIndex;
+import attendance.MeetingTypeBreakdown;
+import attendance.Rollup;
+import attendance.Session;
+
+/**
+ * This class implements the command line report of the Attendance Logger program. It loads one
+ * or more log files and prints the total hours and number of sessions attended by each attendant
+ * in CSV format. If a minimum number of hours is specified, it also reports whether each
+ * attendant is eligible. It doesn't use any UI so it can run without a display, e.g.
+ *  java -jar TrcAttendance.jar report log=Frc2016Attendance.csv log=Frc2017Attendance.csv minHours=60
+ *  where the parameters are:
+ *  log=<LogFileName>   - specifies a log file to be included in the report, can be repeated.
+ *  dir=<Folder>        - specifies a folder whose log files (*.csv) are all included in the
+ *                        report, can be repeated. The summaries of the log files are cached in
+ *                        the folder so only the log files changed since the last report are
+ *                        parsed again.
+ *  minHours=<Hours>    - optionally specifies the minimum hours for eligibility.
+ *  cutoff=<Date>       - optionally specifies the last meeting date (MM/dd/yyyy) to be included.
+ *  byType=yes          - optionally adds the hours of each meeting type (Mechanical,
+ *                        Programming, ...) to the report.
+ *  trend=week|month    - optionally reports the hours of each attendant per ISO week or per
+ *                        month instead of the totals. It cannot be combined with cutoff.
+ *  out=<CsvFileName>   - optionally specifies the file to write the report to instead of the
+ *                        console.
+ */
+public class AttendanceReport
+{
+    /**
+     * This class accumulates the attendance totals of an attendant across log files.
+     */
+    private static class Total
+    {
+        long minutes = 0;
+        int numSessions = 0;
+        TreeMap<Integer, Long> trend = new TreeMap<Integer, Long>();
+        long[] typeMinutes = new long[Session.meetingTypes.length];
+    }   //class Total
+
+    private static final String INDEX_CACHE_FILE_NAME = ".TrcAttendanceIndex";
+
+    private ArrayList<File> logFiles = new ArrayList<File>();
+    private ArrayList<File> folders = new ArrayList<File>();
+    private double minHours = -1.0;
+    private long cutoffDay = Long.MAX_VALUE;
+    private Rollup.Period trendPeriod = null;
+    private boolean byType = false;
+    private File outFile = null;
+    private TreeMap<String, Total> totals = new TreeMap<String, Total>();
+
+    /**
+     * This is the entry point of the report. It is also called by the main method of the
+     * program when the first command line parameter is "report".
+     *
+     * @param args specifies the command line parameters.
+     */
+    public static void main(String[] args)
+    {
+        System.setProperty("java.awt.headless", "true");
+
+        try
+        {
+            AttendanceReport report = new AttendanceReport(args);
+            report.run();
+        }
+        catch (IllegalArgumentException | IOException e)
+        {
+            System.err.println("AttendanceReport: " + e.getMessage());
+            System.exit(1);
+        }
+    }   //main
+
+    /**
+     * Constructor: Create an instance of the object.
+     *
+     * @param args specifies the command line parameters.
+     * @throws IllegalArgumentException if the parameters are invalid.
+     */
+    public AttendanceReport(String[] args)
+    {
+        for (int i = 0; i < args.length; i++)
+        {
+            String[] fields = args[i].trim().split("=");
+            if (fields.length == 2)
+            {
+                if (fields[0].equalsIgnoreCase("log"))
+                {
+                    logFiles.add(new File(fields[1]));
+                }
+                else if (fields[0].equalsIgnoreCase("dir"))
+                {
+                    folders.add(new File(fields[1]));
+                }
+                else if (fields[0].equalsIgnoreCase("minHours"))
+                {
+                    minHours = Double.parseDouble(fields[1]);
+                }
+                else if (fields[0].equalsIgnoreCase("cutoff"))
+                {
+                    cutoffDay = Session.parseDate(fields[1]);
+                    if (cutoffDay == Session.INVALID_DATE)
+                    {
+                        throw new IllegalArgumentException("Invalid cutoff date \"" + fields[1] + "\".");
+                    }
+                }
+                else if (fields[0].equalsIgnoreCase("byType"))
+                {
+                    byType = fields[1].equalsIgnoreCase("yes") || fields[1].equalsIgnoreCase("true");
+                }
+                else if (fields[0].equalsIgnoreCase("trend"))
+                {
+                    if (fields[1].equalsIgnoreCase("week"))
+                    {
+                        trendPeriod = Rollup.Period.WEEK;
+                    }
+                    else if (fields[1].equalsIgnoreCase("month"))
+                    {
+                        trendPeriod = Rollup.Period.MONTH;
+                    }
+                    else
+                    {
+                        throw new IllegalArgumentException("Invalid trend period \"" + fields[1] + "\".");
+                    }
+                }
+                else if (fields[0].equalsIgnoreCase("out"))
+                {
+                    outFile = new File(fields[1]);
+                }
+                else
+                {
+                    throw new IllegalArgumentException(
+                            "Invalid command line parameter \"" + fields[0] + "\".");
+                }
+            }
+            else
+            {
+                throw new IllegalArgumentException(
+                        "Invalid command line syntax \"" + args[i] + "\".");
+            }
+        }
+
+        if (logFiles.isEmpty() && folders.isEmpty())
+        {
+            throw new IllegalArgumentException("No log file specified (log=<LogFileName> or dir=<Folder>).");
+        }
+
+        if (trendPeriod != null && cutoffDay != Long.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("trend cannot be combined with cutoff.");
+        }
+    }   //AttendanceReport
+
+    /**
+     * This method loads each log file in turn, accumulates the totals of its attendants and
+     * writes the report. Only one log file is held in memory at a time.
+     *
+     * @throws IOException if a log file cannot be read or the report cannot be written.
+     */
+    public void run() throws IOException
+    {
+        for (File folder: folders)
+        {
+            addFolder(folder);
+        }
+
+        for (File file: logFiles)
+        {
+            AttendanceLog log;
+            try
+            {
+                log = new AttendanceLog(file, false);
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new IOException(String.format("Invalid data format in %s (%s).", file, e.getMessage()));
+            }
+            addLog(log);
+        }
+
+        PrintStream output = outFile != null?
+                new PrintStream(new BufferedOutputStream(new FileOutputStream(outFile))): System.out;
+        writeReport(output);
+        if (output != System.out)
+        {
+            output.close();
+        }
+        else
+        {
+            output.flush();
+        }
+    }   //run
+
+    /**
+     * This method accumulates the totals of all attendants of the log files in the specified
+     * folder. The totals come from the folder index unless there is a cutoff date, a trend
+     * report or a meeting type breakdown, in which case the log files are loaded one by one like the ones specified with log=.
+     *
+     * @param folder specifies the folder.
+     * @throws IOException if the folder index cache cannot be written.
+     */
+    private void addFolder(File folder) throws IOException
+    {
+        if (!folder.isDirectory())
+        {
+            throw new IOException(String.format("%s is not a folder.", folder));
+        }
+
+        LogDirectoryIndex index = new LogDirectoryIndex(folder, new File(folder, INDEX_CACHE_FILE_NAME));
+        index.refresh();
+        for (Map.Entry<String, String> entry: index.getInvalidFiles().entrySet())
+        {
+            System.err.printf("Skipping %s (%s).\n", entry.getKey(), entry.getValue());
+        }
+
+        if (cutoffDay != Long.MAX_VALUE || trendPeriod != null || byType)
+        {
+            for (LogDirectoryIndex.LogSummary summary: index.getSummaries())
+            {
+                logFiles.add(new File(summary.getPath()));
+            }
+        }
+        else
+        {
+            for (Map.Entry<String, long[]> entry: index.getTotals().entrySet())
+            {
+                Total total = getTotal(entry.getKey());
+                total.minutes += entry.getValue()[0];
+                total.numSessions += (int)entry.getValue()[1];
+            }
+        }
+    }   //addFolder
+
+    /**
+     * This method returns the totals of the attendant with the specified name, creating them
+     * if the attendant is new to the report.
+     *
+     * @param name specifies the attendant name.
+     * @return totals of the attendant.
+     */
+    private Total getTotal(String name)
+    {
+        Total total = totals.get(name);
+        if (total == null)
+        {
+            total = new Total();
+            totals.put(name, total);
+        }
+
+        return total;
+    }   //getTotal
+
+    /**
+     * This method accumulates the totals of all attendants of the specified log.
+     *
+     * @param log specifies the attendance log.
+     */
+    private void addLog(AttendanceLog log)
+    {
+        int numAttendants = log.getNumAttendants();
+        EligibilityService eligibility = cutoffDay != Long.MAX_VALUE? new EligibilityService(log): null;
+        MeetingTypeBreakdown breakdown = byType? new MeetingTypeBreakdown(log, cutoffDay): null;
+
+        for (int i = 0; i < numAttendants; i++)
+        {
+            Attendant attendant = log.getAttendant(i);
+            Total total = getTotal(attendant.toString());
+            if (eligibility != null)
+            {
+                total.minutes += eligibility.getMinutes(attendant, cutoffDay);
+                total.numSessions += eligibility.getSessionsAttended(attendant, cutoffDay);
+            }
+            else
+            {
+                total.minutes += attendant.getTotalMinutes();
+                total.numSessions += attendant.getNumSessionsAttended();
+            }
+
+            if (breakdown != null)
+            {
+                for (int type = 0; type < total.typeMinutes.length; type++)
+                {
+                    total.typeMinutes[type] += breakdown.getMinutes(i, type);
+                }
+            }
+
+            if (trendPeriod != null)
+            {
+                Rollup rollup = trendPeriod == Rollup.Period.WEEK? log.getWeeklyRollup(): log.getMonthlyRollup();
+                for (Map.Entry<Integer, Long> bucket: rollup.getMinutes(attendant).entrySet())
+                {
+                    Long minutes = total.trend.get(bucket.getKey());
+                    total.trend.put(bucket.getKey(), minutes != null? minutes + bucket.getValue(): bucket.getValue());
+                }
+            }
+        }
+    }   //addLog
+
+    /**
+     * This method writes the report in CSV format, one line per attendant sorted by name.
+     *
+     * @param output specifies the output stream.
+     */
+    private void writeReport(PrintStream output)
+    {
+        if (trendPeriod != null)
+        {
+            writeTrendReport(output);
+            return;
+        }
+
+        output.print("Name,Hours,Sessions");
+        if (byType)
+        {
+            for (int type = 0; type < Session.meetingTypes.length; type++)
+            {
+                output.print("," + Session.meetingTypes[type]);
+            }
+        }
+        output.println(minHours >= 0.0? ",Eligible": "");
+        for (Map.Entry<String, Total> entry: totals.entrySet())
+        {
+            Total total = entry.getValue();
+            double hours = total.minutes/60.0;
+
+            output.printf("\"%s\",%.2f,%d", entry.getKey().replace("\"", "\"\""), hours, total.numSessions);
+            if (byType)
+            {
+                for (int type = 0; type < total.typeMinutes.length; type++)
+                {
+                    output.printf(",%.2f", total.typeMinutes[type]/60.0);
+                }
+            }
+            output.println(minHours >= 0.0? (hours >= minHours? ",Yes": ",No"): "");
+        }
+    }   //writeReport
+
+    /**
+     * This method writes the trend report in CSV format, one line per attendant per week or
+     * month attended, sorted by name and then by time.
+     *
+     * @param output specifies the output stream.
+     */
+    private void writeTrendReport(PrintStream output)
+    {
+        boolean weekly = trendPeriod == Rollup.Period.WEEK;
+
+        output.println(weekly? "Name,Week,Hours": "Name,Month,Hours");
+        for (Map.Entry<String, Total> entry: totals.entrySet())
+        {
+            String name = entry.getKey().replace("\"", "\"\"");
+            for (Map.Entry<Integer, Long> bucket: entry.getValue().trend.entrySet())
+            {
+                output.printf(weekly? "\"%s\",%d-W%02d,%.2f\n": "\"%s\",%d-%02d,%.2f\n",
+                        name, bucket.getKey()/100, bucket.getKey()%100, bucket.getValue()/60.0);
+            }
+        }
+    }   //writeTrendReport
+
+}   //class AttendanceReport
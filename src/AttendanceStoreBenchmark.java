@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.*;
+import java.util.*;
+
+import attendance.AttendanceStore;
+import attendance.LogData;
+
+/**
+ * This class implements the command line benchmark of the log stores (see AttendanceStore). It
+ * loads a log once, then saves it to and loads it back from each store on identical data and
+ * reports the average and best time of a save and a load, the size of the saved file and whether
+ * the loaded data matches the original, e.g. to pick the fastest store for a deployment. The
+ * stores write temporary files; the log itself is never written.
+ *  java -jar TrcAttendance.jar storebench log=Frc2016Attendance.csv rounds=50
+ *  where the parameters are:
+ *  log=<LogFileName>       - specifies the log file.
+ *  from=<StoreType>        - optionally specifies the store type of the log file, the default is
+ *                            csv.
+ *  stores=<StoreTypes>     - optionally specifies the stores to benchmark separated by "/", the
+ *                            default is csv/binary/memory.
+ *  rounds=<Count>          - optionally specifies the number of timed saves and loads of each
+ *                            store, the default is 20.
+ */
+public class AttendanceStoreBenchmark
+{
+    private static final int WARMUP_ROUNDS = 5;
+
+    /**
+     * This is the entry point of the benchmark. It is also called by the main method of the
+     * program when the first command line parameter is "storebench".
+     *
+     * @param args specifies the command line parameters.
+     */
+    public static void main(String[] args)
+    {
+        System.setProperty("java.awt.headless", "true");
+
+        File logFile = null;
+        String fromType = "csv";
+        String[] storeTypes = {"csv", "binary", "memory"};
+        int numRounds = 20;
+
+        try
+        {
+            for (int i = 0; i < args.length; i++)
+            {
+                String[] fields = args[i].trim().split("=");
+                if (fields.length == 2)
+                {
+                    if (fields[0].equalsIgnoreCase("log"))
+                    {
+                        logFile = new File(fields[1]);
+                    }
+                    else if (fields[0].equalsIgnoreCase("from"))
+                    {
+                        fromType = fields[1];
+                    }
+                    else if (fields[0].equalsIgnoreCase("stores"))
+                    {
+                        storeTypes = fields[1].split("/");
+                    }
+                    else if (fields[0].equalsIgnoreCase("rounds"))
+                    {
+                        numRounds = Integer.parseInt(fields[1]);
+                        if (numRounds < 1)
+                        {
+                            throw new IllegalArgumentException("rounds must be at least 1.");
+                        }
+                    }
+                    else
+                    {
+                        throw new IllegalArgumentException(
+                                "Invalid command line parameter \"" + fields[0] + "\".");
+                    }
+                }
+                else
+                {
+                    throw new IllegalArgumentException(
+                            "Invalid command line syntax \"" + args[i] + "\".");
+                }
+            }
+
+            if (logFile == null)
+            {
+                throw new IllegalArgumentException("Missing log=<LogFileName>.");
+            }
+
+            LogData data = AttendanceStore.create(fromType, logFile).load();
+            System.out.printf("%s: %d attendants, %d sessions, %d rounds\n",
+                    logFile, data.getNames().size(), data.getSessions().size(), numRounds);
+            System.out.printf("%-8s %10s %10s %10s %10s %10s %s\n",
+                    "Store", "Save(ms)", "BestSave", "Load(ms)", "BestLoad", "Size(KB)", "Verified");
+            for (String storeType: storeTypes)
+            {
+                runBenchmark(storeType, data, numRounds);
+            }
+        }
+        catch (IllegalArgumentException | IOException e)
+        {
+            System.err.println("AttendanceStoreBenchmark: " + e.getMessage());
+            System.exit(1);
+        }
+    }   //main
+
+    /**
+     * This method benchmarks a store and prints the results. The first saves and loads are not
+     * timed to let the JIT compile the store.
+     *
+     * @param storeType specifies the store type.
+     * @param data specifies the log data to save and load.
+     * @param numRounds specifies the number of timed saves and loads.
+     * @throws IOException if the store cannot save or load the data.
+     * @throws IllegalArgumentException if the store type is unknown.
+     */
+    private static void runBenchmark(String storeType, LogData data, int numRounds)
+        throws IOException, IllegalArgumentException
+    {
+        File file = File.createTempFile("StoreBench", "." + storeType);
+        //
+        // A memory store would be filled from an existing file.
+        //
+        file.delete();
+        try
+        {
+            AttendanceStore store = AttendanceStore.create(storeType, file);
+            LogData loaded = null;
+            long saveNanos = 0, bestSaveNanos = Long.MAX_VALUE;
+            long loadNanos = 0, bestLoadNanos = Long.MAX_VALUE;
+
+            for (int i = -WARMUP_ROUNDS; i < numRounds; i++)
+            {
+                long startTime = System.nanoTime();
+                store.save(data);
+                long saveTime = System.nanoTime() - startTime;
+
+                startTime = System.nanoTime();
+                loaded = store.load();
+                long loadTime = System.nanoTime() - startTime;
+
+                if (i >= 0)
+                {
+                    saveNanos += saveTime;
+                    bestSaveNanos = Math.min(bestSaveNanos, saveTime);
+                    loadNanos += loadTime;
+                    bestLoadNanos = Math.min(bestLoadNanos, loadTime);
+                }
+            }
+
+            System.out.printf("%-8s %10.3f %10.3f %10.3f %10.3f %10s %s\n",
+                    storeType, saveNanos/1000000.0/numRounds, bestSaveNanos/1000000.0,
+                    loadNanos/1000000.0/numRounds, bestLoadNanos/1000000.0,
+                    file.exists()? String.format("%.1f", file.length()/1024.0): "-",
+                    isSameData(data, loaded)? "yes": "NO");
+        }
+        finally
+        {
+            file.delete();
+        }
+    }   //runBenchmark
+
+    /**
+     * This method checks if two log data have the same attendants, badge IDs, sessions and
+     * minutes.
+     *
+     * @param data1 specifies the first log data.
+     * @param data2 specifies the second log data.
+     * @return true if they are the same, false otherwise.
+     */
+    private static boolean isSameData(LogData data1, LogData data2)
+    {
+        boolean same = data1.getNames().equals(data2.getNames()) &&
+                       data1.getIds().equals(data2.getIds()) &&
+                       data1.getSessions().size() == data2.getSessions().size();
+
+        for (int i = 0; same && i < data1.getSessions().size(); i++)
+        {
+            same = Arrays.equals(data1.getSessions().get(i), data2.getSessions().get(i)) &&
+                   Arrays.equals(data1.getMinutes().get(i), data2.getMinutes().get(i));
+        }
+
+        return same;
+    }   //isSameData
+
+}   //class AttendanceStoreBenchmark
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.*;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import attendance.AttendanceEvent;
+import attendance.EventStore;
+import attendance.OccupancyTimeline;
+import attendance.SessionJournal;
+
+/**
+ * This class implements the command line occupancy timeline of the Attendance Logger program. It
+ * reports how many attendants were present minute by minute, computed from the raw check-in and
+ * check-out events of session logs or of an event store. It doesn't use any UI so it can run
+ * without a display, e.g.
+ *  java -jar TrcAttendance.jar timeline events=Frc2016Attendance.events heatmap=yes
+ *  where the parameters are:
+ *  journal=<SessionLog>    - specifies a session log (e.g. TrcAttendance.SessionLog.txt) of a
+ *                            meeting, can be repeated.
+ *  events=<EventFolder>    - specifies an event store folder, every date in it is a meeting.
+ *  heatmap=yes             - optionally reports the average occupancy by day of the week and time
+ *                            of day over all meetings instead of each meeting minute by minute.
+ *  out=<CsvFileName>       - optionally specifies the file to write to instead of the console.
+ */
+public class AttendanceTimeline
+{
+    private static final String[] dayNames = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+
+    /**
+     * This is the entry point of the timeline. It is also called by the main method of the
+     * program when the first command line parameter is "timeline".
+     *
+     * @param args specifies the command line parameters.
+     */
+    public static void main(String[] args)
+    {
+        System.setProperty("java.awt.headless", "true");
+
+        ArrayList<File> journalFiles = new ArrayList<File>();
+        File eventFolder = null;
+        boolean heatmap = false;
+        File outFile = null;
+
+        try
+        {
+            for (int i = 0; i < args.length; i++)
+            {
+                String[] fields = args[i].trim().split("=");
+                if (fields.length == 2)
+                {
+                    if (fields[0].equalsIgnoreCase("journal"))
+                    {
+                        journalFiles.add(new File(fields[1]));
+                    }
+                    else if (fields[0].equalsIgnoreCase("events"))
+                    {
+                        eventFolder = new File(fields[1]);
+                        if (!eventFolder.isDirectory())
+                        {
+                            throw new IllegalArgumentException(eventFolder + " is not a folder.");
+                        }
+                    }
+                    else if (fields[0].equalsIgnoreCase("heatmap"))
+                    {
+                        heatmap = fields[1].equalsIgnoreCase("yes") || fields[1].equalsIgnoreCase("true");
+                    }
+                    else if (fields[0].equalsIgnoreCase("out"))
+                    {
+                        outFile = new File(fields[1]);
+                    }
+                    else
+                    {
+                        throw new IllegalArgumentException(
+                                "Invalid command line parameter \"" + fields[0] + "\".");
+                    }
+                }
+                else
+                {
+                    throw new IllegalArgumentException(
+                            "Invalid command line syntax \"" + args[i] + "\".");
+                }
+            }
+
+            if (journalFiles.isEmpty() && eventFolder == null)
+            {
+                throw new IllegalArgumentException(
+                        "No events to process (journal=<SessionLog> or events=<EventFolder>).");
+            }
+
+            List<List<AttendanceEvent>> meetings = new ArrayList<List<AttendanceEvent>>();
+            for (File file: journalFiles)
+            {
+                meetings.add(readJournal(file));
+            }
+            if (eventFolder != null)
+            {
+                EventStore eventStore = new EventStore(eventFolder);
+                meetings.addAll(OccupancyTimeline.groupByDate(
+                        eventStore.getEvents(Long.MIN_VALUE, Long.MAX_VALUE)));
+                eventStore.close();
+            }
+
+            List<OccupancyTimeline> timelines = OccupancyTimeline.computeAll(meetings);
+            PrintStream output = outFile != null? new PrintStream(outFile): System.out;
+            if (heatmap)
+            {
+                writeHeatmap(output, OccupancyTimeline.getWeeklyHeatmap(timelines));
+            }
+            else
+            {
+                writeTimelines(output, timelines);
+            }
+            output.flush();
+            if (outFile != null)
+            {
+                output.close();
+            }
+        }
+        catch (IllegalArgumentException | IOException e)
+        {
+            System.err.println("AttendanceTimeline: " + e.getMessage());
+            System.exit(1);
+        }
+    }   //main
+
+    /**
+     * This method reads all check-in and check-out events of a session log.
+     *
+     * @param file specifies the session log.
+     * @return events of the meeting.
+     * @throws IOException if the session log cannot be read.
+     */
+    private static List<AttendanceEvent> readJournal(File file) throws IOException
+    {
+        ArrayList<AttendanceEvent> events = new ArrayList<AttendanceEvent>();
+
+        try (SessionJournal.Reader journal = new SessionJournal.Reader(file))
+        {
+            List<AttendanceEvent> transaction;
+            while ((transaction = journal.readTransaction()) != null)
+            {
+                events.addAll(transaction);
+            }
+        }
+
+        return events;
+    }   //readJournal
+
+    /**
+     * This method writes the occupancy of each meeting minute by minute in CSV format.
+     *
+     * @param output specifies the stream to write to.
+     * @param timelines specifies the timelines of the meetings.
+     */
+    private static void writeTimelines(PrintStream output, List<OccupancyTimeline> timelines)
+    {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("MM/dd/yyyy");
+        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm");
+
+        output.println("Date,Time,Present");
+        for (OccupancyTimeline timeline: timelines)
+        {
+            for (int i = 0; i < timeline.getNumMinutes(); i++)
+            {
+                Date time = new Date(timeline.getTime(i));
+                output.printf("%s,%s,%d\n", dateFormat.format(time), timeFormat.format(time), timeline.getOccupancy(i));
+            }
+        }
+    }   //writeTimelines
+
+    /**
+     * This method writes the average occupancy by day of the week and time of day in CSV format.
+     * Minutes without any meeting are left out.
+     *
+     * @param output specifies the stream to write to.
+     * @param heatmap specifies the heatmap indexed by day of the week and minute of the day.
+     */
+    private static void writeHeatmap(PrintStream output, double[][] heatmap)
+    {
+        output.println("Day,Time,Average Present");
+        for (int day = 0; day < heatmap.length; day++)
+        {
+            for (int minute = 0; minute < heatmap[day].length; minute++)
+            {
+                if (heatmap[day][minute] > 0.0)
+                {
+                    output.printf("%s,%02d:%02d,%.2f\n", dayNames[day], minute/60, minute%60, heatmap[day][minute]);
+                }
+            }
+        }
+    }   //writeHeatmap
+
+}   //class AttendanceTimeline
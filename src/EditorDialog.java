@@ -21,36 +21,211 @@
  */
 
 import java.awt.*;
+import java.awt.datatransfer.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
 
 import attendance.AttendanceLog;
 import attendance.Attendant;
+import attendance.RosterDiff;
 
 /**
  * This class constructs an Editor dialog and populates it with the list of attendants allowing
  * the user to edit the list, adding or removing attendants. The Editor dialog contains an
- * editable TextArea, a Save button and a Cancel button. The TextArea is filled with names of
- * the attendants, one per line. The Save and Cancel buttons will close the Editor dialog. The
- * Save button will update the Attendants list with the edited list whereas the Cancel button
- * will discard the changes and leaves the attendant list unchanged.
+ * editable Table, Add/Delete/Paste buttons, a Save button and a Cancel button. The Table is
+ * filled with the names and badge IDs of the attendants, one per row. Names can be pasted in
+ * bulk from the clipboard, one per line, optionally followed by a tab and the badge ID (i.e.
+ * copied from two spreadsheet columns). The Save and Cancel buttons will close the Editor dialog.
+ * The Save button will update the Attendants list with the difference between the edited list
+ * and the Attendants list whereas the Cancel button will discard the changes and leaves the
+ * attendant list unchanged.
  */
 public class EditorDialog extends JDialog implements ActionListener
 {
     private static final long serialVersionUID = 1L;
 
+    /**
+     * This class implements the table model of the roster. Each row contains an attendant name
+     * and a badge ID. Rows are added in bulk with a single table event.
+     */
+    private class RosterTableModel extends AbstractTableModel
+    {
+        private static final long serialVersionUID = 1L;
+        private final String[] columnNames = {"Name", "Badge ID"};
+        private ArrayList<String[]> rows = new ArrayList<String[]>();
+
+        /**
+         * This method replaces all rows of the table.
+         *
+         * @param newRows specifies the new rows.
+         */
+        public void setRows(ArrayList<String[]> newRows)
+        {
+            rows = newRows;
+            fireTableDataChanged();
+        }   //setRows
+
+        /**
+         * This method appends rows to the table.
+         *
+         * @param newRows specifies the rows to be appended.
+         */
+        public void addRows(List<String[]> newRows)
+        {
+            if (!newRows.isEmpty())
+            {
+                int firstRow = rows.size();
+                rows.addAll(newRows);
+                fireTableRowsInserted(firstRow, rows.size() - 1);
+            }
+        }   //addRows
+
+        /**
+         * This method deletes the specified rows from the table.
+         *
+         * @param rowIndices specifies the indices of the rows to be deleted in ascending order.
+         */
+        public void deleteRows(int[] rowIndices)
+        {
+            if (rowIndices.length > 0)
+            {
+                ArrayList<String[]> remaining = new ArrayList<String[]>(rows.size());
+                int next = 0;
+
+                for (int i = 0; i < rows.size(); i++)
+                {
+                    if (next < rowIndices.length && rowIndices[next] == i)
+                    {
+                        next++;
+                    }
+                    else
+                    {
+                        remaining.add(rows.get(i));
+                    }
+                }
+                setRows(remaining);
+            }
+        }   //deleteRows
+
+        /**
+         * This method returns the values of the specified column of all rows.
+         *
+         * @param column specifies the column.
+         * @return list of column values.
+         */
+        public List<String> getColumn(int column)
+        {
+            ArrayList<String> values = new ArrayList<String>(rows.size());
+            for (int i = 0; i < rows.size(); i++)
+            {
+                values.add(rows.get(i)[column]);
+            }
+
+            return values;
+        }   //getColumn
+
+        //
+        // Implements TableModel interface.
+        //
+
+        @Override
+        public int getRowCount()
+        {
+            return rows.size();
+        }   //getRowCount
+
+        @Override
+        public int getColumnCount()
+        {
+            return columnNames.length;
+        }   //getColumnCount
+
+        @Override
+        public String getColumnName(int column)
+        {
+            return columnNames[column];
+        }   //getColumnName
+
+        @Override
+        public Object getValueAt(int row, int column)
+        {
+            return rows.get(row)[column];
+        }   //getValueAt
+
+        @Override
+        public boolean isCellEditable(int row, int column)
+        {
+            return true;
+        }   //isCellEditable
+
+        @Override
+        public void setValueAt(Object value, int row, int column)
+        {
+            rows.get(row)[column] = value != null? value.toString(): "";
+            fireTableCellUpdated(row, column);
+        }   //setValueAt
+
+    }   //class RosterTableModel
+
+    /**
+     * This class implements the TransferHandler that imports text pasted into the table as
+     * roster rows.
+     */
+    private class RosterTransferHandler extends TransferHandler
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public boolean canImport(TransferSupport support)
+        {
+            return support.isDataFlavorSupported(DataFlavor.stringFlavor);
+        }   //canImport
+
+        @Override
+        public boolean importData(TransferSupport support)
+        {
+            boolean success = false;
+
+            if (canImport(support))
+            {
+                try
+                {
+                    pasteRows((String)support.getTransferable().getTransferData(DataFlavor.stringFlavor));
+                    success = true;
+                }
+                catch (UnsupportedFlavorException | IOException e)
+                {
+                    //
+                    // Nothing to paste.
+                    //
+                }
+            }
+
+            return success;
+        }   //importData
+
+    }   //class RosterTransferHandler
+
     private TrcAttendance parent;
     //
-    // Text pane controls.
+    // Table pane controls.
     //
-    private JPanel textPane = new JPanel();
-    private JTextArea textArea = new JTextArea(20, 36);
+    private JPanel tablePane = new JPanel();
+    private RosterTableModel tableModel = new RosterTableModel();
+    private JTable table = new JTable(tableModel);
     //
     // Button pane controls.
     //
     private JPanel buttonPane = new JPanel();
-    private JLabel instructionsText = new JLabel("Enter new attendant names, one per line.");
+    private JLabel instructionsText = new JLabel("Edit attendant names and badge IDs.");
+    private JButton addButton = new JButton("Add");
+    private JButton deleteButton = new JButton("Delete");
+    private JButton pasteButton = new JButton("Paste");
     private JButton saveButton = new JButton("Save");
     private JButton cancelButton = new JButton("Cancel");
 
@@ -66,30 +241,46 @@ public class EditorDialog extends JDialog implements ActionListener
         super(parent.frame, title, modal);
         this.parent = parent;
         //
-        // Initialize the Text pane controls.
+        // Initialize the Table pane controls.
         //
-        textArea.setEditable(true);
-        textArea.setFont(parent.smallFont);
+        table.setFont(parent.smallFont);
+        table.getTableHeader().setFont(parent.smallFont);
+        table.setRowHeight(table.getFontMetrics(parent.smallFont).getHeight() + 4);
+        table.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        table.setTransferHandler(new RosterTransferHandler());
+        table.putClientProperty("terminateEditOnFocusLost", Boolean.TRUE);
+        table.getColumnModel().getColumn(0).setPreferredWidth(360);
+        table.getColumnModel().getColumn(1).setPreferredWidth(140);
+        table.setPreferredScrollableViewportSize(new Dimension(500, 20*table.getRowHeight()));
         JScrollPane scrollPane = new JScrollPane(
-                textArea,
+                table,
                 JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
                 JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
-        textPane.add(scrollPane);
+        tablePane.add(scrollPane);
         //
         // Initialize the Button pane controls.
         //
         instructionsText.setFont(parent.smallFont);
+        addButton.setFont(parent.smallFont);
+        addButton.addActionListener(this);
+        deleteButton.setFont(parent.smallFont);
+        deleteButton.addActionListener(this);
+        pasteButton.setFont(parent.smallFont);
+        pasteButton.addActionListener(this);
         saveButton.setFont(parent.smallFont);
         saveButton.addActionListener(this);
         cancelButton.setFont(parent.smallFont);
         cancelButton.addActionListener(this);
         buttonPane.add(instructionsText);
+        buttonPane.add(addButton);
+        buttonPane.add(deleteButton);
+        buttonPane.add(pasteButton);
         buttonPane.add(saveButton);
         buttonPane.add(cancelButton);
 
         Container contentPane = getContentPane();
         contentPane.setLayout(new BoxLayout(contentPane, BoxLayout.Y_AXIS));
-        contentPane.add(textPane);
+        contentPane.add(tablePane);
         contentPane.add(buttonPane);
 
         setDefaultCloseOperation(DISPOSE_ON_CLOSE);
@@ -97,13 +288,12 @@ public class EditorDialog extends JDialog implements ActionListener
         //
         // Determine the proper size of the dialog.
         //
-        setSize(textPane.getPreferredSize().width + 30,
-                textPane.getPreferredSize().height + buttonPane.getSize().height + 90);
+        pack();
     }   //EditorDialog
 
     /**
-     * This method opens the Editor dialog by populating it with all the attendant names from
-     * the AttendanceLog.
+     * This method opens the Editor dialog by populating it with all the attendant names and
+     * badge IDs from the AttendanceLog.
      *
      * @param log specifies the AttendanceLog object.
      */
@@ -112,13 +302,14 @@ public class EditorDialog extends JDialog implements ActionListener
         if (log != null)
         {
             int numAttendants = log.getNumAttendants();
+            ArrayList<String[]> rows = new ArrayList<String[]>(numAttendants);
 
-            textArea.setText("");
             for (int i = 0; i < numAttendants; i++)
             {
                 Attendant attendant = log.getAttendant(i);
-                textArea.append(attendant.toString() + "\n");
+                rows.add(new String[] {attendant.toString(), attendant.getId() != null? attendant.getId(): ""});
             }
+            tableModel.setRows(rows);
 
             //
             // Determines the location of the Editor dialog.
@@ -129,6 +320,29 @@ public class EditorDialog extends JDialog implements ActionListener
         }
     }   //open
 
+    /**
+     * This method appends the pasted text to the table. Each line is a row containing a name,
+     * optionally followed by a tab and a badge ID.
+     *
+     * @param text specifies the pasted text.
+     */
+    private void pasteRows(String text)
+    {
+        String[] lines = text.split("\r?\n");
+        ArrayList<String[]> rows = new ArrayList<String[]>(lines.length);
+
+        for (int i = 0; i < lines.length; i++)
+        {
+            String[] fields = lines[i].split("\t", -1);
+            String name = fields[0].trim();
+            if (name.length() > 0)
+            {
+                rows.add(new String[] {name, fields.length > 1? fields[1].trim(): ""});
+            }
+        }
+        tableModel.addRows(rows);
+    }   //pasteRows
+
     //
     // Implements ActionListener interface.
     //
@@ -143,14 +357,46 @@ public class EditorDialog extends JDialog implements ActionListener
     {
         Object source = event.getSource();
 
-        if (source == saveButton)
+        if (table.isEditing())
+        {
+            table.getCellEditor().stopCellEditing();
+        }
+
+        if (source == addButton)
+        {
+            //
+            // Add a blank row and start editing its name.
+            //
+            ArrayList<String[]> rows = new ArrayList<String[]>();
+            rows.add(new String[] {"", ""});
+            tableModel.addRows(rows);
+            int row = tableModel.getRowCount() - 1;
+            table.scrollRectToVisible(table.getCellRect(row, 0, true));
+            table.editCellAt(row, 0);
+        }
+        else if (source == deleteButton)
+        {
+            tableModel.deleteRows(table.getSelectedRows());
+        }
+        else if (source == pasteButton)
+        {
+            try
+            {
+                Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
+                pasteRows((String)clipboard.getData(DataFlavor.stringFlavor));
+            }
+            catch (UnsupportedFlavorException | IOException | IllegalStateException e)
+            {
+                Toolkit.getDefaultToolkit().beep();
+            }
+        }
+        else if (source == saveButton)
         {
             //
-            // Close the Editor and save the changes.
+            // Close the Editor and apply the changes.
             //
-            String[] attendants = textArea.getText().split("\n");
-            parent.attendanceLog.updateAttendants(attendants);
-            parent.attendancePane.updateLists(parent.attendanceLog);
+            RosterDiff diff = new RosterDiff(parent.attendanceLog, tableModel.getColumn(0), tableModel.getColumn(1));
+            parent.attendanceLog.updateAttendants(diff);
             setVisible(false);
         }
         else if (source == cancelButton)
@@ -29,6 +29,8 @@ import javax.swing.*;
 import javax.swing.border.TitledBorder;
 import javax.swing.text.*;
 
+import attendance.Session;
+
 /**
  * This class constructs the Meeting pane. It contains the meeting info such as meeting type,
  * meeting date, start time, end time and meeting place.
@@ -45,6 +47,11 @@ public class MeetingPane implements ActionListener
     private JCheckBox programmingCheckBox = new JCheckBox("Programming", false);
     private JCheckBox driveCheckBox = new JCheckBox("Drive", false);
     private JCheckBox otherCheckBox = new JCheckBox("Other", false);
+    //
+    // Meeting type check boxes in the order of Session.meetingTypes.
+    //
+    private JCheckBox[] meetingTypeCheckBoxes =
+            {mechanicalCheckBox, programmingCheckBox, driveCheckBox, otherCheckBox};
 
     //
     // Meeting date.
@@ -272,10 +279,12 @@ public class MeetingPane implements ActionListener
     /**
      * This method auto fills in the meeting date/time/place with default values. Default date
      * is TODAY. Default start time is the current time rounded to the nearest half hour. Default
-     * end time is 2 hours from the start time. Default place is the place specified in the
-     * command line parameter if one is provided. It's null otherwise.
+     * end time is 2 hours from the start time.
+     *
+     * @param placeName specifies the default place, e.g. the place specified in the command line
+     *                  parameter.
      */
-    public void setDefaultDateTimePlace()
+    public void setDefaultDateTimePlace(String placeName)
     {
         DateFormat dateFormat = new SimpleDateFormat("MM/dd/yyyy");
         date.setText(dateFormat.format(Calendar.getInstance().getTime()));
@@ -302,7 +311,7 @@ public class MeetingPane implements ActionListener
         getSpinnerTextField(endTimeHour).setValue((hour + 2)%24);
         getSpinnerTextField(endTimeMinute).setValue(minute);
 
-        place.setText(TrcAttendance.placeName);
+        place.setText(placeName);
     }   //setDefaultDateTimePlace
 
     /**
@@ -329,24 +338,12 @@ public class MeetingPane implements ActionListener
 
         place.setText(placeText);
 
-        String[] types = meetingTypes.split("/");
-        for (int i = 0; i < types.length; i++)
+        int meetingTypeMask = Session.parseMeetingTypes(meetingTypes);
+        for (int i = 0; i < meetingTypeCheckBoxes.length; i++)
         {
-            if (types[i].equals("Mechanical"))
-            {
-                mechanicalCheckBox.setSelected(true);
-            }
-            else if (types[i].equals("Programming"))
-            {
-                programmingCheckBox.setSelected(true);
-            }
-            else if (types[i].equals("Drive"))
-            {
-                driveCheckBox.setSelected(true);
-            }
-            else
+            if ((meetingTypeMask & (1 << i)) != 0)
             {
-                otherCheckBox.setSelected(true);
+                meetingTypeCheckBoxes[i].setSelected(true);
             }
         }
     }   //setMeetingInfo
@@ -386,32 +383,18 @@ public class MeetingPane implements ActionListener
 
         if (source == createMeetingButton)
         {
-            String meeting = "";
-
-            if (mechanicalCheckBox.isSelected()) meeting += "Mechanical";
-
             //
             // Construct the meeting type string.
             //
-            if (programmingCheckBox.isSelected())
-            {
-                if (meeting.length() > 0) meeting += "/";
-                meeting += "Programming";
-            }
-
-            if (driveCheckBox.isSelected())
+            int meetingTypeMask = 0;
+            for (int i = 0; i < meetingTypeCheckBoxes.length; i++)
             {
-                if (meeting.length() > 0) meeting += "/";
-                meeting += "Drive";
+                if (meetingTypeCheckBoxes[i].isSelected())
+                {
+                    meetingTypeMask |= 1 << i;
+                }
             }
-
-            if (otherCheckBox.isSelected())
-            {
-                if (meeting.length() > 0) meeting += "/";
-                meeting += "Other";
-            }
-
-            if (meeting.length() == 0) meeting += "Other";
+            String meeting = Session.formatMeetingTypes(meetingTypeMask);
 
             //
             // Construct the start time and end time strings.
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.awt.event.*;
+
+import javax.swing.*;
+import javax.swing.border.TitledBorder;
+
+import java.util.List;
+
+import attendance.Leaderboard;
+import attendance.OccupancyTracker;
+
+/**
+ * This class constructs the Status pane. It shows the live occupancy of the meeting session:
+ * the number of attendants present, the peak number present, the total person-hours so far
+ * and the number of recent arrivals. The numbers are read from the occupancy counters on a
+ * timer, so refreshing the pane never scans the attendants list. It also shows the top attendants
+ * by total hours, which are picked from the maintained totals with a bounded heap.
+ */
+public class StatusPane implements ActionListener
+{
+    private static final int REFRESH_INTERVAL_MILLIS = 5000;
+    private static final int NUM_LEADERS = 5;
+
+    private TrcAttendance parent;
+    private JPanel panel = new JPanel();
+    private JLabel presentLabel = new JLabel();
+    private JLabel peakLabel = new JLabel();
+    private JLabel personHoursLabel = new JLabel();
+    private JLabel arrivalsLabel = new JLabel();
+    private JLabel leadersLabel = new JLabel();
+    private Leaderboard leaderboard = null;
+    private Timer refreshTimer = new Timer(REFRESH_INTERVAL_MILLIS, this);
+
+    /**
+     * Constructor: Create an instance of the object.
+     *
+     * @param parent specifies the parent object.
+     */
+    public StatusPane(TrcAttendance parent)
+    {
+        this.parent = parent;
+        //
+        // Initialize group panel.
+        //
+        panel.setBorder(BorderFactory.createTitledBorder("Status"));
+        ((TitledBorder)panel.getBorder()).setTitleFont(parent.smallFont);
+        presentLabel.setFont(parent.smallFont);
+        peakLabel.setFont(parent.smallFont);
+        personHoursLabel.setFont(parent.smallFont);
+        arrivalsLabel.setFont(parent.smallFont);
+        leadersLabel.setFont(parent.smallFont);
+
+        //
+        // Initialize component layout.
+        //
+        GroupLayout layout = new GroupLayout(panel);
+        panel.setLayout(layout);
+        layout.setAutoCreateGaps(true);;
+        layout.setAutoCreateContainerGaps(true);
+        layout.setHorizontalGroup(
+            layout.createParallelGroup()
+                .addGroup(layout.createSequentialGroup()
+                    .addComponent(presentLabel)
+                    .addGap(0, 20, Short.MAX_VALUE)
+                    .addComponent(peakLabel)
+                    .addGap(0, 20, Short.MAX_VALUE)
+                    .addComponent(personHoursLabel)
+                    .addGap(0, 20, Short.MAX_VALUE)
+                    .addComponent(arrivalsLabel))
+                .addComponent(leadersLabel));
+        layout.setVerticalGroup(
+            layout.createSequentialGroup()
+                .addGroup(layout.createParallelGroup(GroupLayout.Alignment.BASELINE)
+                    .addComponent(presentLabel)
+                    .addComponent(peakLabel)
+                    .addComponent(personHoursLabel)
+                    .addComponent(arrivalsLabel))
+                .addComponent(leadersLabel));
+
+        parent.frame.add(panel);
+        clearPanel();
+    }   //StatusPane
+
+    /**
+     * This method clears the status and stops refreshing it.
+     */
+    public void clearPanel()
+    {
+        refreshTimer.stop();
+        presentLabel.setText("Present: -");
+        peakLabel.setText("Peak: -");
+        personHoursLabel.setText("Person-hours: -");
+        arrivalsLabel.setText("Arrivals: -");
+        leadersLabel.setText("Top hours: -");
+        leaderboard = null;
+    }   //clearPanel
+
+    /**
+     * This method starts refreshing the status periodically.
+     */
+    public void start()
+    {
+        refresh();
+        refreshTimer.start();
+    }   //start
+
+    /**
+     * This method updates the status from the occupancy counters.
+     */
+    public void refresh()
+    {
+        OccupancyTracker tracker = parent.occupancyTracker;
+        long now = System.currentTimeMillis();
+
+        presentLabel.setText("Present: " + tracker.getNumPresent());
+        peakLabel.setText("Peak: " + tracker.getPeakPresent());
+        personHoursLabel.setText(String.format("Person-hours: %.1f", tracker.getPersonMinutes(now)/60.0));
+        arrivalsLabel.setText(String.format(
+                "Arrivals (%d min): %d", tracker.getWindowMinutes(), tracker.getRecentArrivals(now)));
+
+        if (parent.attendanceLog != null)
+        {
+            if (leaderboard == null || leaderboard.getLog() != parent.attendanceLog)
+            {
+                leaderboard = new Leaderboard(parent.attendanceLog);
+            }
+
+            List<Leaderboard.Standing> leaders = leaderboard.getTopAttendants(NUM_LEADERS);
+            StringBuilder text = new StringBuilder("Top hours:");
+            for (int i = 0; i < leaders.size(); i++)
+            {
+                text.append(i == 0? " ": ", ").append(i + 1).append(". ").append(leaders.get(i));
+            }
+            leadersLabel.setText(leaders.isEmpty()? "Top hours: -": text.toString());
+        }
+    }   //refresh
+
+    //
+    // Implements ActionListener interface.
+    //
+
+    /**
+     * This method is called when the refresh timer expires.
+     *
+     * @param event specifies the event that caused this callback.
+     */
+    @Override
+    public void actionPerformed(ActionEvent event)
+    {
+        refresh();
+    }   //actionPerformed
+
+}   //class StatusPane
@@ -23,13 +23,32 @@
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
-import java.util.Scanner;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
+import attendance.AttendanceEvent;
 import attendance.AttendanceLog;
+import attendance.AttendanceLogEvent;
+import attendance.AttendanceLogListener;
+import attendance.AttendanceServer;
+import attendance.AttendanceStore;
 import attendance.Attendant;
+import attendance.CsvAttendanceStore;
+import attendance.EventStore;
+import attendance.LogCache;
+import attendance.LogFileChanges;
+import attendance.LogFileWatcher;
+import attendance.OccupancyTracker;
+import attendance.Session;
+import attendance.SessionJournal;
+import attendance.SingleInstance;
 
 /**
  * This is the main class of the Attendance Logger program. It contains the main method.
@@ -37,12 +56,17 @@ import attendance.Attendant;
  * it is recommended to compile this program to a jar file and put it into the same folder
  * where the log data files are stored. On the Windows desktop, it is recommended to create
  * a shortcut that contains the following line in the "Target:" field:
- *  java -jar TrcAttendance.jar log=<LogFileName> place=<MeetingPlace>
+ *  java -jar TrcAttendance.jar log=<LogFileName> place=<MeetingPlace> [port=<ServerPort>] [host=<HostAddress>]
  *  where:
  *  <LogFileName>   - The file name of the log data (e.g. Frc2016Attendance.csv). The log data
  *                    is in the format of an Excel CSV (text file with fields separated by
  *                    commas).
  *  <MeetingPlace>  - Specifies the default meeting place. 
+ *  <ServerPort>    - Optionally starts the check-in server on this port so that a phone or a
+ *                    second kiosk can check attendants in and out (see AttendanceServer).
+ *  <HostAddress>   - Optionally specifies the address the check-in server listens on, e.g.
+ *                    0.0.0.0 for every network interface. By default the server only takes
+ *                    requests from this computer since the API has no authentication.
  *
  * The parameters are optional. By specifying them, the program will start with the correct
  * log file opened and the meeting place filled in.
@@ -55,17 +79,35 @@ import attendance.Attendant;
  * we have both an FRC and FTC teams. We created two shortcuts "Frc2016Attendance" and
  * "Ftc2016Attendance" each has different parameters specifying a different log file and meeting
  * place.
+ *
+ * Several log files can also be open in one program, each in its own tab with its own meeting,
+ * session log and event store, e.g. by specifying log= once for each team. This saves starting
+ * and running one program per team. Only a few logs are kept loaded (see LogCache): the log of
+ * a tab not used for a while and without a meeting in progress is dropped and reloaded when its
+ * tab is selected again. The check-in server serves the meeting of the selected tab.
+ *
+ * Only one instance of the program runs at a time (see SingleInstance). Starting the program
+ * again, e.g. from the shortcut of another team, hands its log files and meeting place over to
+ * the running instance, which opens them in tabs or selects their tabs, and exits right away.
  */
-public class TrcAttendance extends JComponent implements WindowListener
+public class TrcAttendance extends JComponent
+    implements WindowListener, ChangeListener, LogCache.Listener, LogFileWatcher.Listener, SingleInstance.Listener
 {
     private static final long serialVersionUID = 1L;
     private static final String PROGRAM_TITLE = "Trc Attendance Logger";
     private static final String COPYRIGHT_MSG = "Copyright (c) Titan Robotics Club";
     private static final String PROGRAM_VERSION = "[version 1.1.0]";
-    private static final String SESSION_LOG_FILE_NAME = "SessionLog.txt";
+    private static final int ARRIVALS_WINDOW_MINUTES = 15;
+    private static final int SERVER_THREADS = 8;
+    private static final int MAX_LOADED_LOGS = 3;
 
-    public static String logFileName = null;
+    public static List<String> logFileNames = new ArrayList<String>();
     public static String placeName = "";
+    public static int serverPort = 0;
+    public static String serverHost = null;
+    public static String storeType = "csv";
+
+    private static SingleInstance singleInstance = null;
 
     public JFrame frame;
 
@@ -76,20 +118,157 @@ public class TrcAttendance extends JComponent implements WindowListener
     public MenuBar menuBar;
     public MeetingPane meetingPane;
     public AttendancePane attendancePane;
+    public StatusPane statusPane;
     public EditorDialog editorDialog;
     public AttendanceLog attendanceLog = null;
+    public OccupancyTracker occupancyTracker = new OccupancyTracker(ARRIVALS_WINDOW_MINUTES);
 
     private JFileChooser fileChooser = new JFileChooser();
+    private AttendanceServer attendanceServer = null;
+    private JTabbedPane teamTabs;
+    private ArrayList<Team> teams = new ArrayList<Team>();
+    private Team activeTeam = null;
+    private LogCache logCache = new LogCache(MAX_LOADED_LOGS, this);
+
+    /**
+     * This class contains the state of a log file open in a tab: its log while it is loaded, its
+     * default meeting place, occupancy counters, session log, event store and file watcher. The
+     * session log and the event store are written from the events of the log.
+     */
+    private static class Team implements AttendanceLogListener
+    {
+        File file;
+        String place;
+        AttendanceLog log = null;
+        OccupancyTracker occupancyTracker = new OccupancyTracker(ARRIVALS_WINDOW_MINUTES);
+        SessionJournal sessionJournal = null;
+        EventStore eventStore = null;
+        LogFileWatcher logFileWatcher = null;
+
+        /**
+         * Constructor: Create an instance of the object.
+         *
+         * @param file specifies the log file.
+         * @param place specifies the default meeting place.
+         */
+        Team(File file, String place)
+        {
+            this.file = file;
+            this.place = place;
+        }   //Team
+
+        /**
+         * This method writes a transaction entry of one or more attendants to the session log.
+         * The session log is opened on the first transaction and stays open until the log file
+         * is closed. The entries are written to the file by the journal's writer thread in
+         * batches. The events are also appended to the permanent event store kept next to the
+         * log file.
+         *
+         * @param log specifies the attendance log.
+         * @param checkOut specifies true if it is a check-out transaction, false if it is a check-in transaction.
+         * @param attendants specifies the attendants.
+         * @param timestamp specifies the transaction time.
+         */
+        private void logTransactions(AttendanceLog log, boolean checkOut, List<Attendant> attendants, long timestamp)
+        {
+            try
+            {
+                if (sessionJournal == null)
+                {
+                    sessionJournal = new SessionJournal(SessionJournal.getDefaultFile(file), log.getCurrentSession());
+                }
+                sessionJournal.logTransactions(checkOut, attendants, timestamp);
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+
+            try
+            {
+                if (eventStore == null)
+                {
+                    eventStore = new EventStore(EventStore.getDefaultFolder(file));
+                }
+
+                List<AttendanceEvent> events = new ArrayList<AttendanceEvent>(attendants.size());
+                for (Attendant attendant: attendants)
+                {
+                    events.add(new AttendanceEvent(
+                            checkOut? AttendanceEvent.Type.CHECK_OUT: AttendanceEvent.Type.CHECK_IN,
+                            attendant.toString(), timestamp));
+                }
+                eventStore.append(events);
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+        }   //logTransactions
+
+        //
+        // Implements AttendanceLogListener interface.
+        //
+
+        /**
+         * This method is called on the log's dispatcher thread with the events of the log. The
+         * check-ins and check-outs are written to the session log and the event store. Renames of
+         * attendants already in the session log are recorded in it.
+         *
+         * @param log specifies the attendance log.
+         * @param events specifies the events.
+         */
+        @Override
+        public void onLogEvents(AttendanceLog log, List<AttendanceLogEvent> events)
+        {
+            for (AttendanceLogEvent event: events)
+            {
+                if (event.getType() == AttendanceLogEvent.Type.CHECK_IN ||
+                    event.getType() == AttendanceLogEvent.Type.CHECK_OUT)
+                {
+                    logTransactions(
+                            log, event.getType() == AttendanceLogEvent.Type.CHECK_OUT, event.getAttendants(),
+                            event.getTimestamp());
+                }
+                else if (event.getType() == AttendanceLogEvent.Type.ATTENDANTS_CHANGED && sessionJournal != null)
+                {
+                    sessionJournal.logRenames(event.getAttendants());
+                }
+            }
+        }   //onLogEvents
+
+    }   //class Team
 
     /**
-     * This is the entry point of the program. It created the main window of the program,
-     * set the proper size and location and initialized all the UI elements.
+     * This is the entry point of the program UI, called by TrcAttendanceLauncher when the first
+     * parameter is not a command. It created the main window of the program, set the proper size
+     * and location and initialized all the UI elements. If the program is already running, the
+     * log files and the meeting place are handed over to it instead (see SingleInstance).
      *
      * @param args specifies the command line parameters.
      */
     public static void main(String[] args)
     {
         parseArgs(args);
+        //
+        // Hand the log files over to the running instance if there is one. This is done before
+        // any UI is created so that the second launch exits right away.
+        //
+        try
+        {
+            singleInstance = SingleInstance.acquire(SingleInstance.getDefaultFile(), getHandOverArgs());
+        }
+        catch (IOException e)
+        {
+            System.err.println("TrcAttendance: " + e.getMessage());
+            System.exit(1);
+        }
+
+        if (singleInstance == null)
+        {
+            return;
+        }
+
         EventQueue.invokeLater(
                 new Runnable()
                 {
@@ -99,7 +278,7 @@ public class TrcAttendance extends JComponent implements WindowListener
                         JFrame frame = new JFrame(PROGRAM_TITLE);
                         frame.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
                         frame.setLayout(new BoxLayout(frame.getContentPane(), BoxLayout.Y_AXIS));
-                        frame.setSize(800, 500);
+                        frame.setSize(800, 820);
                         frame.setResizable(false);
                         frame.add(new TrcAttendance(frame));
                         frame.setLocationRelativeTo(null);
@@ -114,10 +293,19 @@ public class TrcAttendance extends JComponent implements WindowListener
      * of <parameter>=<argument>. At this time, the supported parameters are:
      *  log=<LogFileName>
      *  place=<MeetingPlace>
+     *  port=<ServerPort>
+     *  host=<HostAddress>
+     *  store=<StoreType>
      *  where:
      *  <LogFileName>   - specifies the name of the log file. It can be a full path if the
-     *                    log file is not in the same current folder of the program.
+     *                    log file is not in the same current folder of the program. It can
+     *                    be specified more than once to open several log files in tabs.
      *  <MeetingPlace>  - specifies the default meeting place.
+     *  <ServerPort>    - specifies the port of the check-in server.
+     *  <HostAddress>   - specifies the address the check-in server listens on, loopback only
+     *                    by default.
+     *  <StoreType>     - specifies how the log is stored: csv (default) or binary (see
+     *                    AttendanceStore).
      *
      * @param args specifies the command line parameters.
      */
@@ -130,12 +318,32 @@ public class TrcAttendance extends JComponent implements WindowListener
             {
                 if (fields[0].equalsIgnoreCase("log"))
                 {
-                    logFileName = fields[1];
+                    logFileNames.add(fields[1]);
                 }
                 else if (fields[0].equalsIgnoreCase("place"))
                 {
                     placeName = fields[1];
                 }
+                else if (fields[0].equalsIgnoreCase("port"))
+                {
+                    serverPort = Integer.parseInt(fields[1]);
+                }
+                else if (fields[0].equalsIgnoreCase("host"))
+                {
+                    serverHost = fields[1];
+                }
+                else if (fields[0].equalsIgnoreCase("store"))
+                {
+                    //
+                    // The session log is deleted once the log is saved, so a meeting saved to the
+                    // memory store would be lost.
+                    //
+                    if (fields[1].equalsIgnoreCase("memory"))
+                    {
+                        throw new IllegalArgumentException("The memory store cannot keep a meeting.");
+                    }
+                    storeType = fields[1];
+                }
                 else
                 {
                     throw new IllegalArgumentException(
@@ -150,6 +358,30 @@ public class TrcAttendance extends JComponent implements WindowListener
         }
     }   //parseArgs
 
+    /**
+     * This method returns the command line parameters handed over to the running instance of
+     * the program. Only the log files and the meeting place are handed over, the log files with
+     * their full paths because the running instance may have been started in another folder.
+     *
+     * @return parameters to hand over.
+     */
+    private static List<String> getHandOverArgs()
+    {
+        List<String> handOverArgs = new ArrayList<String>();
+
+        for (String logFileName: logFileNames)
+        {
+            handOverArgs.add("log=" + new File(logFileName).getAbsolutePath());
+        }
+
+        if (!placeName.isEmpty())
+        {
+            handOverArgs.add("place=" + placeName);
+        }
+
+        return handOverArgs;
+    }   //getHandOverArgs
+
     /**
      * Constructor: Create an instance of the object.
      * Note that the constructor is private so that the class cannot be instantiated by anybody
@@ -174,8 +406,13 @@ public class TrcAttendance extends JComponent implements WindowListener
         // Create and initialize all the UI elements.
         //
         menuBar = new MenuBar(this);
+        teamTabs = new JTabbedPane();
+        teamTabs.setFont(smallFont);
+        teamTabs.addChangeListener(this);
+        frame.add(teamTabs);
         meetingPane = new MeetingPane(this);
         attendancePane = new AttendancePane(this);
+        statusPane = new StatusPane(this);
         editorDialog = new EditorDialog(this, "Edit Attendants List - " + PROGRAM_TITLE, true);
 
         //
@@ -186,14 +423,40 @@ public class TrcAttendance extends JComponent implements WindowListener
         fileChooser.setCurrentDirectory(new File(System.getProperty("user.dir")));
 
         //
-        // If a log file is specified as a command parameter, open it.
+        // If a server port is specified as a command parameter, start the check-in server. It
+        // serves the attendance log while a meeting is in progress.
+        //
+        if (serverPort > 0)
+        {
+            try
+            {
+                attendanceServer = new AttendanceServer(serverHost, serverPort, SERVER_THREADS);
+                attendanceServer.start();
+            }
+            catch (IOException e)
+            {
+                String msg = String.format("Failed to start server on port %d (%s).", serverPort, e.getMessage());
+                JOptionPane.showMessageDialog(
+                        this, msg, PROGRAM_TITLE, JOptionPane.ERROR_MESSAGE);
+            }
+        }
+
+        //
+        // If log files are specified as command parameters, open them.
         //
-        if (logFileName != null)
+        for (String logFileName: logFileNames)
         {
-            openLogFile(new File(logFileName));
+            openLogFile(new File(logFileName), placeName);
         }
 
         frame.addWindowListener(this);
+        //
+        // Take the log files of later launches of the program.
+        //
+        if (singleInstance != null)
+        {
+            singleInstance.start(this);
+        }
     }   //TrcAttendance
 
     /**
@@ -217,7 +480,17 @@ public class TrcAttendance extends JComponent implements WindowListener
             //
             File file = fileChooser.getSelectedFile();
             returnVal = JOptionPane.OK_OPTION;
-            if (file.exists() && !file.isDirectory())
+            if (findTeam(file) != null)
+            {
+                //
+                // The log file is open in another tab, it cannot be replaced.
+                //
+                String msg = String.format("%s is already open.", file);
+                JOptionPane.showMessageDialog(
+                        this, msg, PROGRAM_TITLE, JOptionPane.ERROR_MESSAGE);
+                returnVal = JOptionPane.CANCEL_OPTION;
+            }
+            else if (file.exists() && !file.isDirectory())
             {
                 returnVal = JOptionPane.showConfirmDialog(
                         this,
@@ -237,7 +510,9 @@ public class TrcAttendance extends JComponent implements WindowListener
                     //
                     // Create the new log file.
                     //
-                    attendanceLog = new AttendanceLog(file, true);
+                    AttendanceLog log = new AttendanceLog(AttendanceStore.create(storeType, file), true);
+                    Team team = addTeam(log, placeName);
+                    log.addListener(team);
                 }
                 catch (Exception e)
                 {
@@ -251,24 +526,10 @@ public class TrcAttendance extends JComponent implements WindowListener
                     throw new RuntimeException(e.getMessage());
                 }
                 //
-                // Update the Window title showing the new log file.
-                //
-                frame.setTitle(file.getName() + " - " + PROGRAM_TITLE);
-                //
                 // Open the Editor dialog as if the user has clicked File->Edit allowing
                 // the user to enter the names of the new attendants.
                 //
                 onFileEdit();
-                //
-                // Auto fill-in the default meeting date/time/place.
-                //
-                meetingPane.setDefaultDateTimePlace();
-                //
-                // Update the program state by disabling New/Open and enabling Edit/Close
-                // and the meeting pane.
-                //
-                menuBar.setMenuItemsEnabled(false, false, true, true);
-                meetingPane.setEnabled(true);
             }
         }
     }   //onFileNew
@@ -287,7 +548,7 @@ public class TrcAttendance extends JComponent implements WindowListener
             //
             // The user clicked "open" approving the file choice.
             //
-            openLogFile(fileChooser.getSelectedFile());
+            openLogFile(fileChooser.getSelectedFile(), placeName);
         }
     }   //onFileOpen
 
@@ -308,18 +569,13 @@ public class TrcAttendance extends JComponent implements WindowListener
      */
     public void onFileClose()
     {
-        if (closeLogFile(JOptionPane.OK_CANCEL_OPTION) != JOptionPane.CANCEL_OPTION)
+        if (activeTeam != null && closeLogFile(JOptionPane.OK_CANCEL_OPTION) == JOptionPane.OK_OPTION)
         {
             //
-            // Update the program state by clearing and disabling the meeting and attendance
-            // panes, disabling the Edit/Close menu items and enabling the New/Open menu items.
-            // It also updates the Window title showing no log file opened.
+            // Remove the tab of the log file. The next tab is selected, or the program state is
+            // cleared if it was the last one.
             //
-            meetingPane.clearPanel();
-            attendancePane.clearPanel();
-            menuBar.setMenuItemsEnabled(true, true, false, false);
-            attendanceLog = null;
-            frame.setTitle(PROGRAM_TITLE);
+            removeTeam(activeTeam);
         }
     }   //onFileClose
 
@@ -344,7 +600,7 @@ public class TrcAttendance extends JComponent implements WindowListener
      */
     public void onFileExit()
     {
-        if (closeLogFile(JOptionPane.OK_CANCEL_OPTION) != JOptionPane.CANCEL_OPTION)
+        if (closeAllLogFiles())
         {
             System.exit(0);
         }
@@ -360,79 +616,90 @@ public class TrcAttendance extends JComponent implements WindowListener
         String[] sessionHeader = {date, startTime, endTime, place, meeting};
         attendanceLog.createSession(sessionHeader);
         //
-        // Disable New/Open menu items. Enable Edit/Close menu items.
         // Disable Meeting pane and enable Attendance pane.
         //
-        menuBar.setMenuItemsEnabled(false, false, true, true);
         meetingPane.setEnabled(false);
         attendancePane.setEnabled(true);
+        statusPane.start();
+        if (attendanceServer != null)
+        {
+            attendanceServer.setLog(attendanceLog);
+        }
     }   //onCreateMeeting
 
     /**
      * This method opens the specified log file. It will also populate the check-in list with
-     * all the attendants and update the program state accordingly.
+     * all the attendants and update the program state accordingly. If the log file is already
+     * open, its tab is selected.
      *
      * @param file specifies the log file to open.
+     * @param place specifies the default meeting place of the log.
      */
-    private void openLogFile(File file)
+    private void openLogFile(File file, String place)
     {
-        try
+        Team team = findTeam(file);
+
+        if (team != null)
         {
             //
-            // Create the attendance log and populate it with the attendance info from log file.
-            //
-            attendanceLog = new AttendanceLog(file, false);
+            // The log file is already open, just select its tab. The place is used by the next
+            // meeting of the tab.
             //
-            // Populate the check-in list with all the attendants in the log file.
-            //
-            attendancePane.clearLists();
-            attendancePane.updateLists(attendanceLog);
+            team.place = place;
+            teamTabs.setSelectedIndex(teams.indexOf(team));
+            return;
+        }
+
+        try
+        {
             //
-            // Update the Window title showing the opened log file.
+            // Create the attendance log and populate it with the attendance info from log file.
+            // Adding its tab populates the check-in list with all the attendants in the log file
+            // and updates the program state.
             //
-            frame.setTitle(file.getName() + " - " + PROGRAM_TITLE);
+            AttendanceLog log = new AttendanceLog(AttendanceStore.create(storeType, file), false);
+            team = addTeam(log, place);
+
             //
-            // Disable New/Open menu items. Enable Edit/Close menu items.
+            // Check for existing session log. If found, recover the existing session. A session
+            // log left in the current folder by an older version is taken over if it is a
+            // meeting of this log.
             //
-            menuBar.setMenuItemsEnabled(false, false, true, true);
-
+            SessionJournal.adoptLegacyFile(log);
+            boolean resumed = readExistingSessionLog(SessionJournal.getDefaultFile(file));
             //
-            // Check for existing session log. If found, recover the existing session.
+            // The session log is written from the events of the log. It subscribes after the
+            // meeting has been replayed so that the replayed transactions are not logged again.
             //
-            if (readExistingSessionLog(SESSION_LOG_FILE_NAME))
+            log.addListener(team);
+            if (resumed)
             {
                 meetingPane.setEnabled(false);
             }
-            else
-            {
-                //
-                // Auto fill-in the default meeting date/time/place.
-                //
-                meetingPane.setDefaultDateTimePlace();
-                //
-                // Enable Meeting pane.
-                //
-                meetingPane.setEnabled(true);
-            }
         }
         catch (FileNotFoundException e)
         {
             //
             // The specified log file does not exist.
-            // Enable New/Open menu items. Disable Edit/Close menu items.
             //
-            menuBar.setMenuItemsEnabled(true, true, false, false);
             String msg = String.format("%s does not exist.", file);
             JOptionPane.showMessageDialog(
                     this, msg, PROGRAM_TITLE, JOptionPane.ERROR_MESSAGE);
         }
+        catch (IOException e)
+        {
+            //
+            // The log file or the session log could not be read.
+            //
+            String msg = String.format("Failed reading %s (%s).", file, e.getMessage());
+            JOptionPane.showMessageDialog(
+                    this, msg, PROGRAM_TITLE, JOptionPane.ERROR_MESSAGE);
+        }
         catch (IllegalArgumentException e)
         {
             //
             // The specified log file contains invalid data.
-            // Enable New/Open menu items. Disable Edit/Close menu items.
             //
-            menuBar.setMenuItemsEnabled(true, true, false, false);
             String msg = String.format("Invalid data format in %s.", file);
             JOptionPane.showMessageDialog(
                     this, msg, PROGRAM_TITLE, JOptionPane.ERROR_MESSAGE);
@@ -440,8 +707,10 @@ public class TrcAttendance extends JComponent implements WindowListener
     }   //openLogFile
 
     /**
-     * This method closes the log file. If the log file has changes, it will prompt the user to
-     * save the changes before closing.
+     * This method closes the log file of the selected tab. If the log file has changes, it will
+     * prompt the user to save the changes before closing. The tab is left to the caller to remove.
+     * If the log file cannot be saved, an error is shown and the log file stays open with its
+     * session log, as if the user had cancelled.
      *
      * @param option specifies the choice options for the Confirmation dialog. If allowing
      *               cancel, use JOptionPane.YES_NO_CANCEL_OPTION, otherwise use
@@ -463,6 +732,25 @@ public class TrcAttendance extends JComponent implements WindowListener
                     this, "Do you want to save the data before exiting?", PROGRAM_TITLE, option);
         }
 
+        //
+        // Stop serving the log before the final check-out. A request already being handled may
+        // still check someone in after it, but closing the log checks them out again, and any
+        // request after that is refused.
+        //
+        if (reply == JOptionPane.OK_OPTION && attendanceServer != null)
+        {
+            attendanceServer.setLog(null);
+        }
+
+        //
+        // Stop watching the log file before it is saved.
+        //
+        if (reply == JOptionPane.OK_OPTION && activeTeam.logFileWatcher != null)
+        {
+            activeTeam.logFileWatcher.close();
+            activeTeam.logFileWatcher = null;
+        }
+
         //
         // A log file is opened, contains changes and the user has confirmed to save the changes.
         //
@@ -475,16 +763,25 @@ public class TrcAttendance extends JComponent implements WindowListener
 
             try
             {
+                //
+                // This also waits for the check-outs to reach the session log.
+                //
                 attendanceLog.closeLogFile();
                 attendanceLog = null;
+                activeTeam.log = null;
             }
-            catch (FileNotFoundException e)
+            catch (IOException e)
             {
                 //
-                // This should never happen.
-                // We already verified the log file exists when opening it.
+                // The log stays open and the session log is kept, so no check-in is lost and
+                // closing can be retried, e.g. once there is space on the disk again.
                 //
-                throw new RuntimeException("Failed saving file.");
+                String msg = String.format(
+                        "Failed to save %s (%s).\nThe meeting is kept in the session log, try again later.",
+                        activeTeam.file, e.getMessage());
+                JOptionPane.showMessageDialog(
+                        this, msg, PROGRAM_TITLE, JOptionPane.ERROR_MESSAGE);
+                reply = JOptionPane.CANCEL_OPTION;
             }
         }
 
@@ -493,7 +790,33 @@ public class TrcAttendance extends JComponent implements WindowListener
         //
         if (reply == JOptionPane.OK_OPTION)
         {
-            File sessionLog = new File(SESSION_LOG_FILE_NAME);
+            if (attendanceLog != null)
+            {
+                attendanceLog.removeListener(attendancePane);
+                detach(activeTeam);
+                attendanceLog = null;
+            }
+
+            if (activeTeam.sessionJournal != null)
+            {
+                activeTeam.sessionJournal.close();
+                activeTeam.sessionJournal = null;
+            }
+
+            if (activeTeam.eventStore != null)
+            {
+                try
+                {
+                    activeTeam.eventStore.close();
+                }
+                catch (IOException e)
+                {
+                    e.printStackTrace();
+                }
+                activeTeam.eventStore = null;
+            }
+
+            File sessionLog = SessionJournal.getDefaultFile(activeTeam.file);
             if (sessionLog.exists())
             {
                 sessionLog.delete();
@@ -506,78 +829,494 @@ public class TrcAttendance extends JComponent implements WindowListener
     /**
      * This method reads the session log file if there is one. It will recreate the meeting from the session log.
      *
-     * @param sessionLogName specifies the session log file name.
+     * @param sessionLogFile specifies the session log file.
      * @return true if there is a session log file, false otherwise.
-     * @throws FileNotFoundException
+     * @throws IOException if the session log file cannot be read.
      */
-    private boolean readExistingSessionLog(String sessionLogName) throws FileNotFoundException
+    private boolean readExistingSessionLog(File sessionLogFile) throws IOException
     {
         boolean success = false;
 
-        File sessionLogFile = new File(sessionLogName);
         if (sessionLogFile.exists())
         {
-            Scanner sessionLog = new Scanner(sessionLogFile);
-            String[] sessionInfo = sessionLog.nextLine().trim().split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)", -1);
-
-            if (sessionInfo.length != 5)
-            {
-                sessionLog.close();
-                throw new IllegalArgumentException("Invalid meeting info.");
-            }
+            SessionJournal.Reader sessionLog = new SessionJournal.Reader(sessionLogFile);
+            String[] sessionInfo = sessionLog.getSessionInfo();
 
             onCreateMeeting(sessionInfo[0], sessionInfo[1], sessionInfo[2], sessionInfo[3], sessionInfo[4]);
             meetingPane.setMeetingInfo(sessionInfo[0], sessionInfo[1], sessionInfo[2], sessionInfo[3], sessionInfo[4]);
-            while (sessionLog.hasNextLine())
+
+            List<AttendanceEvent> events;
+            TreeSet<String> unknownNames = new TreeSet<String>();
+            while ((events = sessionLog.readTransaction()) != null)
             {
-                String[] transaction = sessionLog.nextLine().trim().split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)", -1);
-                Attendant attendant = attendanceLog.findAttendant(
-                    transaction[1].substring(1, transaction[1].length() - 1));
+                //
+                // The attendants of a group transaction that are not found, e.g. because they
+                // have been removed from the log file, are skipped, the rest of the group is redone.
+                //
+                List<Attendant> attendants = findAttendants(events, unknownNames);
+                if (attendants.isEmpty()) continue;
 
-                if (transaction[0].equals("CheckIn"))
+                long timestamp = events.get(0).getTimestamp();
+                if (events.get(0).getType() == AttendanceEvent.Type.CHECK_IN)
                 {
-                    attendancePane.checkInAttendant(attendant, Long.parseLong(transaction[2]), false);
+                    attendancePane.checkInAttendants(attendants, timestamp);
                 }
-                else if (transaction[0].equals("CheckOut"))
+                else
                 {
-                    attendancePane.checkOutAttendant(attendant, Long.parseLong(transaction[2]), false);
+                    attendancePane.checkOutAttendants(attendants, timestamp);
                 }
             }
             sessionLog.close();
             success = true;
+
+            if (!unknownNames.isEmpty())
+            {
+                String msg = String.format(
+                        "The session log has transactions of attendants not in the log file, they are skipped: %s.",
+                        String.join(", ", unknownNames));
+                JOptionPane.showMessageDialog(
+                        this, msg, PROGRAM_TITLE, JOptionPane.WARNING_MESSAGE);
+            }
         }
 
         return success;
     }   //readExistingSessionLog
 
     /**
-     * This method writes a transaction entry to the session log.
+     * This method looks up the attendants of the events of a transaction.
      *
-     * @param checkOut specifies true if it is a check-out transaction, false if it is a check-in transaction.
-     * @param attendant specifies the attendant.
-     * @param timestamp specifies the transaction time.
+     * @param events specifies the events of the transaction.
+     * @param unknownNames specifies the set to add the names not found to.
+     * @return list of attendants found.
      */
-    public void logTransaction(boolean checkOut, Attendant attendant, long timestamp)
+    private List<Attendant> findAttendants(List<AttendanceEvent> events, Set<String> unknownNames)
     {
-        File sessionFile = new File(SESSION_LOG_FILE_NAME);
-        boolean exist = sessionFile.exists();
+        List<Attendant> attendants = new ArrayList<Attendant>();
 
-        try
+        for (AttendanceEvent event: events)
         {
-            PrintStream sessionLog = new PrintStream(new FileOutputStream(sessionFile, exist));
+            Attendant attendant = attendanceLog.findAttendant(event.getName());
+            if (attendant == null)
+            {
+                unknownNames.add(event.getName());
+            }
+            else
+            {
+                attendants.add(attendant);
+            }
+        }
+
+        return attendants;
+    }   //findAttendants
 
-            if (!exist)
+    /**
+     * This method returns the tab of the specified log file.
+     *
+     * @param file specifies the log file.
+     * @return tab of the log file, null if it is not open.
+     */
+    private Team findTeam(File file)
+    {
+        for (Team team: teams)
+        {
+            if (team.file.getAbsoluteFile().equals(file.getAbsoluteFile()))
             {
-                sessionLog.println(attendanceLog.getCurrentSession());
+                return team;
             }
-            sessionLog.printf("%s,\"%s\",%d\n", checkOut? "CheckOut": "CheckIn", attendant, timestamp);
-            sessionLog.close();
         }
-        catch (FileNotFoundException e)
+
+        return null;
+    }   //findTeam
+
+    /**
+     * This method adds a tab for a newly opened log and selects it. The log is added to the log
+     * cache, which may evict the logs of other tabs.
+     *
+     * @param log specifies the attendance log.
+     * @param place specifies the default meeting place of the log.
+     * @return tab of the log.
+     */
+    private Team addTeam(AttendanceLog log, String place)
+    {
+        Team team = new Team(log.getFile(), place);
+
+        team.log = log;
+        attach(team);
+        logCache.add(log);
+        teams.add(team);
+        teamTabs.addTab(team.file.getName(), new JPanel());
+        teamTabs.setMaximumSize(new Dimension(Integer.MAX_VALUE, teamTabs.getPreferredSize().height));
+        teamTabs.setSelectedIndex(teams.size() - 1);
+
+        return team;
+    }   //addTeam
+
+    /**
+     * This method removes the tab of a closed log file. If it is the selected tab, the next tab
+     * is selected or the program state is cleared if it was the last one.
+     *
+     * @param team specifies the tab.
+     */
+    private void removeTeam(Team team)
+    {
+        int index = teams.indexOf(team);
+
+        logCache.remove(team.file);
+        teams.remove(index);
+        teamTabs.removeTabAt(index);
+        if (activeTeam == team)
+        {
+            //
+            // Removing the tab doesn't always report a change of the selected tab.
+            //
+            stateChanged(null);
+        }
+    }   //removeTeam
+
+    /**
+     * This method subscribes the occupancy counters of a tab to the events of its log and starts
+     * watching its log file. The session log is subscribed separately because a resumed meeting
+     * must not be logged again.
+     *
+     * @param team specifies the tab.
+     */
+    private void attach(Team team)
+    {
+        team.log.addListener(team.occupancyTracker);
+        //
+        // Merge the edits of the log file made by other programs while it is open. Only the
+        // CSV log file is edited by other programs.
+        //
+        if (team.log.getStore() instanceof CsvAttendanceStore && team.file.exists())
+        {
+            try
+            {
+                team.logFileWatcher = new LogFileWatcher(team.log, LogFileWatcher.DEFAULT_SETTLE_MILLIS, this);
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }   //attach
+
+    /**
+     * This method unsubscribes everything of a tab from the events of its log and stops watching
+     * its log file.
+     *
+     * @param team specifies the tab.
+     */
+    private void detach(Team team)
+    {
+        if (team.logFileWatcher != null)
+        {
+            team.logFileWatcher.close();
+            team.logFileWatcher = null;
+        }
+        team.log.removeListener(team);
+        team.log.removeListener(team.occupancyTracker);
+    }   //detach
+
+    /**
+     * This method shows the log of the specified tab in the panes, reloading the log if it has
+     * been evicted from the log cache. If the log cannot be reloaded, the tab is removed.
+     *
+     * @param team specifies the tab, null to clear the program state if no log file is open.
+     */
+    private void activate(Team team)
+    {
+        if (attendanceLog != null)
+        {
+            attendanceLog.removeListener(attendancePane);
+            attendanceLog = null;
+        }
+        activeTeam = team;
+
+        if (team != null)
+        {
+            try
+            {
+                AttendanceLog log = logCache.get(team.file);
+                if (team.log != log)
+                {
+                    //
+                    // The log has been reloaded.
+                    //
+                    team.log = log;
+                    team.occupancyTracker = new OccupancyTracker(ARRIVALS_WINDOW_MINUTES);
+                    attach(team);
+                    log.addListener(team);
+                }
+            }
+            catch (IOException | IllegalArgumentException e)
+            {
+                String msg = String.format("Failed reloading %s (%s).", team.file, e.getMessage());
+                JOptionPane.showMessageDialog(
+                        this, msg, PROGRAM_TITLE, JOptionPane.ERROR_MESSAGE);
+                removeTeam(team);
+                return;
+            }
+        }
+
+        if (team == null)
+        {
+            //
+            // Update the program state by clearing and disabling the meeting and attendance
+            // panes, disabling the Edit/Close menu items and enabling the New/Open menu items.
+            // It also updates the Window title showing no log file opened.
+            //
+            meetingPane.clearPanel();
+            attendancePane.clearPanel();
+            statusPane.clearPanel();
+            occupancyTracker = new OccupancyTracker(ARRIVALS_WINDOW_MINUTES);
+            menuBar.setMenuItemsEnabled(true, true, false, false);
+            frame.setTitle(PROGRAM_TITLE);
+            if (attendanceServer != null)
+            {
+                attendanceServer.setLog(null);
+            }
+        }
+        else
+        {
+            attendanceLog = team.log;
+            occupancyTracker = team.occupancyTracker;
+            //
+            // Populate the lists with the attendants of the log. The Attendance pane subscribes
+            // first so that it gets every event not reflected in the lists yet.
+            //
+            attendancePane.clearLists();
+            attendanceLog.addListener(attendancePane);
+            attendancePane.updateLists(attendanceLog);
+            //
+            // Update the Window title showing the log file of the tab. More log files can be
+            // opened, so New/Open stay enabled.
+            //
+            frame.setTitle(team.file.getName() + " - " + PROGRAM_TITLE);
+            menuBar.setMenuItemsEnabled(true, true, true, true);
+            meetingPane.clearPanel();
+
+            Session session = attendanceLog.getCurrentSession();
+            if (session != null)
+            {
+                //
+                // Show the meeting in progress.
+                //
+                String[] info = session.getInfo();
+                meetingPane.setMeetingInfo(info[0], info[1], info[2], info[3], info[4]);
+                attendancePane.setEnabled(true);
+                statusPane.start();
+            }
+            else
+            {
+                //
+                // Auto fill-in the default meeting date/time/place and enable the Meeting pane.
+                //
+                meetingPane.setDefaultDateTimePlace(team.place);
+                meetingPane.setEnabled(true);
+                attendancePane.setEnabled(false);
+                statusPane.clearPanel();
+            }
+
+            if (attendanceServer != null)
+            {
+                attendanceServer.setLog(session != null? attendanceLog: null);
+            }
+        }
+    }   //activate
+
+    /**
+     * This method closes the log files of all tabs, e.g. when exiting the program. The logs that
+     * have been evicted from the log cache have no changes and are just dropped. Each other tab
+     * is selected in turn to prompt the user to save its changes.
+     *
+     * @return true if all log files are closed, false if the user cancelled.
+     */
+    private boolean closeAllLogFiles()
+    {
+        for (Team team: new ArrayList<Team>(teams))
+        {
+            if (team.log == null)
+            {
+                removeTeam(team);
+            }
+        }
+
+        while (!teams.isEmpty())
+        {
+            Team team = teams.get(teams.size() - 1);
+
+            teamTabs.setSelectedIndex(teams.size() - 1);
+            if (activeTeam == team)
+            {
+                if (closeLogFile(JOptionPane.OK_CANCEL_OPTION) == JOptionPane.CANCEL_OPTION)
+                {
+                    return false;
+                }
+                removeTeam(team);
+            }
+        }
+
+        return true;
+    }   //closeAllLogFiles
+
+    //
+    // Implements ChangeListener interface.
+    //
+
+    /**
+     * This method is called when another tab is selected. It shows the log of the tab.
+     *
+     * @param e specifies the event that caused this callback, null if called directly.
+     */
+    @Override
+    public void stateChanged(ChangeEvent e)
+    {
+        int index = teamTabs.getSelectedIndex();
+        Team team = index >= 0 && index < teams.size()? teams.get(index): null;
+
+        if (team != activeTeam)
+        {
+            activate(team);
+        }
+    }   //stateChanged
+
+    //
+    // Implements LogCache.Listener interface.
+    //
+
+    /**
+     * This method is called when the log of a tab is evicted from the log cache. Everything of
+     * the tab is unsubscribed from the log so that it can be dropped.
+     *
+     * @param log specifies the evicted log.
+     */
+    @Override
+    public void onLogEvicted(AttendanceLog log)
+    {
+        for (Team team: teams)
         {
-            e.printStackTrace();
+            if (team.log == log)
+            {
+                detach(team);
+                team.log = null;
+            }
         }
-    }   //logTransaction
+    }   //onLogEvicted
+
+    //
+    // Implements LogFileWatcher.Listener interface.
+    //
+
+    /**
+     * This method is called on the watcher thread after the edits of the log file made by
+     * another program have been merged into the log. The lists are updated by the roster events
+     * of the log, only the status is refreshed here.
+     *
+     * @param log specifies the AttendanceLog.
+     * @param changes specifies the merged changes.
+     */
+    @Override
+    public void onLogFileReloaded(final AttendanceLog log, final LogFileChanges changes)
+    {
+        EventQueue.invokeLater(
+                new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        if (attendanceLog == log)
+                        {
+                            statusPane.refresh();
+                        }
+                    }
+                });
+    }   //onLogFileReloaded
+
+    /**
+     * This method is called on the watcher thread if the edits of the log file made by another
+     * program could not be merged. The user is warned because the edits will be overwritten
+     * when the log file is saved.
+     *
+     * @param log specifies the AttendanceLog.
+     * @param e specifies the reason of the failure.
+     */
+    @Override
+    public void onLogFileReloadFailed(final AttendanceLog log, final Exception e)
+    {
+        EventQueue.invokeLater(
+                new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        //
+                        // The log may be in a tab other than the selected one.
+                        //
+                        boolean open = false;
+                        for (Team team: teams)
+                        {
+                            open |= team.log == log;
+                        }
+
+                        if (open)
+                        {
+                            String msg = String.format(
+                                    "Changes to %s could not be merged and will be overwritten when it is saved (%s).",
+                                    log.getFile().getName(), e.getMessage());
+                            JOptionPane.showMessageDialog(
+                                    TrcAttendance.this, msg, PROGRAM_TITLE, JOptionPane.WARNING_MESSAGE);
+                        }
+                    }
+                });
+    }   //onLogFileReloadFailed
+
+    //
+    // Implements SingleInstance.Listener interface.
+    //
+
+    /**
+     * This method is called when the program is started again. The log files handed over are
+     * opened in tabs, or their tabs are selected if they are already open, and the main window is
+     * brought to the front.
+     *
+     * @param args specifies the log files and the meeting place handed over.
+     */
+    @Override
+    public void onInstanceArgs(final List<String> args)
+    {
+        EventQueue.invokeLater(
+                new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        List<File> files = new ArrayList<File>();
+                        String place = placeName;
+
+                        for (String arg: args)
+                        {
+                            String[] fields = arg.split("=", 2);
+                            if (fields.length == 2 && fields[0].equals("log"))
+                            {
+                                files.add(new File(fields[1]));
+                            }
+                            else if (fields.length == 2 && fields[0].equals("place"))
+                            {
+                                place = fields[1];
+                            }
+                        }
+
+                        for (File file: files)
+                        {
+                            openLogFile(file, place);
+                        }
+
+                        frame.setExtendedState(frame.getExtendedState() & ~Frame.ICONIFIED);
+                        frame.toFront();
+                        frame.requestFocus();
+                    }
+                });
+    }   //onInstanceArgs
 
     //
     // Implements WindowListener interface.
@@ -602,7 +1341,7 @@ public class TrcAttendance extends JComponent implements WindowListener
     @Override
     public void windowClosing(WindowEvent e)
     {
-        if (closeLogFile(JOptionPane.OK_CANCEL_OPTION) != JOptionPane.CANCEL_OPTION)
+        if (closeAllLogFiles())
         {
             System.exit(0);
         }
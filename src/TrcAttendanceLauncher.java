@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Arrays;
+
+/**
+ * This class is the entry point of the Attendance Logger program (the Main-Class of the jar). It
+ * runs a command if the first parameter names one and brings up the UI otherwise:
+ *  java -jar TrcAttendance.jar [log=<LogFileName> ...] [place=<MeetingPlace>] [port=<ServerPort>]
+ *  java -jar TrcAttendance.jar <Command> [<parameter>=<argument> ...]
+ *  where <Command> is one of:
+ *  report      - the command line report (see AttendanceReport).
+ *  export      - the export of logs and session logs as JSON lines (see AttendanceExport).
+ *  timeline    - the occupancy timeline (see AttendanceTimeline).
+ *  merge       - the merge of the session logs of several kiosks (see AttendanceMerge).
+ *  daemon      - the headless meeting (see AttendanceDaemon).
+ *  loadtest    - the load test of the check-in core (see AttendanceLoadTest).
+ *  storebench  - the benchmark of the log stores (see AttendanceStoreBenchmark).
+ *  convert     - the conversion of a log file to another store (see AttendanceConvert).
+ *
+ * The class references no AWT or Swing class, so the commands run without loading or
+ * initializing AWT. Only the UI is started through TrcAttendance, which is a Swing component.
+ */
+public class TrcAttendanceLauncher
+{
+    /**
+     * This is the entry point of the program. It runs the command named by the first parameter
+     * with the remaining parameters, or brings up the UI with all the parameters.
+     *
+     * @param args specifies the command line parameters.
+     */
+    public static void main(String[] args)
+    {
+        if (args.length > 0 && args[0].equalsIgnoreCase("report"))
+        {
+            //
+            // Run the command line report without bringing up any UI.
+            //
+            AttendanceReport.main(Arrays.copyOfRange(args, 1, args.length));
+        }
+        else if (args.length > 0 && args[0].equalsIgnoreCase("export"))
+        {
+            //
+            // Run the command line export without bringing up any UI.
+            //
+            AttendanceExport.main(Arrays.copyOfRange(args, 1, args.length));
+        }
+        else if (args.length > 0 && args[0].equalsIgnoreCase("timeline"))
+        {
+            //
+            // Run the command line occupancy timeline without bringing up any UI.
+            //
+            AttendanceTimeline.main(Arrays.copyOfRange(args, 1, args.length));
+        }
+        else if (args.length > 0 && args[0].equalsIgnoreCase("merge"))
+        {
+            //
+            // Run the command line journal merge without bringing up any UI.
+            //
+            AttendanceMerge.main(Arrays.copyOfRange(args, 1, args.length));
+        }
+        else if (args.length > 0 && args[0].equalsIgnoreCase("daemon"))
+        {
+            //
+            // Run the meeting headless without bringing up any UI.
+            //
+            AttendanceDaemon.main(Arrays.copyOfRange(args, 1, args.length));
+        }
+        else if (args.length > 0 && args[0].equalsIgnoreCase("loadtest"))
+        {
+            //
+            // Run the command line load test without bringing up any UI.
+            //
+            AttendanceLoadTest.main(Arrays.copyOfRange(args, 1, args.length));
+        }
+        else if (args.length > 0 && args[0].equalsIgnoreCase("storebench"))
+        {
+            //
+            // Run the command line benchmark of the log stores without bringing up any UI.
+            //
+            AttendanceStoreBenchmark.main(Arrays.copyOfRange(args, 1, args.length));
+        }
+        else if (args.length > 0 && args[0].equalsIgnoreCase("convert"))
+        {
+            //
+            // Run the command line log file conversion without bringing up any UI.
+            //
+            AttendanceConvert.main(Arrays.copyOfRange(args, 1, args.length));
+        }
+        else
+        {
+            //
+            // Bring up the UI.
+            //
+            TrcAttendance.main(args);
+        }
+    }   //main
+
+}   //class TrcAttendanceLauncher
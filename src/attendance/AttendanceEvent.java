@@ -0,0 +1,95 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+/**
+ * This class implements an attendance event. An attendance event records an attendant checking
+ * in or out at a certain time.
+ */
+public class AttendanceEvent
+{
+    /**
+     * Specifies the type of an attendance event.
+     */
+    public enum Type
+    {
+        CHECK_IN,
+        CHECK_OUT
+    }   //enum Type
+
+    private Type type;
+    private String name;
+    private long timestamp;
+
+    /**
+     * Constructor: Create an instance of the object.
+     *
+     * @param type specifies the event type.
+     * @param name specifies the name of the attendant.
+     * @param timestamp specifies the time of the event.
+     */
+    public AttendanceEvent(Type type, String name, long timestamp)
+    {
+        this.type = type;
+        this.name = name;
+        this.timestamp = timestamp;
+    }   //AttendanceEvent
+
+    /**
+     * This method returns the event type.
+     *
+     * @return event type.
+     */
+    public Type getType()
+    {
+        return type;
+    }   //getType
+
+    /**
+     * This method returns the name of the attendant.
+     *
+     * @return name of the attendant.
+     */
+    public String getName()
+    {
+        return name;
+    }   //getName
+
+    /**
+     * This method returns the time of the event.
+     *
+     * @return time of the event.
+     */
+    public long getTimestamp()
+    {
+        return timestamp;
+    }   //getTimestamp
+
+    /**
+     * This method returns a string representation of the event for debugging purpose.
+     */
+    public String toString()
+    {
+        return type + ",\"" + name + "\"," + timestamp;
+    }   //toString
+
+}   //class AttendanceEvent
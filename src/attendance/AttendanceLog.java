@@ -23,99 +23,119 @@ package attendance;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * This class implements an attendance log. It contains an ArrayList of attendants, an ArrayList
  * of past meeting sessions as well as the current meeting session.
+ * The log file may optionally contain an ID row right after the header line. The ID row has
+ * "ID" in the Date column and the badge ID of each attendant in the attendant columns. It
+ * allows attendants to check in and out by scanning their badges.
+ * The attendance minutes of each attendant are also rolled up by ISO week and by month. The
+ * rollups are built the first time they are asked for and then extended whenever a session is
+ * closed, so that opening a log does not pay for them.
+ * The log may be shared by several input sources on different threads. Check-ins and check-outs
+ * only touch the atomic state of the attendant and take a lock striped by attendant, so those of
+ * different attendants proceed in parallel while the events of one attendant are published in the
+ * order of its state changes. The attendants list, the sessions list and the name and badge ID indices
+ * are never changed in place: roster edits and session closes build new copies under the log's
+ * monitor and publish them at once, so readers and check-ins are never blocked by them.
+ * The log data is loaded from and saved to a store (see AttendanceStore), by default the CSV log
+ * file. A CSV log file can be reloaded after it has been edited by another program: only the
+ * changed lines are merged into the log (see LogFileChanges), the current meeting session is not
+ * disturbed.
+ * Check-ins, check-outs, roster changes and session changes are published as events to the
+ * listeners of the log (see AttendanceLogListener). The events are delivered in batches on a
+ * dispatcher thread, so consumers such as the UI and the session journal subscribe independently
+ * and never slow down a check-in.
  */
 public class AttendanceLog
 {
-    private File logFile;
-    private ArrayList<Attendant> attendantsList = new ArrayList<Attendant>();
-    private ArrayList<Session> sessionsList = new ArrayList<Session>();
-    private boolean fileDirty = false;
-    private Session currentSession = null;
+    public static final String ID_ROW_TAG = "ID";
+    private static final int NUM_TRANSITION_LOCKS = 64;
+
+    private volatile AttendanceStore store;
+    private volatile ArrayList<Attendant> attendantsList = new ArrayList<Attendant>();
+    private volatile HashMap<String, Attendant> nameMap = new HashMap<String, Attendant>();
+    private volatile HashMap<String, Attendant> idMap = new HashMap<String, Attendant>();
+    private volatile ArrayList<Session> sessionsList = new ArrayList<Session>();
+    private volatile boolean fileDirty = false;
+    private volatile Session currentSession = null;
+    private volatile int version = 0;
+    private Rollup weeklyRollup = new Rollup(Rollup.Period.WEEK);
+    private Rollup monthlyRollup = new Rollup(Rollup.Period.MONTH);
+    private int rollupsVersion = -1;
+    private SessionIndex sessionIndex = null;
+    private int sessionIndexVersion = -1;
+    private volatile LogEventDispatcher dispatcher = null;
+    private final ReentrantLock[] transitionLocks = createTransitionLocks();
 
     /**
-     * Constructor: Create an instance of the object.
+     * Constructor: Create an instance of the object with the CSV log file as its store.
      *
      * @param file specifies the log file.
      * @param newFile specifies true if the log file is new, false otherwise.
      * @throws FileNotFoundException if newFile is false but the specified file does not exist.
+     * @throws IOException if the log file cannot be read.
      * @throws IllegalArgumentException if the log file contains invalid data.
      */
-    public AttendanceLog(File file, boolean newFile) throws FileNotFoundException, IllegalArgumentException
+    public AttendanceLog(File file, boolean newFile) throws IOException, IllegalArgumentException
     {
-        logFile = file;
+        this(new CsvAttendanceStore(file), newFile);
+    }   //AttendanceLog
 
-        if (!newFile)
-        {
-            //
-            // Parse the header line into array of fields using comma as separator but
-            // ignoring commas inside quotes.
-            //
-            Scanner input = new Scanner(file);
-            String[] fields = input.nextLine().trim().split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)", -1);
-            int numFields = fields.length;
+    /**
+     * Constructor: Create an instance of the object.
+     *
+     * @param store specifies the store of the log data.
+     * @param newStore specifies true if the store is new, false to load the log data from it.
+     * @throws FileNotFoundException if newStore is false but the log file does not exist.
+     * @throws IOException if the log data cannot be read.
+     * @throws IllegalArgumentException if the log data is invalid.
+     */
+    public AttendanceLog(AttendanceStore store, boolean newStore) throws IOException, IllegalArgumentException
+    {
+        this(store, newStore? null: store.load());
+    }   //AttendanceLog
 
+    /**
+     * Constructor: Create an instance of the object with log data loaded elsewhere, e.g. from a
+     * snapshot of the log (see LogCache). The log is still saved to the specified store.
+     *
+     * @param store specifies the store of the log data.
+     * @param data specifies the log data, null if the store is new.
+     */
+    public AttendanceLog(AttendanceStore store, LogData data)
+    {
+        this.store = store;
+
+        if (data != null)
+        {
+            List<String> names = data.getNames();
+            List<String> ids = data.getIds();
             //
-            // The first 5 fields are: Date/Start Time/End Time/Place/Meeting.
-            // The rest are names of attendants.
+            // Create a new attendant for each attendant name.
             //
-            if (numFields > Session.header.length)
-            {
-                //
-                // Create a new attendant for each attendant name.
-                //
-                for (int i = Session.header.length; i < fields.length; i++)
-                {
-                    attendantsList.add(new Attendant(fields[i]));
-                }
-            }
-            else
+            for (int i = 0; i < names.size(); i++)
             {
-                input.close();
-                throw new IllegalArgumentException(
-                        String.format("Data file must have at least 6 fields (numFields=%d)", fields.length));
+                Attendant attendant = new Attendant(names.get(i));
+                attendant.setId(ids.get(i));
+                attendantsList.add(attendant);
             }
-
             //
-            // Parse each line in the log file as a meeting session.
+            // Add each past session and the session time of each attendant.
             //
-            while (input.hasNextLine())
+            for (int i = 0; i < data.getSessions().size(); i++)
             {
-                fields = input.nextLine().trim().split(",");
-
-                // Skip a blank line.
-                if (fields.length == 0) continue;
-
-                //
-                // The total number of fields should match the number of header fields.
-                //
-                if (fields.length == numFields)
+                long[] minutes = data.getMinutes().get(i);
+                sessionsList.add(new Session(data.getSessions().get(i)));
+                for (int j = 0; j < minutes.length; j++)
                 {
-                    //
-                    // Create and add a new meeting session.
-                    //
-                    sessionsList.add(new Session(fields));
-                    //
-                    // Add session time of each attendant.
-                    //
-                    for (int i = 0; i < attendantsList.size(); i++)
-                    {
-                        attendantsList.get(i).addSession(
-                                Long.parseLong(fields[Session.header.length + i]));
-                    }
-                }
-                else
-                {
-                    input.close();
-                    throw new IllegalArgumentException(
-                            String.format("Invalid data file (incorrect number of fields - %d).", fields.length));
+                    attendantsList.get(j).addSession(minutes[j]);
                 }
             }
 
-            input.close();
+            buildIndices();
         }
     }   //AttendanceLog
 
@@ -125,11 +145,13 @@ public class AttendanceLog
      *
      * @param info specifies the meeting info.
      */
-    public void createSession(String[] info)
+    public synchronized void createSession(String[] info)
     {
         if (currentSession == null)
         {
             currentSession = new Session(info);
+            publish(AttendanceLogEvent.Type.SESSION_CREATED, Collections.<Attendant>emptyList(), currentSession,
+                    System.currentTimeMillis());
         }
         else
         {
@@ -137,6 +159,142 @@ public class AttendanceLog
         }
     }   //createSession
 
+    /**
+     * This method closes the current meeting session. The current session and the attendance
+     * duration of each attendant in it become the last past session. It holds all the transition
+     * locks while doing so, so that no check-in or check-out runs halfway across the close, and
+     * once it returns, check-ins and check-outs are refused until a new session is created.
+     * Attendants still checked in, e.g. by an input source that raced with the final check-out
+     * of the meeting, are checked out first so that their time is counted rather than dropped.
+     */
+    public synchronized void closeSession()
+    {
+        if (currentSession != null)
+        {
+            boolean[] locked = lockAllTransitions();
+            int numPastSessions = sessionsList.size();
+            ArrayList<Session> newList = new ArrayList<Session>(numPastSessions + 1);
+            boolean rollupsCurrent = rollupsVersion == version;
+
+            try
+            {
+                long timestamp = System.currentTimeMillis();
+                ArrayList<Attendant> checkedOut = new ArrayList<Attendant>();
+                for (int i = 0; i < attendantsList.size(); i++)
+                {
+                    if (attendantsList.get(i).tryCheckOut(timestamp))
+                    {
+                        checkedOut.add(attendantsList.get(i));
+                    }
+                }
+
+                if (!checkedOut.isEmpty())
+                {
+                    fileDirty = true;
+                    publish(AttendanceLogEvent.Type.CHECK_OUT, checkedOut, null, timestamp);
+                }
+
+                for (int i = 0; i < attendantsList.size(); i++)
+                {
+                    attendantsList.get(i).closeSession(numPastSessions);
+                }
+                newList.addAll(sessionsList);
+                newList.add(currentSession);
+                sessionsList = newList;
+                if (rollupsCurrent)
+                {
+                    addRollups(numPastSessions);
+                }
+                publish(AttendanceLogEvent.Type.SESSION_CLOSED, Collections.<Attendant>emptyList(), currentSession,
+                        timestamp);
+                currentSession = null;
+            }
+            finally
+            {
+                unlockTransitions(locked);
+            }
+            version++;
+            if (rollupsCurrent)
+            {
+                rollupsVersion = version;
+            }
+        }
+    }   //closeSession
+
+    /**
+     * This method returns the log file.
+     *
+     * @return log file, null if the log file has been closed.
+     */
+    public File getFile()
+    {
+        AttendanceStore store = this.store;
+
+        return store != null? store.getFile(): null;
+    }   //getFile
+
+    /**
+     * This method returns the store of the log data.
+     *
+     * @return store, null if the log file has been closed.
+     */
+    public AttendanceStore getStore()
+    {
+        return store;
+    }   //getStore
+
+    /**
+     * This method returns the version of the past sessions and attendants list. The version
+     * changes whenever a session is closed or the attendants list is updated, so that anything
+     * derived from them can tell whether it needs to be recomputed.
+     *
+     * @return version number.
+     */
+    public int getVersion()
+    {
+        return version;
+    }   //getVersion
+
+    /**
+     * This method returns the sorted index of the past sessions. The index is built on demand
+     * and rebuilt after a session is closed.
+     *
+     * @return session index.
+     */
+    public synchronized SessionIndex getSessionIndex()
+    {
+        if (sessionIndex == null || sessionIndexVersion != version)
+        {
+            sessionIndex = new SessionIndex(this);
+            sessionIndexVersion = version;
+        }
+
+        return sessionIndex;
+    }   //getSessionIndex
+
+    /**
+     * This method returns the attendance minutes of each attendant rolled up by ISO week. The
+     * rollups are built on first use and kept up to date as sessions are closed.
+     *
+     * @return weekly rollup.
+     */
+    public synchronized Rollup getWeeklyRollup()
+    {
+        updateRollups();
+        return weeklyRollup;
+    }   //getWeeklyRollup
+
+    /**
+     * This method returns the attendance minutes of each attendant rolled up by month.
+     *
+     * @return monthly rollup.
+     */
+    public synchronized Rollup getMonthlyRollup()
+    {
+        updateRollups();
+        return monthlyRollup;
+    }   //getMonthlyRollup
+
     /**
      * This method returns the current meeting session object.
      *
@@ -147,6 +305,27 @@ public class AttendanceLog
         return currentSession;
     }   //getCurrentSession
 
+    /**
+     * This method returns the number of past meeting sessions.
+     *
+     * @return number of past sessions.
+     */
+    public int getNumSessions()
+    {
+        return sessionsList.size();
+    }   //getNumSessions
+
+    /**
+     * This method returns the past meeting session of the specified index.
+     *
+     * @param index specifies the index of the session to be returned.
+     * @return past session of the specified index.
+     */
+    public Session getSession(int index)
+    {
+        return sessionsList.get(index);
+    }   //getSession
+
     /**
      * This method returns the total number of attendants.
      *
@@ -168,6 +347,17 @@ public class AttendanceLog
         return attendantsList.get(index);
     }   //getAttendant
 
+    /**
+     * This method returns the attendants list. The list is a snapshot that is not affected by
+     * later roster edits, so it is safe to iterate while other threads use the log.
+     *
+     * @return unmodifiable list of attendants sorted by name.
+     */
+    public List<Attendant> getAttendants()
+    {
+        return Collections.unmodifiableList(attendantsList);
+    }   //getAttendants
+
     /**
      * This method determines if the specified attendant is in the attendants list.
      *
@@ -180,52 +370,188 @@ public class AttendanceLog
     }   //contains
 
     /**
-     * This method updates the attendants list from the result of the Editor dialog. It sorted
-     * the Editor dialog list, eliminated duplicates if any and cross-checked each attendant's
-     * name against the existing attendants list. If the attendant is already in the old list,
-     * it is transferred to the new list. If it is not found in the old list, a new attendant
-     * is created and added to the new list. At the end, the new list replaces the old list.
+     * This method updates the attendants list from the result of the Editor dialog. Duplicate
+     * and blank names are eliminated. Attendants already in the list are kept, new names are
+     * added as new attendants and attendants not in the Editor dialog list are removed.
      *
      * @param attendants specifies the list of attendant names from the Editor dialog.
      */
     public void updateAttendants(String[] attendants)
     {
-        ArrayList<Attendant> newList = new ArrayList<Attendant>();
-        int numTransfers = 0;
+        updateAttendants(new RosterDiff(this, Arrays.asList(attendants), null));
+    }   //updateAttendants
 
-        Arrays.sort(attendants);
-        for (int i = 0; i < attendants.length; i++)
+    /**
+     * This method applies the difference between the attendants list and an edited roster.
+     * Only the removed and added attendants and the changed badge IDs are touched, the kept
+     * attendants are transferred as is. The resulting list is sorted by name.
+     *
+     * @param diff specifies the difference computed against this log.
+     */
+    public synchronized void updateAttendants(RosterDiff diff)
+    {
+        if (!diff.isEmpty())
         {
-            String name = attendants[i].trim();
+            HashSet<Attendant> removed = new HashSet<Attendant>(diff.getRemovedAttendants());
+            ArrayList<Attendant> newList = new ArrayList<Attendant>(
+                    attendantsList.size() + diff.getAddedAttendants().size());
 
-            //
-            // Eliminate duplicates.
-            //
-            if (i > 0 && attendants[i - 1].trim().equals(name)) continue;
+            for (int i = 0; i < attendantsList.size(); i++)
+            {
+                Attendant attendant = attendantsList.get(i);
+                if (!removed.contains(attendant))
+                {
+                    newList.add(attendant);
+                }
+            }
+
+            newList.addAll(diff.getAddedAttendants());
+
+            boolean rollupsCurrent = rollupsVersion == version;
+            if (rollupsCurrent)
+            {
+                for (Attendant attendant: removed)
+                {
+                    weeklyRollup.remove(attendant);
+                    monthlyRollup.remove(attendant);
+                }
+            }
+
+            for (Map.Entry<Attendant, String> entry: diff.getChangedIds().entrySet())
+            {
+                entry.getKey().setId(entry.getValue());
+            }
+
+            Collections.sort(newList, new Attendant.NameComparator());
+            attendantsList = newList;
+            buildIndices();
+            fileDirty = true;
+            version++;
+            if (rollupsCurrent)
+            {
+                rollupsVersion = version;
+            }
+            publishRosterChanges(
+                    diff.getAddedAttendants(), diff.getRemovedAttendants(), diff.getChangedIds().keySet());
+        }
+    }   //updateAttendants
+
+    /**
+     * This method reloads the log file after it has been changed by another program. Only the
+     * lines that differ from the log file as last loaded are parsed and merged into the log.
+     * Attendants are renamed, added or removed, badge IDs are updated and past sessions are
+     * replaced or appended accordingly. The current meeting session and the check-in state of
+     * the attendants are kept, as are the changes made in this program but not saved yet.
+     *
+     * @return changes merged into the log, empty if the log file has not changed.
+     * @throws IOException if the log file cannot be read.
+     * @throws IllegalArgumentException if the log file contains invalid data or changes that
+     *         cannot be merged, in which case the log is not changed.
+     * @throws IllegalStateException if the log has been closed or its store is not a CSV log file.
+     */
+    public synchronized LogFileChanges reloadFile() throws IOException, IllegalArgumentException
+    {
+        if (!(store instanceof CsvAttendanceStore))
+        {
+            throw new IllegalStateException(store == null? "Log file has been closed.": "Log file is not a CSV file.");
+        }
+
+        CsvAttendanceStore csvStore = (CsvAttendanceStore)store;
+        List<String> newLines = csvStore.readLines();
+        LogFileChanges changes = new LogFileChanges(this, csvStore.getLoadedLines(), newLines);
+        if (!changes.isEmpty())
+        {
+            applyFileChanges(changes);
+        }
+        csvStore.setLoadedLines(newLines);
+
+        return changes;
+    }   //reloadFile
+
+    /**
+     * This method applies the changes of a reloaded log file. The attendants list and the
+     * sessions list are rebuilt and published like roster edits, and the rollups are rebuilt.
+     *
+     * @param changes specifies the changes of the log file.
+     */
+    private void applyFileChanges(LogFileChanges changes)
+    {
+        boolean rosterChanged = !changes.getAddedAttendants().isEmpty() ||
+                                !changes.getRemovedAttendants().isEmpty() ||
+                                !changes.getRenamedAttendants().isEmpty();
 
-            if (name.length() > 0)
+        for (Map.Entry<Attendant, String> entry: changes.getRenamedAttendants().entrySet())
+        {
+            entry.getKey().setName(entry.getValue());
+        }
+
+        for (Map.Entry<Attendant, String> entry: changes.getChangedIds().entrySet())
+        {
+            entry.getKey().setId(entry.getValue());
+        }
+
+        List<Attendant> columnAttendants = changes.getColumnAttendants();
+        for (Map.Entry<Integer, long[]> entry: changes.getChangedMinutes().entrySet())
+        {
+            long[] minutes = entry.getValue();
+            for (int i = 0; i < minutes.length; i++)
             {
-                Attendant existing = findAttendant(name);
-                if (existing != null)
+                Attendant attendant = columnAttendants.get(i);
+                if (attendant != null)
                 {
-                    newList.add(existing);
-                    numTransfers++;
+                    attendant.setSessionMinutes(entry.getKey(), minutes[i]);
+                }
+            }
+        }
+
+        if (!changes.getChangedSessions().isEmpty())
+        {
+            ArrayList<Session> newSessions = new ArrayList<Session>(sessionsList);
+            for (Map.Entry<Integer, Session> entry: changes.getChangedSessions().entrySet())
+            {
+                if (entry.getKey() < newSessions.size())
+                {
+                    newSessions.set(entry.getKey(), entry.getValue());
                 }
                 else
                 {
-                    newList.add(new Attendant(attendants[i]));
-                    fileDirty = true;
+                    newSessions.add(entry.getValue());
                 }
             }
+            sessionsList = newSessions;
         }
 
-        if (!fileDirty && numTransfers != attendantsList.size())
+        if (rosterChanged)
         {
-            fileDirty = true;
+            HashSet<Attendant> removed = new HashSet<Attendant>(changes.getRemovedAttendants());
+            ArrayList<Attendant> newList = new ArrayList<Attendant>(
+                    attendantsList.size() + changes.getAddedAttendants().size());
+
+            for (int i = 0; i < attendantsList.size(); i++)
+            {
+                Attendant attendant = attendantsList.get(i);
+                if (!removed.contains(attendant))
+                {
+                    newList.add(attendant);
+                }
+            }
+            newList.addAll(changes.getAddedAttendants());
+            Collections.sort(newList, new Attendant.NameComparator());
+            attendantsList = newList;
         }
 
-        attendantsList = newList;
-    }   //updateAttendants
+        buildIndices();
+        version++;
+
+        HashSet<Attendant> changed = new HashSet<Attendant>(changes.getRenamedAttendants().keySet());
+        changed.addAll(changes.getChangedIds().keySet());
+        publishRosterChanges(changes.getAddedAttendants(), changes.getRemovedAttendants(), changed);
+        if (!changes.getChangedSessions().isEmpty())
+        {
+            publish(AttendanceLogEvent.Type.SESSIONS_CHANGED, Collections.<Attendant>emptyList(), null,
+                    System.currentTimeMillis());
+        }
+    }   //applyFileChanges
 
     /**
      * This method determines if the log file has changed.
@@ -246,54 +572,417 @@ public class AttendanceLog
     }   //setFileDirty
 
     /**
-     * This method writes all the info to the log file and closes it.
+     * This method checks in an attendant to the current meeting session. It is safe to call from
+     * any thread. If the attendant is checked in by several input sources at once, only one of
+     * them succeeds.
      *
-     * @throws FileNotFoundException
+     * @param attendant specifies the attendant to be checked in.
+     * @param timestamp specifies the check-in time.
+     * @return true if the attendant is checked in by this call, false if already checked in or
+     *         there is no current meeting session.
      */
-    public void closeLogFile() throws FileNotFoundException
+    public boolean checkIn(Attendant attendant, long timestamp)
     {
-        PrintStream output = new PrintStream(logFile);
-        //
-        // Print header line.
-        //
-        output.print(Session.getHeaderString());
-        for (int i = 0; i < attendantsList.size(); i++)
+        ReentrantLock lock = transitionLocks[getTransitionLockIndex(attendant)];
+        boolean success;
+
+        lock.lock();
+        try
         {
-            output.print(",\"" + attendantsList.get(i) + "\"");
+            success = currentSession != null && attendant.tryCheckIn(timestamp);
+            if (success)
+            {
+                fileDirty = true;
+                publish(AttendanceLogEvent.Type.CHECK_IN, Collections.singletonList(attendant), null, timestamp);
+            }
         }
-        output.println();
-        //
-        // Print each meeting session in a separate line.
-        //
-        for (int i = 0; i < sessionsList.size(); i++)
+        finally
         {
-            output.print(sessionsList.get(i));
-            for (int j = 0; j < attendantsList.size(); j++)
+            lock.unlock();
+        }
+
+        return success;
+    }   //checkIn
+
+    /**
+     * This method checks out an attendant from the current meeting session. It is safe to call
+     * from any thread. If the attendant is checked out by several input sources at once, only one
+     * of them succeeds.
+     *
+     * @param attendant specifies the attendant to be checked out.
+     * @param timestamp specifies the check-out time.
+     * @return true if the attendant is checked out by this call, false if not checked in or there
+     *         is no current meeting session.
+     */
+    public boolean checkOut(Attendant attendant, long timestamp)
+    {
+        ReentrantLock lock = transitionLocks[getTransitionLockIndex(attendant)];
+        boolean success;
+
+        lock.lock();
+        try
+        {
+            success = currentSession != null && attendant.tryCheckOut(timestamp);
+            if (success)
             {
-                output.print("," + attendantsList.get(j).getSessionMinutes(i));
+                fileDirty = true;
+                publish(AttendanceLogEvent.Type.CHECK_OUT, Collections.singletonList(attendant), null, timestamp);
             }
-            output.println();
         }
-        //
-        // Print the current meeting session.
-        //
-        if (currentSession != null)
+        finally
         {
-            output.print(currentSession);
-            for (int i = 0; i < attendantsList.size(); i++)
+            lock.unlock();
+        }
+
+        return success;
+    }   //checkOut
+
+    /**
+     * This method checks in a group of attendants. Attendants already checked in, e.g. by another
+     * input source, are skipped. The group is published as a single event.
+     *
+     * @param attendants specifies the attendants to be checked in.
+     * @param timestamp specifies the check-in time.
+     * @return attendants checked in by this call, none if there is no current meeting session.
+     */
+    public List<Attendant> checkIn(List<Attendant> attendants, long timestamp)
+    {
+        ArrayList<Attendant> checkedIn = new ArrayList<Attendant>(attendants.size());
+        boolean[] locked = lockTransitions(attendants);
+
+        try
+        {
+            //
+            // Nobody is checked in or out once the current session has been closed.
+            //
+            for (int i = 0; currentSession != null && i < attendants.size(); i++)
+            {
+                if (attendants.get(i).tryCheckIn(timestamp))
+                {
+                    checkedIn.add(attendants.get(i));
+                }
+            }
+
+            if (!checkedIn.isEmpty())
+            {
+                fileDirty = true;
+                publish(AttendanceLogEvent.Type.CHECK_IN, checkedIn, null, timestamp);
+            }
+        }
+        finally
+        {
+            unlockTransitions(locked);
+        }
+
+        return checkedIn;
+    }   //checkIn
+
+    /**
+     * This method checks out a group of attendants. Attendants not checked in, e.g. because
+     * another input source has already checked them out, are skipped. The group is published as
+     * a single event.
+     *
+     * @param attendants specifies the attendants to be checked out.
+     * @param timestamp specifies the check-out time.
+     * @return attendants checked out by this call, none if there is no current meeting session.
+     */
+    public List<Attendant> checkOut(List<Attendant> attendants, long timestamp)
+    {
+        ArrayList<Attendant> checkedOut = new ArrayList<Attendant>(attendants.size());
+        boolean[] locked = lockTransitions(attendants);
+
+        try
+        {
+            //
+            // Nobody is checked in or out once the current session has been closed.
+            //
+            for (int i = 0; currentSession != null && i < attendants.size(); i++)
+            {
+                if (attendants.get(i).tryCheckOut(timestamp))
+                {
+                    checkedOut.add(attendants.get(i));
+                }
+            }
+
+            if (!checkedOut.isEmpty())
+            {
+                fileDirty = true;
+                publish(AttendanceLogEvent.Type.CHECK_OUT, checkedOut, null, timestamp);
+            }
+        }
+        finally
+        {
+            unlockTransitions(locked);
+        }
+
+        return checkedOut;
+    }   //checkOut
+
+    /**
+     * This method creates the locks that order the check-ins and check-outs of the attendants
+     * with their events.
+     *
+     * @return transition locks.
+     */
+    private static ReentrantLock[] createTransitionLocks()
+    {
+        ReentrantLock[] locks = new ReentrantLock[NUM_TRANSITION_LOCKS];
+
+        for (int i = 0; i < locks.length; i++)
+        {
+            locks[i] = new ReentrantLock();
+        }
+
+        return locks;
+    }   //createTransitionLocks
+
+    /**
+     * This method returns the index of the transition lock of an attendant. The state change of
+     * an attendant and the publishing of its event are done under this lock, so that the events
+     * of an attendant checked in and out by several input sources at once are queued in the same
+     * order as its state changes.
+     *
+     * @param attendant specifies the attendant.
+     * @return lock index.
+     */
+    private int getTransitionLockIndex(Attendant attendant)
+    {
+        return (System.identityHashCode(attendant) & Integer.MAX_VALUE)%transitionLocks.length;
+    }   //getTransitionLockIndex
+
+    /**
+     * This method takes the transition locks of a group of attendants. The locks are taken in
+     * ascending index order, so that groups sharing attendants cannot deadlock.
+     *
+     * @param attendants specifies the attendants.
+     * @return flags of the locks taken, to be passed to unlockTransitions.
+     */
+    private boolean[] lockTransitions(List<Attendant> attendants)
+    {
+        boolean[] locked = new boolean[transitionLocks.length];
+
+        for (Attendant attendant: attendants)
+        {
+            locked[getTransitionLockIndex(attendant)] = true;
+        }
+
+        for (int i = 0; i < locked.length; i++)
+        {
+            if (locked[i])
+            {
+                transitionLocks[i].lock();
+            }
+        }
+
+        return locked;
+    }   //lockTransitions
+
+    /**
+     * This method takes all the transition locks in ascending index order, e.g. to close the
+     * current session while no check-in or check-out is halfway done.
+     *
+     * @return flags of the locks taken, to be passed to unlockTransitions.
+     */
+    private boolean[] lockAllTransitions()
+    {
+        boolean[] locked = new boolean[transitionLocks.length];
+
+        for (int i = 0; i < locked.length; i++)
+        {
+            transitionLocks[i].lock();
+            locked[i] = true;
+        }
+
+        return locked;
+    }   //lockAllTransitions
+
+    /**
+     * This method releases the transition locks taken by lockTransitions or lockAllTransitions.
+     *
+     * @param locked specifies the flags of the locks taken.
+     */
+    private void unlockTransitions(boolean[] locked)
+    {
+        for (int i = locked.length - 1; i >= 0; i--)
+        {
+            if (locked[i])
+            {
+                transitionLocks[i].unlock();
+            }
+        }
+    }   //unlockTransitions
+
+    /**
+     * This method adds a listener to be notified of the events of the log. The listener only
+     * receives the events published after it has been added.
+     *
+     * @param listener specifies the listener.
+     */
+    public synchronized void addListener(AttendanceLogListener listener)
+    {
+        if (dispatcher == null)
+        {
+            dispatcher = new LogEventDispatcher(this);
+        }
+        dispatcher.addListener(listener);
+    }   //addListener
+
+    /**
+     * This method removes a listener. When the last listener is removed, the events published up
+     * to now are delivered and the dispatcher thread is stopped.
+     *
+     * @param listener specifies the listener.
+     */
+    public void removeListener(AttendanceLogListener listener)
+    {
+        LogEventDispatcher idleDispatcher = null;
+
+        synchronized (this)
+        {
+            if (dispatcher != null && dispatcher.removeListener(listener))
             {
-                output.print("," + attendantsList.get(i).getCurrentSessionMinutes());
+                idleDispatcher = dispatcher;
+                dispatcher = null;
             }
-            output.println();
         }
 
-        output.close();
+        if (idleDispatcher != null)
+        {
+            idleDispatcher.close();
+        }
+    }   //removeListener
+
+    /**
+     * This method publishes an event to the listeners if there are any.
+     *
+     * @param type specifies the event type.
+     * @param attendants specifies the attendants of the event.
+     * @param session specifies the session of a session event, null otherwise.
+     * @param timestamp specifies the time of the event.
+     */
+    private void publish(AttendanceLogEvent.Type type, List<Attendant> attendants, Session session, long timestamp)
+    {
+        LogEventDispatcher dispatcher = this.dispatcher;
+
+        if (dispatcher != null)
+        {
+            dispatcher.publish(type, attendants, session, timestamp);
+        }
+    }   //publish
+
+    /**
+     * This method publishes the roster events of the added, removed and changed attendants.
+     *
+     * @param added specifies the added attendants.
+     * @param removed specifies the removed attendants.
+     * @param changed specifies the renamed attendants and those with changed badge IDs.
+     */
+    private void publishRosterChanges(
+            Collection<Attendant> added, Collection<Attendant> removed, Collection<Attendant> changed)
+    {
+        long timestamp = System.currentTimeMillis();
+
+        if (!removed.isEmpty())
+        {
+            publish(AttendanceLogEvent.Type.ATTENDANTS_REMOVED, new ArrayList<Attendant>(removed), null, timestamp);
+        }
+
+        if (!added.isEmpty())
+        {
+            publish(AttendanceLogEvent.Type.ATTENDANTS_ADDED, new ArrayList<Attendant>(added), null, timestamp);
+        }
+
+        if (!changed.isEmpty())
+        {
+            publish(AttendanceLogEvent.Type.ATTENDANTS_CHANGED, new ArrayList<Attendant>(changed), null, timestamp);
+        }
+    }   //publishRosterChanges
+
+    /**
+     * This method writes all the info to the store and closes the log. The events published up
+     * to now, including the closing of the current session, are delivered to the listeners
+     * before it returns. If the log data cannot be written, the current session has been closed
+     * but the log stays open with its listeners and unsaved changes, so that saving can be
+     * retried.
+     *
+     * @throws IOException if the log data cannot be written.
+     */
+    public void closeLogFile() throws IOException
+    {
+        LogEventDispatcher dispatcher;
+
+        writeLogFile();
+        synchronized (this)
+        {
+            dispatcher = this.dispatcher;
+            this.dispatcher = null;
+        }
+        //
+        // Wait for the remaining events without holding the log's monitor, so that the
+        // listeners may still call the log while they are delivered.
+        //
+        if (dispatcher != null)
+        {
+            dispatcher.close();
+        }
+    }   //closeLogFile
+
+    /**
+     * This method writes all the info to the store and releases the log. The log is only
+     * released once the log data has been written.
+     *
+     * @throws IOException if the log data cannot be written.
+     */
+    private synchronized void writeLogFile() throws IOException
+    {
+        //
+        // The current meeting session is written as the last session.
+        //
+        closeSession();
+
+        store.save(getLogData());
         fileDirty = false;
         attendantsList = null;
+        nameMap = null;
+        idMap = null;
         sessionsList = null;
         currentSession = null;
-        logFile = null;
-    }   //closeLogFile
+        store = null;
+    }   //writeLogFile
+
+    /**
+     * This method returns the log data of the attendants and the past sessions, i.e. what is
+     * saved to the store. The current meeting session is not included.
+     *
+     * @return log data.
+     */
+    public synchronized LogData getLogData()
+    {
+        int numAttendants = attendantsList.size();
+        ArrayList<String> names = new ArrayList<String>(numAttendants);
+        ArrayList<String> ids = new ArrayList<String>(numAttendants);
+        ArrayList<String[]> sessions = new ArrayList<String[]>(sessionsList.size());
+        ArrayList<long[]> minutes = new ArrayList<long[]>(sessionsList.size());
+
+        for (int i = 0; i < numAttendants; i++)
+        {
+            names.add(attendantsList.get(i).toString());
+            ids.add(attendantsList.get(i).getId());
+        }
+
+        for (int i = 0; i < sessionsList.size(); i++)
+        {
+            long[] sessionMinutes = new long[numAttendants];
+            for (int j = 0; j < numAttendants; j++)
+            {
+                sessionMinutes[j] = attendantsList.get(j).getSessionMinutes(i);
+            }
+            sessions.add(sessionsList.get(i).getInfo());
+            minutes.add(sessionMinutes);
+        }
+
+        return new LogData(names, ids, sessions, minutes);
+    }   //getLogData
 
     /**
      * This method returns the attendant with the specified name.
@@ -303,16 +992,85 @@ public class AttendanceLog
      */
     public Attendant findAttendant(String name)
     {
+        return nameMap.get(name);
+    }   //findAttendant
+
+    /**
+     * This method returns the attendant with the specified badge ID.
+     *
+     * @param id specifies the badge ID of the attendant to look for.
+     * @return attendant with the specified badge ID, null if not found.
+     */
+    public Attendant findAttendantById(String id)
+    {
+        return idMap.get(id);
+    }   //findAttendantById
+
+    /**
+     * This method rebuilds the weekly and monthly rollups from all past sessions if the past
+     * sessions or the attendants list changed since they were last built.
+     */
+    private void updateRollups()
+    {
+        if (rollupsVersion != version)
+        {
+            buildRollups();
+            rollupsVersion = version;
+        }
+    }   //updateRollups
+
+    /**
+     * This method rebuilds the weekly and monthly rollups from all past sessions.
+     */
+    private void buildRollups()
+    {
+        long[] epochDays = new long[sessionsList.size()];
+
+        for (int i = 0; i < epochDays.length; i++)
+        {
+            epochDays[i] = sessionsList.get(i).getEpochDay();
+        }
+        weeklyRollup.clear();
+        monthlyRollup.clear();
+        weeklyRollup.addSessions(epochDays, attendantsList);
+        monthlyRollup.addSessions(epochDays, attendantsList);
+    }   //buildRollups
+
+    /**
+     * This method adds the minutes of each attendant of the specified past session to the
+     * weekly and monthly rollups.
+     *
+     * @param sessionIndex specifies the index of the past session.
+     */
+    private void addRollups(int sessionIndex)
+    {
+        long epochDay = sessionsList.get(sessionIndex).getEpochDay();
+
+        weeklyRollup.addSession(epochDay, attendantsList, sessionIndex);
+        monthlyRollup.addSession(epochDay, attendantsList, sessionIndex);
+    }   //addRollups
+
+    /**
+     * This method rebuilds the name and badge ID to attendant hash indices from the attendants
+     * list. New indices are built and then published so that lookups from other threads never
+     * see a partially built index.
+     */
+    private void buildIndices()
+    {
+        HashMap<String, Attendant> newNameMap = new HashMap<String, Attendant>();
+        HashMap<String, Attendant> newIdMap = new HashMap<String, Attendant>();
+
         for (int i = 0; i < attendantsList.size(); i++)
         {
             Attendant attendant = attendantsList.get(i);
-            if (name.equals(attendant.toString()))
+            newNameMap.putIfAbsent(attendant.toString(), attendant);
+            if (attendant.getId() != null)
             {
-                return attendant;
+                newIdMap.put(attendant.getId(), attendant);
             }
         }
-
-        return null;
-    }   //findAttendant
+        nameMap = newNameMap;
+        idMap = newIdMap;
+    }   //buildIndices
 
 }   //class AttendanceLog
@@ -0,0 +1,133 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class implements an event published by an AttendanceLog to its listeners (see
+ * AttendanceLogListener). Check-in and check-out events carry the attendants of the transaction,
+ * roster events the attendants added, removed or changed, and session events the session. Events
+ * are created by the AttendanceLog only; the sequence number orders them in publication order.
+ */
+public class AttendanceLogEvent
+{
+    /**
+     * Specifies the type of a log event.
+     */
+    public enum Type
+    {
+        CHECK_IN,
+        CHECK_OUT,
+        ATTENDANTS_ADDED,
+        ATTENDANTS_REMOVED,
+        ATTENDANTS_CHANGED,
+        SESSION_CREATED,
+        SESSION_CLOSED,
+        SESSIONS_CHANGED
+    }   //enum Type
+
+    private final Type type;
+    private final List<Attendant> attendants;
+    private final Session session;
+    private final long timestamp;
+    private final long sequence;
+
+    /**
+     * Constructor: Create an instance of the object.
+     *
+     * @param type specifies the event type.
+     * @param attendants specifies the attendants of the event, empty for a session event.
+     * @param session specifies the session of a session event, null otherwise.
+     * @param timestamp specifies the time of the event.
+     * @param sequence specifies the sequence number of the event.
+     */
+    AttendanceLogEvent(Type type, List<Attendant> attendants, Session session, long timestamp, long sequence)
+    {
+        this.type = type;
+        this.attendants = Collections.unmodifiableList(attendants);
+        this.session = session;
+        this.timestamp = timestamp;
+        this.sequence = sequence;
+    }   //AttendanceLogEvent
+
+    /**
+     * This method returns the event type.
+     *
+     * @return event type.
+     */
+    public Type getType()
+    {
+        return type;
+    }   //getType
+
+    /**
+     * This method returns the attendants of the event.
+     *
+     * @return unmodifiable list of attendants.
+     */
+    public List<Attendant> getAttendants()
+    {
+        return attendants;
+    }   //getAttendants
+
+    /**
+     * This method returns the session of a session event.
+     *
+     * @return session, null if it is not a session event.
+     */
+    public Session getSession()
+    {
+        return session;
+    }   //getSession
+
+    /**
+     * This method returns the time of the event. It is the transaction time of a check-in or
+     * check-out and the publication time of any other event.
+     *
+     * @return time of the event.
+     */
+    public long getTimestamp()
+    {
+        return timestamp;
+    }   //getTimestamp
+
+    /**
+     * This method returns the sequence number of the event.
+     *
+     * @return sequence number, starting at 1 for the first event of the log.
+     */
+    public long getSequence()
+    {
+        return sequence;
+    }   //getSequence
+
+    /**
+     * This method returns a string representation of the event for debugging purpose.
+     */
+    public String toString()
+    {
+        return sequence + "," + type + "," + attendants + "," + timestamp;
+    }   //toString
+
+}   //class AttendanceLogEvent
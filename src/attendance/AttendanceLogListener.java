@@ -0,0 +1,44 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.List;
+
+/**
+ * This interface is implemented by the subscribers of an AttendanceLog, e.g. the UI, the session
+ * journal or the occupancy counters (see AttendanceLog.addListener). Events are delivered in
+ * publication order on the log's dispatcher thread. Events published in a burst, e.g. several
+ * input sources checking in at once, are delivered together in one call, so a listener should
+ * do its work once per call rather than once per event. A listener must not block for long since
+ * it delays the other listeners, but it never delays the check-ins themselves.
+ */
+public interface AttendanceLogListener
+{
+    /**
+     * This method is called with the events published since the previous call.
+     *
+     * @param log specifies the AttendanceLog that published the events.
+     * @param events specifies the events in publication order.
+     */
+    void onLogEvents(AttendanceLog log, List<AttendanceLogEvent> events);
+
+}   //interface AttendanceLogListener
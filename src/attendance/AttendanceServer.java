@@ -0,0 +1,379 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * This class implements a small HTTP/JSON API on top of an AttendanceLog, so that a phone or a
+ * second kiosk can check attendants in and out of the current meeting. It uses the JDK's built-in
+ * HTTP server. Requests are handled by a fixed size thread pool with a bounded queue; when the
+ * queue is full, the server's dispatcher thread handles the request itself, which slows down
+ * accepting new connections instead of queuing without limit. The endpoints are:
+ *  POST /checkin       - checks in the attendant given by the name or id parameter.
+ *  POST /checkout      - checks out the attendant given by the name or id parameter.
+ *  GET /present        - returns the names of the attendants currently checked in.
+ *  GET /totals         - returns the total minutes and sessions of every attendant, including
+ *                        the current meeting so far.
+ * Parameters are taken from the query string or from a form encoded request body of at most
+ * MAX_BODY_SIZE bytes. All responses are JSON objects; errors have an "error" field.
+ * The API has no authentication, so the server only listens on the loopback interface unless a
+ * host address is given, e.g. 0.0.0.0 to take requests from phones on the local network.
+ */
+public class AttendanceServer implements HttpHandler
+{
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final int MAX_BODY_SIZE = 4*1024;
+
+    /**
+     * This class contains the error of a request that is reported to the client with an HTTP
+     * status code.
+     */
+    private static class RequestException extends Exception
+    {
+        private static final long serialVersionUID = 1L;
+        int status;
+
+        /**
+         * Constructor: Create an instance of the object.
+         *
+         * @param status specifies the HTTP status code.
+         * @param message specifies the error message.
+         */
+        RequestException(int status, String message)
+        {
+            super(message);
+            this.status = status;
+        }   //RequestException
+
+    }   //class RequestException
+
+    private HttpServer server;
+    private ThreadPoolExecutor executor;
+    private volatile AttendanceLog log = null;
+
+    /**
+     * Constructor: Create an instance of the object. The server does not accept requests until
+     * it is started.
+     *
+     * @param host specifies the address to listen on, null for the loopback interface only.
+     * @param port specifies the TCP port to listen on.
+     * @param numThreads specifies the number of request handler threads.
+     * @throws IOException if the port cannot be opened or the host address is unknown.
+     */
+    public AttendanceServer(String host, int port, int numThreads) throws IOException
+    {
+        //
+        // The server writes the response headers and body separately. Without TCP_NODELAY, the
+        // body waits for the client's delayed ACK of the headers, adding ~40 ms to every request.
+        // The property is read once when the server implementation is loaded.
+        //
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+        {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(
+                host != null? InetAddress.getByName(host): InetAddress.getLoopbackAddress(), port), 0);
+        executor = new ThreadPoolExecutor(
+                numThreads, numThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY), new ThreadPoolExecutor.CallerRunsPolicy());
+        server.setExecutor(executor);
+
+        server.createContext("/checkin", this);
+        server.createContext("/checkout", this);
+        server.createContext("/present", this);
+        server.createContext("/totals", this);
+    }   //AttendanceServer
+
+    /**
+     * This method starts accepting requests.
+     */
+    public void start()
+    {
+        server.start();
+    }   //start
+
+    /**
+     * This method stops the server. Requests being handled are given a moment to finish.
+     */
+    public void stop()
+    {
+        server.stop(1);
+        executor.shutdown();
+    }   //stop
+
+    /**
+     * This method returns the TCP port the server is listening on.
+     *
+     * @return port number.
+     */
+    public int getPort()
+    {
+        return server.getAddress().getPort();
+    }   //getPort
+
+    /**
+     * This method sets the attendance log served. Requests are rejected while there is none.
+     *
+     * @param log specifies the attendance log, null if there is none.
+     */
+    public void setLog(AttendanceLog log)
+    {
+        this.log = log;
+    }   //setLog
+
+    /**
+     * This method checks an attendant in or out.
+     *
+     * @param log specifies the attendance log.
+     * @param parameters specifies the request parameters.
+     * @param checkOut specifies true to check out, false to check in.
+     * @return JSON response.
+     * @throws RequestException if the attendant is not specified or not found, or the meeting
+     *         has been closed.
+     */
+    private String handleTransaction(AttendanceLog log, Map<String, String> parameters, boolean checkOut)
+        throws RequestException
+    {
+        String name = parameters.get("name");
+        String id = parameters.get("id");
+        Attendant attendant;
+
+        if (name != null)
+        {
+            attendant = log.findAttendant(name);
+        }
+        else if (id != null)
+        {
+            attendant = log.findAttendantById(id.trim());
+        }
+        else
+        {
+            throw new RequestException(400, "Missing name or id parameter.");
+        }
+
+        if (attendant == null)
+        {
+            throw new RequestException(404, "Attendant not found.");
+        }
+
+        long timestamp = System.currentTimeMillis();
+        boolean changed = checkOut? log.checkOut(attendant, timestamp): log.checkIn(attendant, timestamp);
+        if (!changed && log.getCurrentSession() == null)
+        {
+            //
+            // The meeting was closed while the request was being handled.
+            //
+            throw new RequestException(503, "No meeting is in progress.");
+        }
+
+        return "{\"name\":" + JsonLinesExporter.quote(attendant.toString()) +
+               ",\"checkedIn\":" + attendant.isCheckedIn() + ",\"changed\":" + changed + "}";
+    }   //handleTransaction
+
+    /**
+     * This method returns the attendants currently checked in.
+     *
+     * @param log specifies the attendance log.
+     * @return JSON response.
+     */
+    private String getPresent(AttendanceLog log)
+    {
+        StringBuilder response = new StringBuilder("{\"present\":[");
+        int count = 0;
+
+        for (Attendant attendant: log.getAttendants())
+        {
+            if (attendant.isCheckedIn())
+            {
+                response.append(count > 0? ",": "").append(JsonLinesExporter.quote(attendant.toString()));
+                count++;
+            }
+        }
+        response.append("],\"count\":").append(count).append("}");
+
+        return response.toString();
+    }   //getPresent
+
+    /**
+     * This method returns the attendance totals of every attendant.
+     *
+     * @param log specifies the attendance log.
+     * @return JSON response.
+     */
+    private String getTotals(AttendanceLog log)
+    {
+        StringBuilder response = new StringBuilder("{\"attendants\":[");
+        boolean first = true;
+
+        for (Attendant attendant: log.getAttendants())
+        {
+            long currentMinutes = attendant.getCurrentSessionMinutes();
+            response.append(first? "": ",")
+                    .append("{\"name\":").append(JsonLinesExporter.quote(attendant.toString()))
+                    .append(",\"minutes\":").append(attendant.getTotalMinutes() + currentMinutes)
+                    .append(",\"sessions\":").append(attendant.getNumSessionsAttended() + (currentMinutes > 0? 1: 0))
+                    .append("}");
+            first = false;
+        }
+        response.append("]}");
+
+        return response.toString();
+    }   //getTotals
+
+    /**
+     * This method returns the parameters of a request from the query string and, if the request
+     * has a form encoded body, from the body.
+     *
+     * @param exchange specifies the request.
+     * @return map of parameter names to values.
+     * @throws RequestException if the request body cannot be read, is not form encoded or is
+     *         larger than MAX_BODY_SIZE.
+     */
+    private static Map<String, String> getParameters(HttpExchange exchange) throws RequestException
+    {
+        HashMap<String, String> parameters = new HashMap<String, String>();
+
+        try
+        {
+            parseParameters(exchange.getRequestURI().getRawQuery(), parameters);
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (InputStream input = exchange.getRequestBody())
+            {
+                byte[] buffer = new byte[1024];
+                int length;
+                while ((length = input.read(buffer)) > 0)
+                {
+                    if (body.size() + length > MAX_BODY_SIZE)
+                    {
+                        throw new RequestException(413, "Request body too large.");
+                    }
+                    body.write(buffer, 0, length);
+                }
+            }
+            parseParameters(new String(body.toByteArray(), StandardCharsets.UTF_8), parameters);
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            throw new RequestException(400, "Invalid request (" + e.getMessage() + ").");
+        }
+
+        return parameters;
+    }   //getParameters
+
+    /**
+     * This method parses form encoded parameters (name1=value1&amp;name2=value2).
+     *
+     * @param text specifies the encoded parameters, may be null.
+     * @param parameters specifies the map to add the parameters to.
+     * @throws UnsupportedEncodingException never, UTF-8 is always supported.
+     */
+    private static void parseParameters(String text, Map<String, String> parameters)
+        throws UnsupportedEncodingException
+    {
+        if (text != null && text.length() > 0)
+        {
+            for (String parameter: text.split("&"))
+            {
+                int index = parameter.indexOf('=');
+                if (index > 0)
+                {
+                    parameters.put(URLDecoder.decode(parameter.substring(0, index), "UTF-8"),
+                                   URLDecoder.decode(parameter.substring(index + 1), "UTF-8"));
+                }
+            }
+        }
+    }   //parseParameters
+
+    //
+    // Implements HttpHandler interface.
+    //
+
+    /**
+     * This method is called on a request handler thread to handle a request and send the
+     * response.
+     *
+     * @param exchange specifies the request and response.
+     * @throws IOException if the response cannot be sent.
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException
+    {
+        String path = exchange.getHttpContext().getPath();
+        boolean transaction = path.equals("/checkin") || path.equals("/checkout");
+        int status = 200;
+        String response;
+
+        try
+        {
+            AttendanceLog log = this.log;
+            if (log == null)
+            {
+                throw new RequestException(503, "No meeting is in progress.");
+            }
+
+            String method = exchange.getRequestMethod();
+            if (!method.equalsIgnoreCase(transaction? "POST": "GET"))
+            {
+                throw new RequestException(405, transaction? "Use POST.": "Use GET.");
+            }
+
+            if (transaction)
+            {
+                response = handleTransaction(log, getParameters(exchange), path.equals("/checkout"));
+            }
+            else if (path.equals("/present"))
+            {
+                response = getPresent(log);
+            }
+            else
+            {
+                response = getTotals(log);
+            }
+        }
+        catch (RequestException e)
+        {
+            status = e.status;
+            response = "{\"error\":" + JsonLinesExporter.quote(e.getMessage()) + "}";
+        }
+
+        byte[] body = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody())
+        {
+            output.write(body);
+        }
+    }   //handle
+
+}   //class AttendanceServer
@@ -0,0 +1,97 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * This interface is implemented by the storage backends of an AttendanceLog. A store loads the
+ * log data when the log is opened and saves it when the log is closed; everything in between
+ * happens in memory. The backends are:
+ *  csv     - the Excel CSV log file (see CsvAttendanceStore). This is the default.
+ *  binary  - a compact binary file that loads and saves faster (see BinaryAttendanceStore).
+ *  memory  - keeps the data in memory only (see MemoryAttendanceStore).
+ */
+public interface AttendanceStore
+{
+    /**
+     * This method creates a store of the specified type.
+     *
+     * @param type specifies the store type: csv, binary or memory.
+     * @param file specifies the log file. A memory store is filled from the CSV log file if it
+     *             exists but never writes it.
+     * @return new store.
+     * @throws IOException if the memory store cannot be filled from the log file.
+     * @throws IllegalArgumentException if the store type is unknown or the log file contains
+     *         invalid data.
+     */
+    static AttendanceStore create(String type, File file) throws IOException, IllegalArgumentException
+    {
+        AttendanceStore store;
+
+        if (type.equalsIgnoreCase("csv"))
+        {
+            store = new CsvAttendanceStore(file);
+        }
+        else if (type.equalsIgnoreCase("binary"))
+        {
+            store = new BinaryAttendanceStore(file);
+        }
+        else if (type.equalsIgnoreCase("memory"))
+        {
+            store = new MemoryAttendanceStore(file, file.exists()? new CsvAttendanceStore(file).load(): null);
+        }
+        else
+        {
+            throw new IllegalArgumentException("Unknown store type \"" + type + "\".");
+        }
+
+        return store;
+    }   //create
+
+    /**
+     * This method returns the log file of the store. Related files such as the event store are
+     * kept next to it.
+     *
+     * @return log file.
+     */
+    File getFile();
+
+    /**
+     * This method loads the log data.
+     *
+     * @return log data.
+     * @throws IOException if the log data cannot be read.
+     * @throws IllegalArgumentException if the log data is invalid.
+     */
+    LogData load() throws IOException, IllegalArgumentException;
+
+    /**
+     * This method saves the log data, replacing what was saved before.
+     *
+     * @param data specifies the log data.
+     * @throws IOException if the log data cannot be written.
+     */
+    void save(LogData data) throws IOException;
+
+}   //interface AttendanceStore
@@ -24,10 +24,16 @@ package attendance;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class implements an attendant. An attendant has a name and the attendance history of
  * all the past meeting sessions. It also records the state of the current meeting session.
+ * The current session state is atomic so that check-ins and check-outs from several input
+ * sources (touch screen, badge scanner, network) never need a lock: checking in succeeds only
+ * for the one caller that changes the check-in time from zero, and checking out only for the
+ * one that changes it back. The past session history is only changed at session boundaries
+ * and is guarded by the attendant's monitor.
  */
 public class Attendant
 {
@@ -54,10 +60,13 @@ public class Attendant
 
     }   //class NameComparator
 
-    private String name;
+    private volatile String name;
+    private volatile String id = null;
     private ArrayList<Long> sessionTimes = new ArrayList<Long>();
-    private long currentSessionTime = 0;
-    private long checkInTime = 0;
+    private long totalMinutes = 0;
+    private int numSessionsAttended = 0;
+    private final AtomicLong currentSessionTime = new AtomicLong(0);
+    private final AtomicLong checkInTime = new AtomicLong(0);
 
     /**
      * Constructor: Creates an instance of the object.
@@ -89,6 +98,46 @@ public class Attendant
         return name;
     }   //toString
 
+    /**
+     * This method renames the attendant, e.g. when the name is corrected in the log file.
+     *
+     * @param name specifies the new name of the attendant.
+     */
+    public void setName(String name)
+    {
+        this.name = name;
+    }   //setName
+
+    /**
+     * This method returns the badge ID of the attendant.
+     *
+     * @return badge ID of the attendant, null if the attendant has no badge.
+     */
+    public String getId()
+    {
+        return id;
+    }   //getId
+
+    /**
+     * This method sets the badge ID of the attendant.
+     *
+     * @param id specifies the badge ID, null or empty if the attendant has no badge.
+     */
+    public void setId(String id)
+    {
+        this.id = id != null && id.trim().length() > 0? id.trim(): null;
+    }   //setId
+
+    /**
+     * This method determines if the attendant is currently checked in.
+     *
+     * @return true if the attendant is checked in, false otherwise.
+     */
+    public boolean isCheckedIn()
+    {
+        return checkInTime.get() != 0;
+    }   //isCheckedIn
+
     /**
      * This method is called to check-in the attendant. It records the check-in time for the
      * current meeting session.
@@ -97,16 +146,24 @@ public class Attendant
      */
     public void checkIn(long timestamp)
     {
-        if (checkInTime == 0)
-        {
-            checkInTime = timestamp;
-        }
-        else
+        if (!tryCheckIn(timestamp))
         {
             throw new IllegalStateException("Attendant " + name + " already checked in.");
         }
     }   //checkIn
 
+    /**
+     * This method checks in the attendant if the attendant is not already checked in. If several
+     * threads try to check in the same attendant at once, only one of them succeeds.
+     *
+     * @param timestamp specifies the check-in time, must not be zero.
+     * @return true if the attendant is checked in by this call, false if already checked in.
+     */
+    public boolean tryCheckIn(long timestamp)
+    {
+        return checkInTime.compareAndSet(0, timestamp);
+    }   //tryCheckIn
+
     /**
      * This method is called to check-out the attendant. It records the attendance duration
      * for the current meeting session.
@@ -115,17 +172,31 @@ public class Attendant
      */
     public void checkOut(long timestamp)
     {
-        if (checkInTime != 0)
-        {
-            currentSessionTime += timestamp - checkInTime;
-            checkInTime = 0;
-        }
-        else
+        if (!tryCheckOut(timestamp))
         {
             throw new IllegalStateException("Attendant " + name + " was not checked in.");
         }
     }   //checkOut
 
+    /**
+     * This method checks out the attendant if the attendant is checked in. If several threads
+     * try to check out the same attendant at once, only one of them succeeds.
+     *
+     * @param timestamp specifies the check-out time.
+     * @return true if the attendant is checked out by this call, false if not checked in.
+     */
+    public boolean tryCheckOut(long timestamp)
+    {
+        long checkInTime = this.checkInTime.getAndSet(0);
+
+        if (checkInTime != 0)
+        {
+            currentSessionTime.addAndGet(timestamp - checkInTime);
+        }
+
+        return checkInTime != 0;
+    }   //tryCheckOut
+
     /**
      * This method returns the attendance duration of the current meeting session in minutes.
      *
@@ -133,7 +204,7 @@ public class Attendant
      */
     public long getCurrentSessionMinutes()
     {
-        return Math.round(currentSessionTime/60000.0);
+        return Math.round(currentSessionTime.get()/60000.0);
     }   //getCurrentSessionMinutes
 
     /**
@@ -143,7 +214,7 @@ public class Attendant
      * @param index specifies the index of the past meeting session.
      * @return attendance duration in minutes of specified past meeting sessino.
      */
-    public long getSessionMinutes(int index)
+    public synchronized long getSessionMinutes(int index)
     {
         return index < sessionTimes.size()? sessionTimes.get(index): 0;
     }   //getSessionMinutes
@@ -153,9 +224,76 @@ public class Attendant
      *
      * @param minutes specifies the attendance duration in minutes of the new session.
      */
-    public void addSession(long minutes)
+    public synchronized void addSession(long minutes)
     {
         sessionTimes.add(minutes);
+        totalMinutes += minutes;
+        if (minutes > 0)
+        {
+            numSessionsAttended++;
+        }
     }   //addSession
 
+    /**
+     * This method replaces the attendance duration of the specified past meeting session. If the
+     * attendant has fewer past sessions, the missing sessions are filled in with zero minutes.
+     *
+     * @param index specifies the index of the past meeting session.
+     * @param minutes specifies the attendance duration in minutes.
+     */
+    public synchronized void setSessionMinutes(int index, long minutes)
+    {
+        while (sessionTimes.size() <= index)
+        {
+            addSession(0);
+        }
+
+        long oldMinutes = sessionTimes.set(index, minutes);
+        totalMinutes += minutes - oldMinutes;
+        if (oldMinutes > 0)
+        {
+            numSessionsAttended--;
+        }
+        if (minutes > 0)
+        {
+            numSessionsAttended++;
+        }
+    }   //setSessionMinutes
+
+    /**
+     * This method closes the current meeting session by adding its attendance duration to the
+     * past meeting sessions. If the attendant was added after some of the past sessions, those
+     * sessions are filled in with zero minutes first.
+     *
+     * @param numPastSessions specifies the number of past sessions before the current session.
+     */
+    public synchronized void closeSession(int numPastSessions)
+    {
+        while (sessionTimes.size() < numPastSessions)
+        {
+            addSession(0);
+        }
+        addSession(Math.round(currentSessionTime.getAndSet(0)/60000.0));
+    }   //closeSession
+
+    /**
+     * This method returns the total attendance duration of all past meeting sessions.
+     *
+     * @return total attendance duration in minutes.
+     */
+    public synchronized long getTotalMinutes()
+    {
+        return totalMinutes;
+    }   //getTotalMinutes
+
+    /**
+     * This method returns the number of past meeting sessions the attendant has attended.
+     *
+     * @return number of sessions attended.
+     */
+    public synchronized int getNumSessionsAttended()
+    {
+        return numSessionsAttended;
+    }   //getNumSessionsAttended
+
 }   //class Attendant
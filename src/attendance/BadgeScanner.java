@@ -0,0 +1,100 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.HashMap;
+
+/**
+ * This class processes badge scans for an AttendanceLog. Each scan looks up the attendant by
+ * badge ID and toggles the attendant between checked in and checked out. A scan of the same badge
+ * within the debounce period of the previous one is ignored so that a badge held at the scanner
+ * does not check the attendant in and right back out. It doesn't depend on any UI so the same
+ * logic serves the badge field of the Attendance pane and the stdin adapter of the headless
+ * daemon. The check-ins and check-outs reach the UI and the session journal as events of the log.
+ */
+public class BadgeScanner
+{
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 5000;
+
+    private AttendanceLog log;
+    private long debounceMillis;
+    private HashMap<Attendant, Long> lastScanTimes = new HashMap<Attendant, Long>();
+
+    /**
+     * Constructor: Create an instance of the object.
+     *
+     * @param log specifies the attendance log.
+     * @param debounceMillis specifies the period in milliseconds in which repeated scans of the
+     *        same badge are ignored.
+     */
+    public BadgeScanner(AttendanceLog log, long debounceMillis)
+    {
+        this.log = log;
+        this.debounceMillis = debounceMillis;
+    }   //BadgeScanner
+
+    /**
+     * This method returns the attendance log of the scanner.
+     *
+     * @return attendance log.
+     */
+    public AttendanceLog getLog()
+    {
+        return log;
+    }   //getLog
+
+    /**
+     * This method processes a badge scan.
+     *
+     * @param id specifies the scanned badge ID.
+     * @param timestamp specifies the scan time.
+     * @return true if the badge belongs to an attendant, false if it is unknown.
+     */
+    public synchronized boolean processScan(String id, long timestamp)
+    {
+        Attendant attendant = id.length() > 0? log.findAttendantById(id): null;
+
+        if (attendant != null)
+        {
+            Long lastScanTime = lastScanTimes.get(attendant);
+            if (lastScanTime == null || timestamp - lastScanTime >= debounceMillis)
+            {
+                lastScanTimes.put(attendant, timestamp);
+                //
+                // Another input source may toggle the attendant at the same time, in which case
+                // the check-in or check-out fails and there is nothing to do.
+                //
+                if (attendant.isCheckedIn())
+                {
+                    log.checkOut(attendant, timestamp);
+                }
+                else
+                {
+                    log.checkIn(attendant, timestamp);
+                }
+            }
+        }
+
+        return attendant != null;
+    }   //processScan
+
+}   //class BadgeScanner
@@ -0,0 +1,356 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class implements the binary store of an AttendanceLog. The log file starts with a magic
+ * number and format version followed by the attendant names and badge IDs, then each past session
+ * with its meeting info and the attendance minutes of each attendant. Numbers are written as
+ * variable length integers (7 bits per byte), so a typical session time takes one or two bytes,
+ * and strings as their UTF-8 length and bytes. The file is read in one piece and decoded from
+ * memory, and written through a buffer a session at a time, without splitting or parsing any
+ * text. The file is written to a temporary file first, synced to the disk and then atomically
+ * moved over the log file, so that a crash leaves either the old or the new log but never a
+ * partially written one or none at all.
+ */
+public class BinaryAttendanceStore implements AttendanceStore
+{
+    private static final int MAGIC = 0x54524341;
+    private static final int VERSION = 1;
+    private static final int MAX_VARINT_BYTES = 10;
+
+    private final File file;
+
+    /**
+     * This class implements the encoder of the log file. It accumulates the encoded data in a
+     * buffer and writes it out whenever it could overflow.
+     */
+    private static class Encoder
+    {
+        private final OutputStream output;
+        private byte[] buffer = new byte[64*1024];
+        private int length = 0;
+
+        /**
+         * Constructor: Create an instance of the object.
+         *
+         * @param output specifies the stream to write the encoded data to.
+         */
+        Encoder(OutputStream output)
+        {
+            this.output = output;
+        }   //Encoder
+
+        /**
+         * This method makes room in the buffer for the specified number of bytes.
+         *
+         * @param numBytes specifies the number of bytes.
+         * @throws IOException if the buffer cannot be written out.
+         */
+        private void reserve(int numBytes) throws IOException
+        {
+            if (length + numBytes > buffer.length)
+            {
+                flush();
+                if (numBytes > buffer.length)
+                {
+                    buffer = new byte[numBytes];
+                }
+            }
+        }   //reserve
+
+        /**
+         * This method encodes a fixed size int.
+         *
+         * @param value specifies the value.
+         * @throws IOException if the buffer cannot be written out.
+         */
+        void putInt(int value) throws IOException
+        {
+            reserve(4);
+            buffer[length++] = (byte)(value >>> 24);
+            buffer[length++] = (byte)(value >>> 16);
+            buffer[length++] = (byte)(value >>> 8);
+            buffer[length++] = (byte)value;
+        }   //putInt
+
+        /**
+         * This method encodes a variable length integer.
+         *
+         * @param value specifies the value.
+         * @throws IOException if the buffer cannot be written out.
+         */
+        void putVarLong(long value) throws IOException
+        {
+            reserve(MAX_VARINT_BYTES);
+            while ((value & ~0x7fL) != 0)
+            {
+                buffer[length++] = (byte)((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            buffer[length++] = (byte)value;
+        }   //putVarLong
+
+        /**
+         * This method encodes a string.
+         *
+         * @param value specifies the string.
+         * @throws IOException if the buffer cannot be written out.
+         */
+        void putString(String value) throws IOException
+        {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putVarLong(bytes.length);
+            reserve(bytes.length);
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+        }   //putString
+
+        /**
+         * This method writes out the encoded data.
+         *
+         * @throws IOException if the data cannot be written.
+         */
+        void flush() throws IOException
+        {
+            output.write(buffer, 0, length);
+            length = 0;
+        }   //flush
+
+    }   //class Encoder
+
+    /**
+     * This class implements the decoder of the log file read in memory.
+     */
+    private static class Decoder
+    {
+        private final byte[] data;
+        private int position = 0;
+
+        /**
+         * Constructor: Create an instance of the object.
+         *
+         * @param data specifies the content of the log file.
+         */
+        Decoder(byte[] data)
+        {
+            this.data = data;
+        }   //Decoder
+
+        /**
+         * This method decodes a fixed size int.
+         *
+         * @return value.
+         * @throws ArrayIndexOutOfBoundsException if the data is truncated.
+         */
+        int getInt()
+        {
+            int value = ((data[position] & 0xff) << 24) | ((data[position + 1] & 0xff) << 16) |
+                        ((data[position + 2] & 0xff) << 8) | (data[position + 3] & 0xff);
+            position += 4;
+            return value;
+        }   //getInt
+
+        /**
+         * This method decodes a variable length integer.
+         *
+         * @return value.
+         * @throws ArrayIndexOutOfBoundsException if the data is truncated.
+         */
+        long getVarLong()
+        {
+            long value = 0;
+            int shift = 0;
+            byte b;
+
+            do
+            {
+                b = data[position++];
+                value |= (long)(b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            return value;
+        }   //getVarLong
+
+        /**
+         * This method decodes a string.
+         *
+         * @return string.
+         * @throws ArrayIndexOutOfBoundsException if the data is truncated.
+         */
+        String getString()
+        {
+            int length = (int)getVarLong();
+            if (length < 0 || length > data.length - position)
+            {
+                throw new ArrayIndexOutOfBoundsException(position);
+            }
+
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }   //getString
+
+    }   //class Decoder
+
+    /**
+     * Constructor: Create an instance of the object.
+     *
+     * @param file specifies the log file.
+     */
+    public BinaryAttendanceStore(File file)
+    {
+        this.file = file;
+    }   //BinaryAttendanceStore
+
+    /**
+     * This method returns the log file of the store.
+     *
+     * @return log file.
+     */
+    @Override
+    public File getFile()
+    {
+        return file;
+    }   //getFile
+
+    /**
+     * This method loads the log data from the log file.
+     *
+     * @return log data.
+     * @throws FileNotFoundException if the log file does not exist.
+     * @throws IOException if the log file cannot be read.
+     * @throws IllegalArgumentException if the log file is not a binary log file.
+     */
+    @Override
+    public LogData load() throws IOException, IllegalArgumentException
+    {
+        if (!file.exists())
+        {
+            throw new FileNotFoundException(file + " does not exist.");
+        }
+
+        Decoder input = new Decoder(Files.readAllBytes(file.toPath()));
+        try
+        {
+            if (input.getInt() != MAGIC || input.getInt() != VERSION)
+            {
+                throw new IllegalArgumentException(file + " is not a binary log file.");
+            }
+
+            int numAttendants = (int)input.getVarLong();
+            ArrayList<String> names = new ArrayList<String>(numAttendants);
+            ArrayList<String> ids = new ArrayList<String>(numAttendants);
+            for (int i = 0; i < numAttendants; i++)
+            {
+                names.add(input.getString());
+                String id = input.getString();
+                ids.add(id.length() > 0? id: null);
+            }
+
+            int numSessions = (int)input.getVarLong();
+            ArrayList<String[]> sessions = new ArrayList<String[]>(numSessions);
+            ArrayList<long[]> minutes = new ArrayList<long[]>(numSessions);
+            for (int i = 0; i < numSessions; i++)
+            {
+                String[] info = new String[Session.header.length];
+                for (int j = 0; j < info.length; j++)
+                {
+                    info[j] = input.getString();
+                }
+
+                long[] sessionMinutes = new long[numAttendants];
+                for (int j = 0; j < numAttendants; j++)
+                {
+                    sessionMinutes[j] = input.getVarLong();
+                }
+                sessions.add(info);
+                minutes.add(sessionMinutes);
+            }
+
+            return new LogData(names, ids, sessions, minutes);
+        }
+        catch (ArrayIndexOutOfBoundsException | NegativeArraySizeException e)
+        {
+            throw new IllegalArgumentException(file + " is truncated.");
+        }
+    }   //load
+
+    /**
+     * This method saves the log data to the log file.
+     *
+     * @param data specifies the log data.
+     * @throws IOException if the log file cannot be written.
+     */
+    @Override
+    public void save(LogData data) throws IOException
+    {
+        List<String> names = data.getNames();
+        List<String> ids = data.getIds();
+        List<String[]> sessions = data.getSessions();
+        List<long[]> minutes = data.getMinutes();
+        File tempFile = new File(file.getPath() + ".tmp");
+
+        try (FileOutputStream stream = new FileOutputStream(tempFile))
+        {
+            Encoder output = new Encoder(stream);
+            output.putInt(MAGIC);
+            output.putInt(VERSION);
+            output.putVarLong(names.size());
+            for (int i = 0; i < names.size(); i++)
+            {
+                output.putString(names.get(i));
+                output.putString(ids.get(i) != null? ids.get(i): "");
+            }
+
+            output.putVarLong(sessions.size());
+            for (int i = 0; i < sessions.size(); i++)
+            {
+                String[] info = sessions.get(i);
+                for (int j = 0; j < Session.header.length; j++)
+                {
+                    output.putString(info[j]);
+                }
+
+                long[] sessionMinutes = minutes.get(i);
+                for (int j = 0; j < sessionMinutes.length; j++)
+                {
+                    output.putVarLong(sessionMinutes[j]);
+                }
+            }
+            output.flush();
+            stream.getFD().sync();
+        }
+
+        Files.move(tempFile.toPath(), file.toPath(),
+                   StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }   //save
+
+}   //class BinaryAttendanceStore
@@ -0,0 +1,479 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * This class implements the CSV store of an AttendanceLog, i.e. the Excel CSV log file. The
+ * first line is the header with the meeting info columns followed by the attendant names. It may
+ * be followed by an ID row with "ID" in the Date column and the badge ID of each attendant in the
+ * attendant columns. Each following line is a past session with its meeting info followed by the
+ * attendance minutes of each attendant. The non-blank lines of the log file as last loaded are
+ * kept so that changes made by other programs can be merged (see LogFileChanges). The log file
+ * is parsed by the Reader, which can also stream a log file of any size one session at a time.
+ */
+public class CsvAttendanceStore implements AttendanceStore
+{
+    /**
+     * This class implements a reader of a CSV log file. It reads the header and the optional ID
+     * row when it is opened and then one session at a time, so that a log file of any size can be
+     * processed in constant memory.
+     */
+    public static class Reader implements Closeable
+    {
+        private BufferedReader input;
+        private Iterator<String> lines;
+        private String pendingLine = null;
+        private int numFields;
+        private ArrayList<String> names;
+        private ArrayList<String> ids;
+        private String[] sessionInfo = null;
+        private long[] sessionMinutes = null;
+
+        /**
+         * Constructor: Create an instance of the object. It opens the log file and reads the
+         * header and the optional ID row.
+         *
+         * @param file specifies the log file.
+         * @throws FileNotFoundException if the log file does not exist.
+         * @throws IOException if the log file cannot be read.
+         * @throws IllegalArgumentException if the header or the ID row is invalid.
+         */
+        public Reader(File file) throws IOException, IllegalArgumentException
+        {
+            input = new BufferedReader(new FileReader(file));
+            try
+            {
+                readHeader();
+            }
+            catch (IOException | IllegalArgumentException e)
+            {
+                input.close();
+                throw e;
+            }
+        }   //Reader
+
+        /**
+         * Constructor: Create an instance of the object. It reads the header and the optional ID
+         * row from lines already read from the log file.
+         *
+         * @param lines specifies the non-blank lines of the log file, trimmed (see readLines).
+         * @throws IllegalArgumentException if the header or the ID row is invalid.
+         */
+        Reader(List<String> lines) throws IllegalArgumentException
+        {
+            this.lines = lines.iterator();
+            try
+            {
+                readHeader();
+            }
+            catch (IOException e)
+            {
+                //
+                // Lines in memory cannot fail to be read.
+                //
+                throw new IllegalStateException(e);
+            }
+        }   //Reader
+
+        /**
+         * This method returns the next non-blank line of the log file with leading and trailing
+         * white spaces removed.
+         *
+         * @return next line, null at the end of the log file.
+         * @throws IOException if the log file cannot be read.
+         */
+        private String readLine() throws IOException
+        {
+            String line = null;
+
+            if (pendingLine != null)
+            {
+                line = pendingLine;
+                pendingLine = null;
+            }
+            else if (input != null)
+            {
+                while ((line = input.readLine()) != null)
+                {
+                    line = line.trim();
+                    if (line.length() > 0)
+                    {
+                        break;
+                    }
+                }
+            }
+            else if (lines.hasNext())
+            {
+                line = lines.next();
+            }
+
+            return line;
+        }   //readLine
+
+        /**
+         * This method reads the header and the optional ID row.
+         *
+         * @throws IOException if the log file cannot be read.
+         * @throws IllegalArgumentException if the header or the ID row is invalid.
+         */
+        private void readHeader() throws IOException, IllegalArgumentException
+        {
+            String line = readLine();
+
+            if (line == null)
+            {
+                throw new IllegalArgumentException("Data file must have at least 6 fields (numFields=0)");
+            }
+            //
+            // Parse the header line into array of fields using comma as separator but
+            // ignoring commas inside quotes.
+            // The first 5 fields are: Date/Start Time/End Time/Place/Meeting.
+            // The rest are names of attendants.
+            //
+            String[] fields = line.split(QUOTED_SPLIT_REGEX, -1);
+            numFields = fields.length;
+            if (numFields <= Session.header.length)
+            {
+                throw new IllegalArgumentException(
+                        String.format("Data file must have at least 6 fields (numFields=%d)", numFields));
+            }
+
+            int numAttendants = numFields - Session.header.length;
+            names = new ArrayList<String>(numAttendants);
+            ids = new ArrayList<String>(numAttendants);
+            for (int i = Session.header.length; i < numFields; i++)
+            {
+                names.add(unquote(fields[i]));
+                ids.add(null);
+            }
+            //
+            // The optional ID row can only be the first row after the header.
+            //
+            line = readLine();
+            if (line != null && line.startsWith(AttendanceLog.ID_ROW_TAG + ","))
+            {
+                fields = line.split(QUOTED_SPLIT_REGEX, -1);
+                if (fields.length != numFields)
+                {
+                    throw new IllegalArgumentException(
+                            String.format("Invalid ID row (incorrect number of fields - %d).", fields.length));
+                }
+
+                for (int i = 0; i < numAttendants; i++)
+                {
+                    String id = unquote(fields[Session.header.length + i].trim());
+                    ids.set(i, id.length() > 0? id: null);
+                }
+            }
+            else
+            {
+                pendingLine = line;
+            }
+        }   //readHeader
+
+        /**
+         * This method returns the attendant names.
+         *
+         * @return list of attendant names.
+         */
+        public List<String> getNames()
+        {
+            return names;
+        }   //getNames
+
+        /**
+         * This method returns the badge IDs of the attendants.
+         *
+         * @return list of badge IDs, null for an attendant without a badge.
+         */
+        public List<String> getIds()
+        {
+            return ids;
+        }   //getIds
+
+        /**
+         * This method reads the next session of the log file. Its meeting info and attendance
+         * minutes are then returned by getSessionInfo and getSessionMinutes.
+         *
+         * @return true if a session has been read, false at the end of the log file.
+         * @throws IOException if the log file cannot be read.
+         * @throws IllegalArgumentException if the session is invalid.
+         */
+        public boolean readSession() throws IOException, IllegalArgumentException
+        {
+            String line = readLine();
+
+            sessionInfo = null;
+            sessionMinutes = null;
+            if (line != null)
+            {
+                //
+                // The total number of fields should match the number of header fields.
+                //
+                String[] fields = line.split(",");
+                if (fields.length != numFields)
+                {
+                    throw new IllegalArgumentException(
+                            String.format("Invalid data file (incorrect number of fields - %d).", fields.length));
+                }
+
+                sessionMinutes = new long[numFields - Session.header.length];
+                for (int i = 0; i < sessionMinutes.length; i++)
+                {
+                    sessionMinutes[i] = Long.parseLong(fields[Session.header.length + i]);
+                }
+                sessionInfo = Arrays.copyOf(fields, Session.header.length);
+            }
+
+            return line != null;
+        }   //readSession
+
+        /**
+         * This method returns the meeting info of the session last read.
+         *
+         * @return meeting info fields.
+         */
+        public String[] getSessionInfo()
+        {
+            return sessionInfo;
+        }   //getSessionInfo
+
+        /**
+         * This method returns the attendance minutes of each attendant in the session last read.
+         *
+         * @return attendance minutes in attendant order.
+         */
+        public long[] getSessionMinutes()
+        {
+            return sessionMinutes;
+        }   //getSessionMinutes
+
+        /**
+         * This method closes the log file.
+         *
+         * @throws IOException if the log file cannot be closed.
+         */
+        @Override
+        public void close() throws IOException
+        {
+            if (input != null)
+            {
+                input.close();
+            }
+        }   //close
+
+    }   //class Reader
+
+    private static final String QUOTED_SPLIT_REGEX = ",(?=([^\"]*\"[^\"]*\")*[^\"]*$)";
+
+    private final File file;
+    private List<String> loadedLines = Collections.emptyList();
+
+    /**
+     * Constructor: Create an instance of the object.
+     *
+     * @param file specifies the log file.
+     */
+    public CsvAttendanceStore(File file)
+    {
+        this.file = file;
+    }   //CsvAttendanceStore
+
+    /**
+     * This method returns the log file of the store.
+     *
+     * @return log file.
+     */
+    @Override
+    public File getFile()
+    {
+        return file;
+    }   //getFile
+
+    /**
+     * This method reads the non-blank lines of the log file with leading and trailing white
+     * spaces removed.
+     *
+     * @return lines of the log file.
+     * @throws IOException if the log file cannot be read.
+     */
+    public List<String> readLines() throws IOException
+    {
+        ArrayList<String> lines = new ArrayList<String>();
+
+        try (BufferedReader input = new BufferedReader(new FileReader(file)))
+        {
+            String line;
+            while ((line = input.readLine()) != null)
+            {
+                line = line.trim();
+                if (line.length() > 0)
+                {
+                    lines.add(line);
+                }
+            }
+        }
+
+        return lines;
+    }   //readLines
+
+    /**
+     * This method returns the non-blank lines of the log file as last loaded or merged.
+     *
+     * @return lines of the log file.
+     */
+    public List<String> getLoadedLines()
+    {
+        return loadedLines;
+    }   //getLoadedLines
+
+    /**
+     * This method records the lines of the log file after they have been merged into the log.
+     *
+     * @param lines specifies the lines of the log file.
+     */
+    public void setLoadedLines(List<String> lines)
+    {
+        loadedLines = Collections.unmodifiableList(lines);
+    }   //setLoadedLines
+
+    /**
+     * This method removes the surrounding quotes of a field if any.
+     *
+     * @param field specifies the field.
+     * @return field without quotes.
+     */
+    private static String unquote(String field)
+    {
+        if (field.length() > 1 && field.charAt(0) == '"' && field.charAt(field.length() - 1) == '"')
+        {
+            field = field.substring(1, field.length() - 1);
+        }
+
+        return field;
+    }   //unquote
+
+    /**
+     * This method loads the log data from the log file.
+     *
+     * @return log data.
+     * @throws FileNotFoundException if the log file does not exist.
+     * @throws IOException if the log file cannot be read.
+     * @throws IllegalArgumentException if the log file contains invalid data.
+     */
+    @Override
+    public LogData load() throws IOException, IllegalArgumentException
+    {
+        List<String> lines = readLines();
+        Reader reader = new Reader(lines);
+        ArrayList<String[]> sessions = new ArrayList<String[]>(lines.size());
+        ArrayList<long[]> minutes = new ArrayList<long[]>(lines.size());
+
+        while (reader.readSession())
+        {
+            sessions.add(reader.getSessionInfo());
+            minutes.add(reader.getSessionMinutes());
+        }
+        setLoadedLines(lines);
+
+        return new LogData(reader.getNames(), reader.getIds(), sessions, minutes);
+    }   //load
+
+    /**
+     * This method saves the log data to the log file.
+     *
+     * @param data specifies the log data.
+     * @throws IOException if the log file cannot be written.
+     */
+    @Override
+    public void save(LogData data) throws IOException
+    {
+        List<String> names = data.getNames();
+        List<String> ids = data.getIds();
+        List<String[]> sessions = data.getSessions();
+        List<long[]> minutes = data.getMinutes();
+        PrintStream output = new PrintStream(new BufferedOutputStream(new FileOutputStream(file)));
+        //
+        // Print header line.
+        //
+        output.print(Session.getHeaderString());
+        for (int i = 0; i < names.size(); i++)
+        {
+            output.print(",\"" + names.get(i) + "\"");
+        }
+        output.println();
+        //
+        // Print the ID row if any attendant has a badge ID.
+        //
+        boolean hasIds = false;
+        for (int i = 0; i < ids.size() && !hasIds; i++)
+        {
+            hasIds = ids.get(i) != null;
+        }
+
+        if (hasIds)
+        {
+            output.print(AttendanceLog.ID_ROW_TAG);
+            for (int i = 1; i < Session.header.length; i++)
+            {
+                output.print(",");
+            }
+            for (int i = 0; i < ids.size(); i++)
+            {
+                String id = ids.get(i);
+                output.print(",\"" + (id != null? id: "") + "\"");
+            }
+            output.println();
+        }
+        //
+        // Print each meeting session in a separate line.
+        //
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < sessions.size(); i++)
+        {
+            String[] info = sessions.get(i);
+            long[] sessionMinutes = minutes.get(i);
+
+            line.setLength(0);
+            line.append(info[0]);
+            for (int j = 1; j < Session.header.length; j++)
+            {
+                line.append(',').append(info[j]);
+            }
+            for (int j = 0; j < sessionMinutes.length; j++)
+            {
+                line.append(',').append(sessionMinutes[j]);
+            }
+            output.println(line);
+        }
+
+        output.close();
+        if (output.checkError())
+        {
+            throw new IOException("Failed writing " + file + ".");
+        }
+    }   //save
+
+}   //class CsvAttendanceStore
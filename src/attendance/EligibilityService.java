@@ -0,0 +1,167 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.*;
+
+/**
+ * This class answers the question of which attendants have met a minimum number of hours of
+ * attendance up to a given date. Each attendant has a prefix sum of the session minutes in the
+ * date order of the AttendanceLog's session index. A query finds the last session on or before
+ * the cutoff date with a binary search in the session index and reads each attendant's total
+ * directly from the prefix sum. The prefix sums and the query results for any threshold and
+ * cutoff date are cached for the version of the AttendanceLog (see AttendanceLog.getVersion), so
+ * they are only recomputed when it has closed a session or updated its attendants list. The
+ * per-attendant totals are also available on their own, e.g. for adding them up across logs.
+ * Sessions with an invalid date are not counted, as they are on or before no cutoff date.
+ */
+public class EligibilityService
+{
+    /**
+     * This class contains the prefix sums of an attendant over the date ordered sessions.
+     */
+    private static class PrefixSums
+    {
+        long[] minutes;
+        int[] sessionsAttended;
+    }   //class PrefixSums
+
+    private AttendanceLog log;
+    private int cachedVersion = -1;
+    private SessionIndex sessionIndex;
+    private HashMap<Attendant, PrefixSums> prefixSums = new HashMap<Attendant, PrefixSums>();
+    private HashMap<String, List<Attendant>> queryCache = new HashMap<String, List<Attendant>>();
+
+    /**
+     * Constructor: Create an instance of the object.
+     *
+     * @param log specifies the attendance log.
+     */
+    public EligibilityService(AttendanceLog log)
+    {
+        this.log = log;
+    }   //EligibilityService
+
+    /**
+     * This method returns the attendants who have attended at least the specified number of
+     * hours in the sessions on or before the cutoff date.
+     *
+     * @param minHours specifies the minimum number of hours.
+     * @param cutoffDay specifies the cutoff date as a day number (see Session.getEpochDay),
+     *                  Long.MAX_VALUE to include all dated sessions.
+     * @return list of eligible attendants in attendants list order.
+     */
+    public synchronized List<Attendant> getEligibleAttendants(double minHours, long cutoffDay)
+    {
+        validate();
+
+        long minMinutes = (long)Math.ceil(minHours*60.0);
+        String key = minMinutes + "," + cutoffDay;
+        List<Attendant> eligible = queryCache.get(key);
+
+        if (eligible == null)
+        {
+            int numSessions = sessionIndex.getNumSessionsUntil(cutoffDay);
+            int numAttendants = log.getNumAttendants();
+            ArrayList<Attendant> list = new ArrayList<Attendant>();
+
+            for (int i = 0; i < numAttendants; i++)
+            {
+                Attendant attendant = log.getAttendant(i);
+                if (prefixSums.get(attendant).minutes[numSessions] >= minMinutes)
+                {
+                    list.add(attendant);
+                }
+            }
+            eligible = Collections.unmodifiableList(list);
+            queryCache.put(key, eligible);
+        }
+
+        return eligible;
+    }   //getEligibleAttendants
+
+    /**
+     * This method returns the total attendance of an attendant in the sessions on or before the
+     * cutoff date.
+     *
+     * @param attendant specifies the attendant.
+     * @param cutoffDay specifies the cutoff date as a day number, Long.MAX_VALUE to include all
+     *                  dated sessions.
+     * @return total minutes, 0 if the attendant is not in the attendance log.
+     */
+    public synchronized long getMinutes(Attendant attendant, long cutoffDay)
+    {
+        validate();
+        PrefixSums sums = prefixSums.get(attendant);
+        return sums != null? sums.minutes[sessionIndex.getNumSessionsUntil(cutoffDay)]: 0;
+    }   //getMinutes
+
+    /**
+     * This method returns the number of sessions an attendant has attended on or before the
+     * cutoff date.
+     *
+     * @param attendant specifies the attendant.
+     * @param cutoffDay specifies the cutoff date as a day number, Long.MAX_VALUE to include all
+     *                  dated sessions.
+     * @return number of sessions attended, 0 if the attendant is not in the attendance log.
+     */
+    public synchronized int getSessionsAttended(Attendant attendant, long cutoffDay)
+    {
+        validate();
+        PrefixSums sums = prefixSums.get(attendant);
+        return sums != null? sums.sessionsAttended[sessionIndex.getNumSessionsUntil(cutoffDay)]: 0;
+    }   //getSessionsAttended
+
+    /**
+     * This method rebuilds the prefix sums and clears the query cache if the attendance log has
+     * changed since they were built.
+     */
+    private void validate()
+    {
+        if (cachedVersion != log.getVersion())
+        {
+            sessionIndex = log.getSessionIndex();
+            int[] order = sessionIndex.getSessionsInDateOrder();
+            int numSessions = order.length;
+
+            prefixSums.clear();
+            for (int i = 0; i < log.getNumAttendants(); i++)
+            {
+                Attendant attendant = log.getAttendant(i);
+                PrefixSums sums = new PrefixSums();
+                sums.minutes = new long[numSessions + 1];
+                sums.sessionsAttended = new int[numSessions + 1];
+                for (int j = 0; j < numSessions; j++)
+                {
+                    long minutes = attendant.getSessionMinutes(order[j]);
+                    sums.minutes[j + 1] = sums.minutes[j] + minutes;
+                    sums.sessionsAttended[j + 1] = sums.sessionsAttended[j] + (minutes > 0? 1: 0);
+                }
+                prefixSums.put(attendant, sums);
+            }
+
+            queryCache.clear();
+            cachedVersion = log.getVersion();
+        }
+    }   //validate
+
+}   //class EligibilityService
@@ -0,0 +1,645 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * This class implements an append-only store of the raw check-in and check-out events. Unlike
+ * the log file, which only keeps the rounded minutes of each session, and the session journal,
+ * which is deleted when the log file is closed, the event store keeps every event permanently.
+ *
+ * The events are appended to segment files in a folder. A segment is closed for writing once
+ * it grows beyond MAX_SEGMENT_SIZE and a new one is started. Each record is compact binary:
+ * a tag byte, a segment local attendant number and the timestamp. The first time an attendant
+ * appears in a segment, a name record assigns the attendant number. Each segment has an index
+ * file with the offsets of the records of every attendant, so the events of one attendant can
+ * be read without replaying the whole history. The index of a segment is rebuilt by scanning
+ * the segment if it is missing or out of date, e.g. after a crash, and a partially written
+ * record at the end of a segment is discarded. The records of an append are encoded in memory
+ * and written in one piece, and the in-memory index only takes them in once the write has
+ * succeeded. If the write fails, whatever part of it reached the segment is truncated away
+ * before the next append, so the segment and its index always agree.
+ */
+public class EventStore implements Closeable
+{
+    private static final int MAX_SEGMENT_SIZE = 4*1024*1024;
+    private static final String DEFAULT_FOLDER_SUFFIX = ".events";
+    private static final String SEGMENT_PREFIX = "events-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final byte NAME_TAG = 0;
+    private static final byte CHECK_IN_TAG = 1;
+    private static final byte CHECK_OUT_TAG = 2;
+    private static final int EVENT_RECORD_SIZE = 1 + 4 + 8;
+
+    /**
+     * This class contains the record offsets of one attendant in a segment.
+     */
+    private static class Offsets
+    {
+        int[] offsets = new int[8];
+        int count = 0;
+
+        /**
+         * This method adds a record offset.
+         *
+         * @param offset specifies the record offset.
+         */
+        void add(int offset)
+        {
+            if (count == offsets.length)
+            {
+                offsets = Arrays.copyOf(offsets, count*2);
+            }
+            offsets[count++] = offset;
+        }   //add
+
+    }   //class Offsets
+
+    /**
+     * This class contains a segment file and its index.
+     */
+    private static class Segment
+    {
+        File file;
+        long length = 0;
+        ArrayList<String> names = new ArrayList<String>();
+        HashMap<String, Integer> nameIds = new HashMap<String, Integer>();
+        HashMap<String, Offsets> index = new HashMap<String, Offsets>();
+
+        /**
+         * Constructor: Create an instance of the object.
+         *
+         * @param file specifies the segment file.
+         */
+        Segment(File file)
+        {
+            this.file = file;
+        }   //Segment
+
+        /**
+         * This method returns the index file of the segment.
+         *
+         * @return index file.
+         */
+        File getIndexFile()
+        {
+            String name = file.getName();
+            return new File(file.getParentFile(),
+                    name.substring(0, name.length() - SEGMENT_SUFFIX.length()) + INDEX_SUFFIX);
+        }   //getIndexFile
+
+        /**
+         * This method assigns the next attendant number of the segment to a name.
+         *
+         * @param name specifies the attendant name.
+         */
+        void addName(String name)
+        {
+            nameIds.put(name, names.size());
+            names.add(name);
+            index.put(name, new Offsets());
+        }   //addName
+
+    }   //class Segment
+
+    private File folder;
+    private ArrayList<Segment> segments = new ArrayList<Segment>();
+    private FileOutputStream output = null;
+    private HashMap<String, Integer> eventCounts = new HashMap<String, Integer>();
+
+    /**
+     * Constructor: Create an instance of the object. It opens the event store in the specified
+     * folder, creating the folder if necessary, and loads the index of every segment.
+     *
+     * @param folder specifies the folder of the event store.
+     * @throws IOException if the folder cannot be created or a segment cannot be read.
+     */
+    public EventStore(File folder) throws IOException
+    {
+        this.folder = folder;
+
+        if (!folder.isDirectory() && !folder.mkdirs())
+        {
+            throw new IOException("Failed to create " + folder + ".");
+        }
+
+        File[] files = folder.listFiles();
+        ArrayList<String> segmentNames = new ArrayList<String>();
+        for (File file: files != null? files: new File[0])
+        {
+            String name = file.getName();
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+            {
+                segmentNames.add(name);
+            }
+        }
+        //
+        // Segment numbers are zero padded, so sorting the names sorts the segments in order.
+        //
+        Collections.sort(segmentNames);
+
+        for (String name: segmentNames)
+        {
+            Segment segment = new Segment(new File(folder, name));
+            if (!loadIndex(segment))
+            {
+                scanSegment(segment);
+            }
+            segments.add(segment);
+
+            for (Map.Entry<String, Offsets> entry: segment.index.entrySet())
+            {
+                Integer count = eventCounts.get(entry.getKey());
+                eventCounts.put(entry.getKey(), (count != null? count: 0) + entry.getValue().count);
+            }
+        }
+    }   //EventStore
+
+    /**
+     * This method returns the default event store folder of a log file. It is next to the log
+     * file and named after it, e.g. the events of TrcAttendance.csv are kept in TrcAttendance.events.
+     *
+     * @param logFile specifies the log file.
+     * @return event store folder.
+     */
+    public static File getDefaultFolder(File logFile)
+    {
+        String name = logFile.getName();
+        int dotIndex = name.lastIndexOf('.');
+
+        return new File(logFile.getAbsoluteFile().getParentFile(),
+                (dotIndex > 0? name.substring(0, dotIndex): name) + DEFAULT_FOLDER_SUFFIX);
+    }   //getDefaultFolder
+
+    /**
+     * This method returns the folder of the event store.
+     *
+     * @return event store folder.
+     */
+    public File getFolder()
+    {
+        return folder;
+    }   //getFolder
+
+    /**
+     * This method appends an event to the store.
+     *
+     * @param event specifies the event.
+     * @throws IOException if the event cannot be written.
+     */
+    public synchronized void append(AttendanceEvent event) throws IOException
+    {
+        append(Collections.singletonList(event));
+    }   //append
+
+    /**
+     * This method appends events to the store. The events are written to the file before it
+     * returns. If they cannot be written, the store is left as it was before the call.
+     *
+     * @param events specifies the events in time order.
+     * @throws IOException if the events cannot be written.
+     */
+    public synchronized void append(List<AttendanceEvent> events) throws IOException
+    {
+        int next = 0;
+
+        while (next < events.size())
+        {
+            next = appendToSegment(events, next);
+        }
+    }   //append
+
+    /**
+     * This method appends events to the segment being written until the segment is full. The
+     * records are encoded in memory and written in one piece, and the index and event counts
+     * are only updated after the write has succeeded.
+     *
+     * @param events specifies the events in time order.
+     * @param from specifies the index of the first event to append.
+     * @return index of the first event not appended.
+     * @throws IOException if the events cannot be written.
+     */
+    private int appendToSegment(List<AttendanceEvent> events, int from) throws IOException
+    {
+        Segment segment = getWritableSegment();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream records = new DataOutputStream(buffer);
+        LinkedHashMap<String, Integer> newNameIds = new LinkedHashMap<String, Integer>();
+        int[] offsets = new int[events.size() - from];
+        int next = from;
+
+        while (next < events.size() && segment.length + buffer.size() < MAX_SEGMENT_SIZE)
+        {
+            AttendanceEvent event = events.get(next);
+            String name = event.getName();
+            Integer nameId = segment.nameIds.get(name);
+
+            if (nameId == null)
+            {
+                nameId = newNameIds.get(name);
+            }
+
+            if (nameId == null)
+            {
+                byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+                records.writeByte(NAME_TAG);
+                records.writeShort(nameBytes.length);
+                records.write(nameBytes);
+                nameId = segment.names.size() + newNameIds.size();
+                newNameIds.put(name, nameId);
+            }
+
+            offsets[next - from] = (int)(segment.length + buffer.size());
+            records.writeByte(event.getType() == AttendanceEvent.Type.CHECK_IN? CHECK_IN_TAG: CHECK_OUT_TAG);
+            records.writeInt(nameId);
+            records.writeLong(event.getTimestamp());
+            next++;
+        }
+
+        try
+        {
+            buffer.writeTo(output);
+            output.flush();
+        }
+        catch (IOException e)
+        {
+            //
+            // Part of the records may have reached the segment. Drop the stream so the next
+            // append reopens the segment and truncates it back to the last successful append.
+            //
+            try
+            {
+                output.close();
+            }
+            catch (IOException closeException)
+            {
+                e.addSuppressed(closeException);
+            }
+            output = null;
+            throw e;
+        }
+
+        for (String name: newNameIds.keySet())
+        {
+            segment.addName(name);
+        }
+
+        for (int i = from; i < next; i++)
+        {
+            String name = events.get(i).getName();
+            segment.index.get(name).add(offsets[i - from]);
+            Integer count = eventCounts.get(name);
+            eventCounts.put(name, (count != null? count: 0) + 1);
+        }
+        segment.length += buffer.size();
+
+        return next;
+    }   //appendToSegment
+
+    /**
+     * This method returns the names of all attendants that have events in the store.
+     *
+     * @return attendant names.
+     */
+    public synchronized Set<String> getAttendantNames()
+    {
+        return new TreeSet<String>(eventCounts.keySet());
+    }   //getAttendantNames
+
+    /**
+     * This method returns the number of events of an attendant.
+     *
+     * @param name specifies the attendant name.
+     * @return number of events.
+     */
+    public synchronized int getNumEvents(String name)
+    {
+        Integer count = eventCounts.get(name);
+        return count != null? count: 0;
+    }   //getNumEvents
+
+    /**
+     * This method returns all events of an attendant in the order they were appended. Only the
+     * records of the attendant are read, using the segment indices.
+     *
+     * @param name specifies the attendant name.
+     * @return events of the attendant.
+     * @throws IOException if a segment cannot be read.
+     */
+    public synchronized List<AttendanceEvent> getEvents(String name) throws IOException
+    {
+        return getEvents(name, Long.MIN_VALUE, Long.MAX_VALUE);
+    }   //getEvents
+
+    /**
+     * This method returns the events of an attendant within a time range in the order they were
+     * appended.
+     *
+     * @param name specifies the attendant name.
+     * @param fromTime specifies the earliest event time, inclusive.
+     * @param toTime specifies the latest event time, inclusive.
+     * @return events of the attendant in the time range.
+     * @throws IOException if a segment cannot be read.
+     */
+    public synchronized List<AttendanceEvent> getEvents(String name, long fromTime, long toTime)
+        throws IOException
+    {
+        ArrayList<AttendanceEvent> events = new ArrayList<AttendanceEvent>(getNumEvents(name));
+
+        for (Segment segment: segments)
+        {
+            Offsets offsets = segment.index.get(name);
+            if (offsets == null || offsets.count == 0) continue;
+
+            try (RandomAccessFile file = new RandomAccessFile(segment.file, "r"))
+            {
+                byte[] record = new byte[EVENT_RECORD_SIZE];
+                for (int i = 0; i < offsets.count; i++)
+                {
+                    file.seek(offsets.offsets[i]);
+                    file.readFully(record);
+                    DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+                    byte tag = input.readByte();
+                    input.readInt();
+                    long timestamp = input.readLong();
+                    if (timestamp >= fromTime && timestamp <= toTime)
+                    {
+                        events.add(new AttendanceEvent(
+                                tag == CHECK_IN_TAG? AttendanceEvent.Type.CHECK_IN: AttendanceEvent.Type.CHECK_OUT,
+                                name, timestamp));
+                    }
+                }
+            }
+        }
+
+        return events;
+    }   //getEvents
+
+    /**
+     * This method returns the events of all attendants within a time range, grouped by attendant.
+     *
+     * @param fromTime specifies the earliest event time, inclusive.
+     * @param toTime specifies the latest event time, inclusive.
+     * @return events in the time range.
+     * @throws IOException if a segment cannot be read.
+     */
+    public synchronized List<AttendanceEvent> getEvents(long fromTime, long toTime) throws IOException
+    {
+        ArrayList<AttendanceEvent> events = new ArrayList<AttendanceEvent>();
+
+        for (String name: getAttendantNames())
+        {
+            events.addAll(getEvents(name, fromTime, toTime));
+        }
+
+        return events;
+    }   //getEvents
+
+    /**
+     * This method closes the event store. It writes the index of the segment being appended to
+     * so that the next open does not need to scan it.
+     *
+     * @throws IOException if the segment or its index cannot be written.
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (output != null)
+        {
+            output.close();
+            output = null;
+            saveIndex(segments.get(segments.size() - 1));
+        }
+    }   //close
+
+    /**
+     * This method returns the segment to append to. It opens the last segment for appending,
+     * or starts a new segment if there is none or the last one is full.
+     *
+     * @return segment to append to.
+     * @throws IOException if the segment cannot be opened.
+     */
+    private Segment getWritableSegment() throws IOException
+    {
+        Segment segment = segments.isEmpty()? null: segments.get(segments.size() - 1);
+
+        if (segment != null && segment.length >= MAX_SEGMENT_SIZE)
+        {
+            if (output != null)
+            {
+                output.close();
+                output = null;
+            }
+            saveIndex(segment);
+            segment = null;
+        }
+
+        if (segment == null)
+        {
+            segment = new Segment(new File(folder, String.format(
+                    "%s%06d%s", SEGMENT_PREFIX, segments.size(), SEGMENT_SUFFIX)));
+            segments.add(segment);
+        }
+
+        if (output == null)
+        {
+            //
+            // The index file is out of date as soon as the segment is appended to, so remove it
+            // in case we crash before writing the new one.
+            //
+            segment.getIndexFile().delete();
+            FileOutputStream stream = new FileOutputStream(segment.file, true);
+            try
+            {
+                //
+                // Discard anything past the last successful append, i.e. the part of a failed
+                // append that reached the segment.
+                //
+                stream.getChannel().truncate(segment.length);
+            }
+            catch (IOException e)
+            {
+                stream.close();
+                throw e;
+            }
+            output = stream;
+        }
+
+        return segment;
+    }   //getWritableSegment
+
+    /**
+     * This method loads the index of a segment from its index file. The index is only used if
+     * it covers the whole segment.
+     *
+     * @param segment specifies the segment.
+     * @return true if the index is loaded, false if it is missing, out of date or corrupted.
+     */
+    private boolean loadIndex(Segment segment)
+    {
+        File indexFile = segment.getIndexFile();
+        boolean success = false;
+
+        if (indexFile.exists())
+        {
+            try (DataInputStream input = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(indexFile))))
+            {
+                long length = input.readLong();
+                if (length == segment.file.length())
+                {
+                    int numNames = input.readInt();
+                    for (int i = 0; i < numNames; i++)
+                    {
+                        String name = input.readUTF();
+                        segment.addName(name);
+                        Offsets offsets = segment.index.get(name);
+                        int count = input.readInt();
+                        offsets.offsets = new int[Math.max(count, 1)];
+                        for (int j = 0; j < count; j++)
+                        {
+                            offsets.offsets[j] = input.readInt();
+                        }
+                        offsets.count = count;
+                    }
+                    segment.length = length;
+                    success = true;
+                }
+            }
+            catch (IOException e)
+            {
+                //
+                // The index file is corrupted, the caller will rebuild it from the segment.
+                //
+            }
+
+            if (!success)
+            {
+                segment.names.clear();
+                segment.nameIds.clear();
+                segment.index.clear();
+            }
+        }
+
+        return success;
+    }   //loadIndex
+
+    /**
+     * This method rebuilds the index of a segment by scanning its records. If the segment ends
+     * with a partially written record, the segment is truncated to the last complete record.
+     *
+     * @param segment specifies the segment.
+     * @throws IOException if the segment cannot be read.
+     */
+    private void scanSegment(Segment segment) throws IOException
+    {
+        long fileLength = segment.file.length();
+        long offset = 0;
+
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(segment.file))))
+        {
+            while (offset < fileLength)
+            {
+                byte tag = input.readByte();
+                if (tag == NAME_TAG)
+                {
+                    byte[] nameBytes = new byte[input.readUnsignedShort()];
+                    input.readFully(nameBytes);
+                    segment.addName(new String(nameBytes, StandardCharsets.UTF_8));
+                    offset += 3 + nameBytes.length;
+                }
+                else if (tag == CHECK_IN_TAG || tag == CHECK_OUT_TAG)
+                {
+                    int nameId = input.readInt();
+                    input.readLong();
+                    if (nameId < 0 || nameId >= segment.names.size())
+                    {
+                        break;
+                    }
+                    segment.index.get(segment.names.get(nameId)).add((int)offset);
+                    offset += EVENT_RECORD_SIZE;
+                }
+                else
+                {
+                    break;
+                }
+            }
+        }
+        catch (EOFException e)
+        {
+            //
+            // The last record was only partially written.
+            //
+        }
+
+        if (offset < fileLength)
+        {
+            try (RandomAccessFile file = new RandomAccessFile(segment.file, "rw"))
+            {
+                file.setLength(offset);
+            }
+        }
+        segment.length = offset;
+    }   //scanSegment
+
+    /**
+     * This method writes the index of a segment to its index file. The index is written to a
+     * temporary file first so that a crash never leaves a partially written index.
+     *
+     * @param segment specifies the segment.
+     * @throws IOException if the index file cannot be written.
+     */
+    private void saveIndex(Segment segment) throws IOException
+    {
+        File indexFile = segment.getIndexFile();
+        File tempFile = new File(indexFile.getPath() + ".tmp");
+
+        try (DataOutputStream indexOutput = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tempFile))))
+        {
+            indexOutput.writeLong(segment.length);
+            indexOutput.writeInt(segment.names.size());
+            for (String name: segment.names)
+            {
+                Offsets offsets = segment.index.get(name);
+                indexOutput.writeUTF(name);
+                indexOutput.writeInt(offsets.count);
+                for (int i = 0; i < offsets.count; i++)
+                {
+                    indexOutput.writeInt(offsets.offsets[i]);
+                }
+            }
+        }
+
+        indexFile.delete();
+        if (!tempFile.renameTo(indexFile))
+        {
+            throw new IOException("Failed to write " + indexFile + ".");
+        }
+    }   //saveIndex
+
+}   //class EventStore
@@ -0,0 +1,257 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * This class merges the session journals of several kiosks that ran the same meeting against
+ * copies of the same log file, e.g. at different doors. The journals are merged in timestamp
+ * order with a k-way merge: a priority queue holds the next transaction of each journal, so only
+ * one transaction per journal is in memory at any time and memory use is proportional to the
+ * roster, not to the number of events.
+ *
+ * The merged events are applied to the current session of an AttendanceLog in order, using the
+ * log's own check-in and check-out so that each attendant alternates between checked in and
+ * checked out across all kiosks: a check-in of an attendant already checked in at another kiosk,
+ * or a check-out of an attendant not checked in, is ignored. Attendants still checked in after
+ * the last event are checked out at the time of the last event.
+ */
+public class JournalMerger
+{
+    /**
+     * This class contains an open journal and its next transaction.
+     */
+    private static class Cursor
+    {
+        SessionJournal.Reader reader;
+        int order;
+        List<AttendanceEvent> transaction;
+
+        /**
+         * Constructor: Create an instance of the object.
+         *
+         * @param reader specifies the open journal.
+         * @param order specifies the position of the journal in the merge, used to break ties.
+         */
+        Cursor(SessionJournal.Reader reader, int order)
+        {
+            this.reader = reader;
+            this.order = order;
+        }   //Cursor
+
+        /**
+         * This method reads the next transaction of the journal, skipping malformed ones.
+         *
+         * @return true if there is a next transaction, false at the end of the journal.
+         * @throws IOException if the journal cannot be read.
+         */
+        boolean advance() throws IOException
+        {
+            do
+            {
+                transaction = reader.readTransaction();
+            } while (transaction != null && transaction.isEmpty());
+
+            return transaction != null;
+        }   //advance
+
+        /**
+         * This method returns the time of the next transaction.
+         *
+         * @return transaction time.
+         */
+        long getTimestamp()
+        {
+            return transaction.get(0).getTimestamp();
+        }   //getTimestamp
+
+    }   //class Cursor
+
+    private List<File> journalFiles;
+    private String[] sessionInfo = null;
+    private TreeSet<String> unknownNames = new TreeSet<String>();
+    private int numEvents = 0;
+    private int numIgnoredEvents = 0;
+
+    /**
+     * Constructor: Create an instance of the object.
+     *
+     * @param journalFiles specifies the session journals of the kiosks.
+     */
+    public JournalMerger(List<File> journalFiles)
+    {
+        this.journalFiles = journalFiles;
+    }   //JournalMerger
+
+    /**
+     * This method merges the journals into a new session of the attendance log. The session is
+     * created from the meeting info of the first journal and closed when all events have been
+     * applied; the caller writes the log file.
+     *
+     * @param log specifies the attendance log, which must not have a current session.
+     * @throws IOException if a journal cannot be read.
+     * @throws IllegalArgumentException if a journal is invalid or the journals are of different
+     *         meeting dates.
+     */
+    public void merge(AttendanceLog log) throws IOException, IllegalArgumentException
+    {
+        PriorityQueue<Cursor> queue = new PriorityQueue<Cursor>(
+                Math.max(journalFiles.size(), 1), new Comparator<Cursor>()
+                {
+                    @Override
+                    public int compare(Cursor cursor1, Cursor cursor2)
+                    {
+                        int result = Long.compare(cursor1.getTimestamp(), cursor2.getTimestamp());
+                        return result != 0? result: Integer.compare(cursor1.order, cursor2.order);
+                    }
+                });
+        ArrayList<Cursor> cursors = new ArrayList<Cursor>();
+
+        try
+        {
+            for (File file: journalFiles)
+            {
+                Cursor cursor = new Cursor(new SessionJournal.Reader(file), cursors.size());
+                cursors.add(cursor);
+
+                String[] info = cursor.reader.getSessionInfo();
+                if (sessionInfo == null)
+                {
+                    sessionInfo = info;
+                }
+                else if (!info[0].trim().equals(sessionInfo[0].trim()))
+                {
+                    throw new IllegalArgumentException(
+                            file + " is of a different meeting date (" + info[0] + ").");
+                }
+
+                if (cursor.advance())
+                {
+                    queue.add(cursor);
+                }
+            }
+
+            if (sessionInfo == null)
+            {
+                throw new IllegalArgumentException("No journal to merge.");
+            }
+
+            log.createSession(sessionInfo);
+            long lastTimestamp = 0;
+            while (!queue.isEmpty())
+            {
+                Cursor cursor = queue.poll();
+                lastTimestamp = cursor.getTimestamp();
+                for (AttendanceEvent event: cursor.transaction)
+                {
+                    applyEvent(log, event);
+                }
+
+                if (cursor.advance())
+                {
+                    queue.add(cursor);
+                }
+            }
+
+            for (Attendant attendant: log.getAttendants())
+            {
+                log.checkOut(attendant, lastTimestamp);
+            }
+            log.closeSession();
+            log.setFileDirty();
+        }
+        finally
+        {
+            for (Cursor cursor: cursors)
+            {
+                cursor.reader.close();
+            }
+        }
+    }   //merge
+
+    /**
+     * This method applies a merged event to the current session of the attendance log.
+     *
+     * @param log specifies the attendance log.
+     * @param event specifies the event.
+     */
+    private void applyEvent(AttendanceLog log, AttendanceEvent event)
+    {
+        Attendant attendant = log.findAttendant(event.getName());
+
+        numEvents++;
+        if (attendant == null)
+        {
+            unknownNames.add(event.getName());
+            numIgnoredEvents++;
+        }
+        else if (!(event.getType() == AttendanceEvent.Type.CHECK_IN?
+                   log.checkIn(attendant, event.getTimestamp()): log.checkOut(attendant, event.getTimestamp())))
+        {
+            numIgnoredEvents++;
+        }
+    }   //applyEvent
+
+    /**
+     * This method returns the meeting info of the merged session.
+     *
+     * @return meeting info fields, null if not merged yet.
+     */
+    public String[] getSessionInfo()
+    {
+        return sessionInfo;
+    }   //getSessionInfo
+
+    /**
+     * This method returns the number of events merged.
+     *
+     * @return number of events.
+     */
+    public int getNumEvents()
+    {
+        return numEvents;
+    }   //getNumEvents
+
+    /**
+     * This method returns the number of events that were ignored, either because the attendant
+     * is not in the log or because the attendant was already checked in or out.
+     *
+     * @return number of ignored events.
+     */
+    public int getNumIgnoredEvents()
+    {
+        return numIgnoredEvents;
+    }   //getNumIgnoredEvents
+
+    /**
+     * This method returns the names in the journals that are not in the log.
+     *
+     * @return unknown names in alphabetical order.
+     */
+    public Set<String> getUnknownNames()
+    {
+        return Collections.unmodifiableSet(unknownNames);
+    }   //getUnknownNames
+
+}   //class JournalMerger
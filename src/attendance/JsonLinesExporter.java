@@ -0,0 +1,214 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.*;
+import java.util.List;
+
+/**
+ * This class exports attendance data in JSON Lines format (one JSON object per line) for
+ * downstream tools. A log file is exported as one "session" record per meeting session followed
+ * by one "attendant" record per attendant with the attendant's totals. A session journal is
+ * exported as one "meeting" record followed by one "checkIn" or "checkOut" record per attendant
+ * per transaction. A log file is read through CsvAttendanceStore.Reader, so it is parsed exactly
+ * as the program reads it. The source is read one session or transaction at a time and each
+ * record is written as soon as it is read, so memory use only depends on the number of
+ * attendants, not on the size of the log.
+ */
+public class JsonLinesExporter
+{
+    private static final String[] sessionFieldNames = {"date", "startTime", "endTime", "place", "meeting"};
+
+    private Writer output;
+
+    /**
+     * Constructor: Create an instance of the object.
+     *
+     * @param output specifies the destination of the exported records.
+     */
+    public JsonLinesExporter(Writer output)
+    {
+        this.output = output;
+    }   //JsonLinesExporter
+
+    /**
+     * This method exports a log file.
+     *
+     * @param logFile specifies the log file.
+     * @throws IOException if the log file cannot be read or the records cannot be written.
+     * @throws IllegalArgumentException if the log file contains invalid data.
+     */
+    public void exportLog(File logFile) throws IOException, IllegalArgumentException
+    {
+        try (CsvAttendanceStore.Reader reader = new CsvAttendanceStore.Reader(logFile))
+        {
+            List<String> names = reader.getNames();
+            List<String> ids = reader.getIds();
+            int numAttendants = names.size();
+            long[] totalMinutes = new long[numAttendants];
+            int[] sessionsAttended = new int[numAttendants];
+
+            while (reader.readSession())
+            {
+                String[] sessionInfo = reader.getSessionInfo();
+                long[] sessionMinutes = reader.getSessionMinutes();
+                StringBuilder record = new StringBuilder("{\"type\":\"session\"");
+                for (int i = 0; i < Session.header.length; i++)
+                {
+                    record.append(",\"").append(sessionFieldNames[i]).append("\":").append(quote(unquote(sessionInfo[i])));
+                }
+
+                record.append(",\"attendance\":{");
+                boolean first = true;
+                for (int i = 0; i < numAttendants; i++)
+                {
+                    if (sessionMinutes[i] > 0)
+                    {
+                        totalMinutes[i] += sessionMinutes[i];
+                        sessionsAttended[i]++;
+                        if (!first) record.append(',');
+                        record.append(quote(names.get(i))).append(':').append(sessionMinutes[i]);
+                        first = false;
+                    }
+                }
+                record.append("}}\n");
+                output.write(record.toString());
+            }
+
+            for (int i = 0; i < numAttendants; i++)
+            {
+                output.write("{\"type\":\"attendant\",\"name\":" + quote(names.get(i)) +
+                             (ids.get(i) != null? ",\"id\":" + quote(ids.get(i)): "") +
+                             ",\"totalMinutes\":" + totalMinutes[i] +
+                             ",\"sessionsAttended\":" + sessionsAttended[i] + "}\n");
+            }
+        }
+        output.flush();
+    }   //exportLog
+
+    /**
+     * This method exports a session journal, i.e. the raw check-in and check-out events of a
+     * meeting session. Malformed transactions are skipped.
+     *
+     * @param journalFile specifies the session journal file.
+     * @throws IOException if the journal cannot be read or the records cannot be written.
+     * @throws IllegalArgumentException if the journal does not start with valid meeting info.
+     */
+    public void exportJournal(File journalFile) throws IOException, IllegalArgumentException
+    {
+        try (SessionJournal.Reader journal = new SessionJournal.Reader(journalFile))
+        {
+            String[] sessionInfo = journal.getSessionInfo();
+            StringBuilder record = new StringBuilder("{\"type\":\"meeting\"");
+            for (int i = 0; i < Session.header.length; i++)
+            {
+                record.append(",\"").append(sessionFieldNames[i]).append("\":").append(quote(sessionInfo[i]));
+            }
+            record.append("}\n");
+            output.write(record.toString());
+
+            List<AttendanceEvent> events;
+            while ((events = journal.readTransaction()) != null)
+            {
+                for (AttendanceEvent event: events)
+                {
+                    output.write("{\"type\":" +
+                                 (event.getType() == AttendanceEvent.Type.CHECK_IN? "\"checkIn\"": "\"checkOut\"") +
+                                 ",\"name\":" + quote(event.getName()) +
+                                 ",\"timestamp\":" + event.getTimestamp() + "}\n");
+                }
+            }
+        }
+        output.flush();
+    }   //exportJournal
+
+    /**
+     * This method encodes a string as a JSON string literal.
+     *
+     * @param text specifies the string.
+     * @return quoted and escaped JSON string.
+     */
+    public static String quote(String text)
+    {
+        StringBuilder quoted = new StringBuilder(text.length() + 2);
+
+        quoted.append('"');
+        for (int i = 0; i < text.length(); i++)
+        {
+            char c = text.charAt(i);
+            switch (c)
+            {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+
+                default:
+                    if (c < 0x20)
+                    {
+                        quoted.append(String.format("\\u%04x", (int)c));
+                    }
+                    else
+                    {
+                        quoted.append(c);
+                    }
+                    break;
+            }
+        }
+        quoted.append('"');
+
+        return quoted.toString();
+    }   //quote
+
+    /**
+     * This method removes the quotes around a CSV field if any.
+     *
+     * @param field specifies the CSV field.
+     * @return field without quotes.
+     */
+    private static String unquote(String field)
+    {
+        field = field.trim();
+        if (field.length() > 1 && field.charAt(0) == '"' && field.charAt(field.length() - 1) == '"')
+        {
+            field = field.substring(1, field.length() - 1);
+        }
+
+        return field;
+    }   //unquote
+
+}   //class JsonLinesExporter
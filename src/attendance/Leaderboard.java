@@ -0,0 +1,226 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.*;
+
+/**
+ * This class ranks the attendants of an AttendanceLog by attendance hours. The top-N attendants
+ * are selected with a min-heap bounded to N entries over the totals that are already maintained
+ * for each attendant, so a query takes O(A log N) time for A attendants instead of sorting the
+ * whole roster. That makes it cheap enough to rerun after every check-out. Date range queries read
+ * the per-attendant prefix sums of an EligibilityService instead of scanning the sessions.
+ */
+public class Leaderboard
+{
+    /**
+     * This class contains the rank entry of an attendant.
+     */
+    public static class Standing
+    {
+        private Attendant attendant;
+        private long minutes;
+
+        /**
+         * Constructor: Create an instance of the object.
+         *
+         * @param attendant specifies the attendant.
+         * @param minutes specifies the attendance minutes of the attendant.
+         */
+        public Standing(Attendant attendant, long minutes)
+        {
+            this.attendant = attendant;
+            this.minutes = minutes;
+        }   //Standing
+
+        /**
+         * This method returns the attendant.
+         *
+         * @return attendant.
+         */
+        public Attendant getAttendant()
+        {
+            return attendant;
+        }   //getAttendant
+
+        /**
+         * This method returns the attendance minutes of the attendant.
+         *
+         * @return attendance minutes.
+         */
+        public long getMinutes()
+        {
+            return minutes;
+        }   //getMinutes
+
+        /**
+         * This method returns the string form of the entry.
+         *
+         * @return name and hours of the attendant.
+         */
+        @Override
+        public String toString()
+        {
+            return String.format("%s (%.1f)", attendant, minutes/60.0);
+        }   //toString
+
+    }   //class Standing
+
+    //
+    // Orders standings from lowest to highest rank: fewer minutes first and, for equal minutes,
+    // names later in the alphabet first, so the heap head is always the one to evict.
+    //
+    private static final Comparator<Standing> rankComparator = new Comparator<Standing>()
+    {
+        private Attendant.NameComparator nameComparator = new Attendant.NameComparator();
+
+        @Override
+        public int compare(Standing standing1, Standing standing2)
+        {
+            int result = Long.compare(standing1.minutes, standing2.minutes);
+            return result != 0? result: nameComparator.compare(standing2.attendant, standing1.attendant);
+        }
+    };
+
+    private AttendanceLog log;
+    private EligibilityService eligibilityService;
+
+    /**
+     * Constructor: Create an instance of the object.
+     *
+     * @param log specifies the attendance log to rank.
+     */
+    public Leaderboard(AttendanceLog log)
+    {
+        this.log = log;
+        eligibilityService = new EligibilityService(log);
+    }   //Leaderboard
+
+    /**
+     * This method returns the attendance log being ranked.
+     *
+     * @return attendance log.
+     */
+    public AttendanceLog getLog()
+    {
+        return log;
+    }   //getLog
+
+    /**
+     * This method returns the top attendants by total hours over all sessions, including the
+     * time accumulated so far in the current session.
+     *
+     * @param n specifies the maximum number of attendants to return.
+     * @return standings in rank order, highest first.
+     */
+    public List<Standing> getTopAttendants(int n)
+    {
+        PriorityQueue<Standing> heap = new PriorityQueue<Standing>(Math.max(n, 1), rankComparator);
+
+        for (int i = 0; i < log.getNumAttendants(); i++)
+        {
+            Attendant attendant = log.getAttendant(i);
+            long minutes = attendant.getTotalMinutes() + attendant.getCurrentSessionMinutes();
+            offer(heap, n, new Standing(attendant, minutes));
+        }
+
+        return drain(heap);
+    }   //getTopAttendants
+
+    /**
+     * This method returns the top attendants by hours within a date range. The current session
+     * is included if its date is within the range.
+     *
+     * @param n specifies the maximum number of attendants to return.
+     * @param fromDay specifies the first date as a day number (see Session.getEpochDay), inclusive.
+     * @param toDay specifies the last date as a day number, inclusive.
+     * @return standings in rank order, highest first.
+     */
+    public List<Standing> getTopAttendants(int n, long fromDay, long toDay)
+    {
+        PriorityQueue<Standing> heap = new PriorityQueue<Standing>(Math.max(n, 1), rankComparator);
+        Session currentSession = log.getCurrentSession();
+        boolean includeCurrent = currentSession != null &&
+                currentSession.getEpochDay() >= fromDay && currentSession.getEpochDay() <= toDay;
+
+        for (int i = 0; i < log.getNumAttendants(); i++)
+        {
+            Attendant attendant = log.getAttendant(i);
+            long minutes = eligibilityService.getMinutes(attendant, toDay);
+            if (fromDay != Long.MIN_VALUE)
+            {
+                minutes -= eligibilityService.getMinutes(attendant, fromDay - 1);
+            }
+            if (includeCurrent)
+            {
+                minutes += attendant.getCurrentSessionMinutes();
+            }
+            offer(heap, n, new Standing(attendant, minutes));
+        }
+
+        return drain(heap);
+    }   //getTopAttendants
+
+    /**
+     * This method adds a standing to the bounded heap, evicting the lowest ranked entry if the
+     * heap would grow beyond its bound. Attendants without any minutes are not ranked.
+     *
+     * @param heap specifies the bounded heap.
+     * @param n specifies the heap bound.
+     * @param standing specifies the standing to add.
+     */
+    private static void offer(PriorityQueue<Standing> heap, int n, Standing standing)
+    {
+        if (n > 0 && standing.minutes > 0)
+        {
+            if (heap.size() < n)
+            {
+                heap.add(standing);
+            }
+            else if (rankComparator.compare(standing, heap.peek()) > 0)
+            {
+                heap.poll();
+                heap.add(standing);
+            }
+        }
+    }   //offer
+
+    /**
+     * This method empties the bounded heap into a list in rank order.
+     *
+     * @param heap specifies the bounded heap.
+     * @return standings in rank order, highest first.
+     */
+    private static List<Standing> drain(PriorityQueue<Standing> heap)
+    {
+        ArrayList<Standing> standings = new ArrayList<Standing>(heap.size());
+
+        while (!heap.isEmpty())
+        {
+            standings.add(heap.poll());
+        }
+        Collections.reverse(standings);
+
+        return standings;
+    }   //drain
+
+}   //class Leaderboard
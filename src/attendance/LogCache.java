@@ -0,0 +1,338 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class implements a cache of the open attendance logs of a program hosting several logs,
+ * e.g. the FRC and FTC teams in one window. At most the specified number of logs are kept loaded.
+ * When more are open, the least recently used idle logs (no meeting in progress and no unsaved
+ * changes) are evicted: a CSV log is written to a compact binary snapshot (see
+ * BinaryAttendanceStore) and dropped, and reloaded from the snapshot the next time it is used.
+ * The snapshot is only used if the log file has not been changed since, otherwise the log file
+ * is loaded again. Logs in other stores are reloaded from their store. A log with a meeting in
+ * progress is never evicted, so the cache may hold more logs than its capacity.
+ */
+public class LogCache
+{
+    /**
+     * This interface is implemented by the owner of the logs to release everything it holds of a
+     * log that is evicted.
+     */
+    public interface Listener
+    {
+        /**
+         * This method is called when a log is evicted, before it is dropped.
+         *
+         * @param log specifies the evicted log.
+         */
+        void onLogEvicted(AttendanceLog log);
+
+    }   //interface Listener
+
+    /**
+     * This class contains a log in the cache and its snapshot once it has been evicted.
+     */
+    private static class Entry
+    {
+        AttendanceStore store;
+        AttendanceLog log;
+        File snapshotFile = null;
+        long fileModified;
+        long fileLength;
+
+        /**
+         * Constructor: Create an instance of the object.
+         *
+         * @param log specifies the log.
+         */
+        Entry(AttendanceLog log)
+        {
+            this.store = log.getStore();
+            this.log = log;
+        }   //Entry
+
+    }   //class Entry
+
+    private final int capacity;
+    private final Listener listener;
+    private final LinkedHashMap<File, Entry> entries = new LinkedHashMap<File, Entry>(16, 0.75f, true);
+    private int numLoaded = 0;
+
+    /**
+     * Constructor: Create an instance of the object.
+     *
+     * @param capacity specifies the number of logs to keep loaded.
+     * @param listener specifies the listener to call when a log is evicted.
+     */
+    public LogCache(int capacity, Listener listener)
+    {
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("Capacity must be at least 1.");
+        }
+
+        this.capacity = capacity;
+        this.listener = listener;
+    }   //LogCache
+
+    /**
+     * This method returns the key of a log file.
+     *
+     * @param file specifies the log file.
+     * @return key.
+     */
+    private static File getKey(File file)
+    {
+        return file.getAbsoluteFile();
+    }   //getKey
+
+    /**
+     * This method adds a newly opened log as the most recently used. It may evict other logs.
+     *
+     * @param log specifies the log.
+     * @throws IllegalArgumentException if the log file is already in the cache.
+     */
+    public synchronized void add(AttendanceLog log)
+    {
+        File key = getKey(log.getFile());
+
+        if (entries.containsKey(key))
+        {
+            throw new IllegalArgumentException(log.getFile() + " is already open.");
+        }
+
+        entries.put(key, new Entry(log));
+        numLoaded++;
+        evict();
+    }   //add
+
+    /**
+     * This method returns the log of a log file as the most recently used, reloading it if it has
+     * been evicted. It may evict other logs.
+     *
+     * @param file specifies the log file.
+     * @return log, null if the log file is not in the cache.
+     * @throws IOException if an evicted log cannot be reloaded.
+     * @throws IllegalArgumentException if an evicted log contains invalid data.
+     */
+    public synchronized AttendanceLog get(File file) throws IOException, IllegalArgumentException
+    {
+        Entry entry = entries.get(getKey(file));
+
+        if (entry != null && entry.log == null)
+        {
+            entry.log = reload(entry);
+            numLoaded++;
+            evict();
+        }
+
+        return entry != null? entry.log: null;
+    }   //get
+
+    /**
+     * This method checks if the log of a log file is loaded. It doesn't change the order of use.
+     *
+     * @param file specifies the log file.
+     * @return true if the log is loaded, false if it has been evicted or is not in the cache.
+     */
+    public synchronized boolean isLoaded(File file)
+    {
+        for (Map.Entry<File, Entry> entry: entries.entrySet())
+        {
+            if (entry.getKey().equals(getKey(file)))
+            {
+                return entry.getValue().log != null;
+            }
+        }
+
+        return false;
+    }   //isLoaded
+
+    /**
+     * This method removes a log file from the cache, e.g. when it is closed, and deletes its
+     * snapshot.
+     *
+     * @param file specifies the log file.
+     */
+    public synchronized void remove(File file)
+    {
+        Entry entry = entries.remove(getKey(file));
+
+        if (entry != null)
+        {
+            if (entry.log != null)
+            {
+                numLoaded--;
+            }
+            deleteSnapshot(entry);
+        }
+    }   //remove
+
+    /**
+     * This method returns the log files in the cache from the least to the most recently used.
+     *
+     * @return list of log files.
+     */
+    public synchronized List<File> getFiles()
+    {
+        return new ArrayList<File>(entries.keySet());
+    }   //getFiles
+
+    /**
+     * This method evicts the least recently used idle logs until no more than the capacity are
+     * loaded. The most recently used log is never evicted.
+     */
+    private void evict()
+    {
+        Iterator<Entry> iterator = entries.values().iterator();
+
+        while (numLoaded > capacity && iterator.hasNext())
+        {
+            Entry entry = iterator.next();
+            //
+            // The last entry is the most recently used.
+            //
+            if (entry.log != null && iterator.hasNext() && isIdle(entry))
+            {
+                listener.onLogEvicted(entry.log);
+                writeSnapshot(entry);
+                entry.log = null;
+                numLoaded--;
+            }
+        }
+    }   //evict
+
+    /**
+     * This method checks if a log can be evicted: it has no meeting in progress, no unsaved
+     * changes, and can be reloaded from its store (i.e. a new log file has been saved).
+     *
+     * @param entry specifies the entry of the log.
+     * @return true if the log can be evicted, false otherwise.
+     */
+    private static boolean isIdle(Entry entry)
+    {
+        return entry.log.getCurrentSession() == null && !entry.log.isFileDirty() &&
+               (entry.store instanceof MemoryAttendanceStore || entry.store.getFile().exists());
+    }   //isIdle
+
+    /**
+     * This method writes the snapshot of a CSV log being evicted. The other stores load about as
+     * fast as a snapshot and need none. Without a snapshot, the log is reloaded from its store.
+     *
+     * @param entry specifies the entry of the log.
+     */
+    private void writeSnapshot(Entry entry)
+    {
+        if (entry.store instanceof CsvAttendanceStore)
+        {
+            CsvAttendanceStore csvStore = (CsvAttendanceStore)entry.store;
+
+            try
+            {
+                if (entry.snapshotFile == null)
+                {
+                    entry.snapshotFile = File.createTempFile("LogCache", ".snapshot");
+                    entry.snapshotFile.deleteOnExit();
+                }
+                entry.fileModified = csvStore.getFile().lastModified();
+                entry.fileLength = csvStore.getFile().length();
+                new BinaryAttendanceStore(entry.snapshotFile).save(entry.log.getLogData());
+            }
+            catch (IOException e)
+            {
+                deleteSnapshot(entry);
+            }
+            //
+            // The lines of the log file are only needed to merge edits while it is loaded.
+            //
+            csvStore.setLoadedLines(new ArrayList<String>());
+        }
+    }   //writeSnapshot
+
+    /**
+     * This method reloads an evicted log from its snapshot if the log file has not been changed
+     * since, otherwise from its store.
+     *
+     * @param entry specifies the entry of the log.
+     * @return reloaded log.
+     * @throws IOException if the log cannot be reloaded.
+     * @throws IllegalArgumentException if the log contains invalid data.
+     */
+    private AttendanceLog reload(Entry entry) throws IOException, IllegalArgumentException
+    {
+        AttendanceLog log = null;
+
+        if (entry.snapshotFile != null &&
+            entry.store.getFile().lastModified() == entry.fileModified &&
+            entry.store.getFile().length() == entry.fileLength)
+        {
+            try
+            {
+                LogData data = new BinaryAttendanceStore(entry.snapshotFile).load();
+                //
+                // The lines of the log file are the base for merging later edits of it (see
+                // LogFileChanges), so they are read without being parsed.
+                //
+                CsvAttendanceStore csvStore = (CsvAttendanceStore)entry.store;
+                csvStore.setLoadedLines(csvStore.readLines());
+                log = new AttendanceLog(entry.store, data);
+            }
+            catch (IOException | IllegalArgumentException e)
+            {
+                //
+                // The snapshot is lost or damaged, fall back to the log file.
+                //
+                log = null;
+            }
+        }
+
+        if (log == null)
+        {
+            log = new AttendanceLog(entry.store, false);
+        }
+
+        return log;
+    }   //reload
+
+    /**
+     * This method deletes the snapshot of a log if any.
+     *
+     * @param entry specifies the entry of the log.
+     */
+    private void deleteSnapshot(Entry entry)
+    {
+        if (entry.snapshotFile != null)
+        {
+            entry.snapshotFile.delete();
+            entry.snapshotFile = null;
+        }
+    }   //deleteSnapshot
+
+}   //class LogCache
@@ -0,0 +1,112 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class contains the persistent data of an attendance log as exchanged with an
+ * AttendanceStore: the attendant names and badge IDs, the meeting info of each past session and
+ * the attendance minutes of each attendant in each past session. It is independent of the
+ * storage format, so a log loaded from one store can be saved to another.
+ */
+public class LogData
+{
+    private final List<String> names;
+    private final List<String> ids;
+    private final List<String[]> sessions;
+    private final List<long[]> minutes;
+
+    /**
+     * Constructor: Create an instance of the object.
+     *
+     * @param names specifies the attendant names.
+     * @param ids specifies the badge ID of each attendant, null for an attendant without a badge.
+     * @param sessions specifies the meeting info fields of each past session.
+     * @param minutes specifies for each past session the attendance minutes of each attendant.
+     * @throws IllegalArgumentException if the lists don't match in size.
+     */
+    public LogData(List<String> names, List<String> ids, List<String[]> sessions, List<long[]> minutes)
+        throws IllegalArgumentException
+    {
+        if (ids.size() != names.size() || minutes.size() != sessions.size())
+        {
+            throw new IllegalArgumentException("Inconsistent log data.");
+        }
+
+        for (int i = 0; i < sessions.size(); i++)
+        {
+            if (sessions.get(i).length < Session.header.length || minutes.get(i).length != names.size())
+            {
+                throw new IllegalArgumentException(
+                        String.format("Inconsistent log data (session %d).", i));
+            }
+        }
+
+        this.names = Collections.unmodifiableList(names);
+        this.ids = Collections.unmodifiableList(ids);
+        this.sessions = Collections.unmodifiableList(sessions);
+        this.minutes = Collections.unmodifiableList(minutes);
+    }   //LogData
+
+    /**
+     * This method returns the attendant names.
+     *
+     * @return list of attendant names.
+     */
+    public List<String> getNames()
+    {
+        return names;
+    }   //getNames
+
+    /**
+     * This method returns the badge IDs of the attendants.
+     *
+     * @return list of badge IDs, null for an attendant without a badge.
+     */
+    public List<String> getIds()
+    {
+        return ids;
+    }   //getIds
+
+    /**
+     * This method returns the meeting info of the past sessions.
+     *
+     * @return list of meeting info fields.
+     */
+    public List<String[]> getSessions()
+    {
+        return sessions;
+    }   //getSessions
+
+    /**
+     * This method returns the attendance minutes of the past sessions.
+     *
+     * @return list of the minutes of each attendant, one array per session.
+     */
+    public List<long[]> getMinutes()
+    {
+        return minutes;
+    }   //getMinutes
+
+}   //class LogData
@@ -0,0 +1,637 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This class implements an index over all the log files in a folder (e.g. one log file per team
+ * per season). It keeps a summary of each log file: the attendants, their total minutes and
+ * sessions attended, and the date range of the sessions. The summaries are cached by file path,
+ * size and modification time, optionally in a cache file, so refreshing the index only parses
+ * the log files that have changed since the last refresh. Log files that fail to parse are cached
+ * the same way with their error, so they are not parsed again until they change. Changed log
+ * files are parsed in parallel. Cross log file totals are computed from the summaries without
+ * touching the log files.
+ *
+ * The cache file is plain data: a magic number and version, followed by the number of summaries
+ * and each summary (path, size, modification time, number of sessions, first and last day, and
+ * the name, total minutes and sessions attended of each attendant), followed by the number of
+ * failures and each failure (path, size, modification time and error). It is never deserialized
+ * into arbitrary objects, and a cache file that does not read back cleanly is ignored.
+ */
+public class LogDirectoryIndex
+{
+    /**
+     * This class contains the summary of a log file.
+     */
+    public static class LogSummary
+    {
+        private String path;
+        private long size;
+        private long lastModified;
+        private String[] names;
+        private long[] totalMinutes;
+        private int[] sessionsAttended;
+        private int numSessions;
+        private long firstDay = Session.INVALID_DATE;
+        private long lastDay = Session.INVALID_DATE;
+
+        /**
+         * Constructor: Create an instance of the object by loading the log file.
+         *
+         * @param file specifies the log file.
+         * @throws IOException if the log file does not exist or cannot be read.
+         * @throws IllegalArgumentException if the log file contains invalid data.
+         */
+        LogSummary(File file) throws IOException, IllegalArgumentException
+        {
+            path = file.getPath();
+            size = file.length();
+            lastModified = file.lastModified();
+
+            AttendanceLog log = new AttendanceLog(file, false);
+            int numAttendants = log.getNumAttendants();
+
+            names = new String[numAttendants];
+            totalMinutes = new long[numAttendants];
+            sessionsAttended = new int[numAttendants];
+            for (int i = 0; i < numAttendants; i++)
+            {
+                Attendant attendant = log.getAttendant(i);
+                names[i] = attendant.toString();
+                totalMinutes[i] = attendant.getTotalMinutes();
+                sessionsAttended[i] = attendant.getNumSessionsAttended();
+            }
+
+            numSessions = log.getNumSessions();
+            for (int i = 0; i < numSessions; i++)
+            {
+                long day = log.getSession(i).getEpochDay();
+                if (day != Session.INVALID_DATE)
+                {
+                    if (firstDay == Session.INVALID_DATE || day < firstDay) firstDay = day;
+                    if (lastDay == Session.INVALID_DATE || day > lastDay) lastDay = day;
+                }
+            }
+        }   //LogSummary
+
+        /**
+         * Constructor: Create an instance of the object by reading it from the cache file.
+         *
+         * @param input specifies the cache file input.
+         * @param maxCount specifies the upper bound of any count in the cache file.
+         * @throws IOException if the cache file cannot be read or contains invalid data.
+         */
+        LogSummary(DataInputStream input, long maxCount) throws IOException
+        {
+            path = input.readUTF();
+            size = input.readLong();
+            lastModified = input.readLong();
+            numSessions = readCount(input, maxCount);
+            firstDay = input.readLong();
+            lastDay = input.readLong();
+
+            int numAttendants = readCount(input, maxCount);
+            names = new String[numAttendants];
+            totalMinutes = new long[numAttendants];
+            sessionsAttended = new int[numAttendants];
+            for (int i = 0; i < numAttendants; i++)
+            {
+                names[i] = input.readUTF();
+                totalMinutes[i] = input.readLong();
+                sessionsAttended[i] = readCount(input, maxCount);
+            }
+        }   //LogSummary
+
+        /**
+         * This method writes the summary to the cache file.
+         *
+         * @param output specifies the cache file output.
+         * @throws IOException if the cache file cannot be written.
+         */
+        void write(DataOutputStream output) throws IOException
+        {
+            output.writeUTF(path);
+            output.writeLong(size);
+            output.writeLong(lastModified);
+            output.writeInt(numSessions);
+            output.writeLong(firstDay);
+            output.writeLong(lastDay);
+
+            output.writeInt(names.length);
+            for (int i = 0; i < names.length; i++)
+            {
+                output.writeUTF(names[i]);
+                output.writeLong(totalMinutes[i]);
+                output.writeInt(sessionsAttended[i]);
+            }
+        }   //write
+
+        /**
+         * This method determines if the summary is still valid for the specified log file.
+         *
+         * @param file specifies the log file.
+         * @return true if the log file has not changed since it was summarized, false otherwise.
+         */
+        boolean isCurrent(File file)
+        {
+            return file.length() == size && file.lastModified() == lastModified;
+        }   //isCurrent
+
+        /**
+         * This method returns the path of the log file.
+         *
+         * @return path of the log file.
+         */
+        public String getPath()
+        {
+            return path;
+        }   //getPath
+
+        /**
+         * This method returns the number of attendants in the log file.
+         *
+         * @return number of attendants.
+         */
+        public int getNumAttendants()
+        {
+            return names.length;
+        }   //getNumAttendants
+
+        /**
+         * This method returns the name of the attendant of the specified index.
+         *
+         * @param index specifies the index of the attendant.
+         * @return name of the attendant.
+         */
+        public String getName(int index)
+        {
+            return names[index];
+        }   //getName
+
+        /**
+         * This method returns the total minutes of the attendant of the specified index.
+         *
+         * @param index specifies the index of the attendant.
+         * @return total minutes of the attendant.
+         */
+        public long getTotalMinutes(int index)
+        {
+            return totalMinutes[index];
+        }   //getTotalMinutes
+
+        /**
+         * This method returns the number of sessions attended by the attendant of the specified
+         * index.
+         *
+         * @param index specifies the index of the attendant.
+         * @return number of sessions attended.
+         */
+        public int getSessionsAttended(int index)
+        {
+            return sessionsAttended[index];
+        }   //getSessionsAttended
+
+        /**
+         * This method returns the number of sessions in the log file.
+         *
+         * @return number of sessions.
+         */
+        public int getNumSessions()
+        {
+            return numSessions;
+        }   //getNumSessions
+
+        /**
+         * This method returns the date of the first session.
+         *
+         * @return day number of the first session, Session.INVALID_DATE if there is none.
+         */
+        public long getFirstDay()
+        {
+            return firstDay;
+        }   //getFirstDay
+
+        /**
+         * This method returns the date of the last session.
+         *
+         * @return day number of the last session, Session.INVALID_DATE if there is none.
+         */
+        public long getLastDay()
+        {
+            return lastDay;
+        }   //getLastDay
+
+    }   //class LogSummary
+
+    /**
+     * This class contains the error of a log file that failed to parse, with the size and
+     * modification time of the log file when it was parsed.
+     */
+    private static class ParseFailure
+    {
+        private long size;
+        private long lastModified;
+        private String message;
+
+        /**
+         * Constructor: Create an instance of the object.
+         *
+         * @param size specifies the size of the log file when it was parsed.
+         * @param lastModified specifies the modification time of the log file when it was parsed.
+         * @param message specifies the error message.
+         */
+        ParseFailure(long size, long lastModified, String message)
+        {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.message = message;
+        }   //ParseFailure
+
+        /**
+         * Constructor: Create an instance of the object by reading it from the cache file.
+         *
+         * @param input specifies the cache file input.
+         * @throws IOException if the cache file cannot be read.
+         */
+        ParseFailure(DataInputStream input) throws IOException
+        {
+            size = input.readLong();
+            lastModified = input.readLong();
+            message = input.readUTF();
+        }   //ParseFailure
+
+        /**
+         * This method writes the failure to the cache file.
+         *
+         * @param output specifies the cache file output.
+         * @throws IOException if the cache file cannot be written.
+         */
+        void write(DataOutputStream output) throws IOException
+        {
+            output.writeLong(size);
+            output.writeLong(lastModified);
+            output.writeUTF(message);
+        }   //write
+
+        /**
+         * This method determines if the failure is still valid for the specified log file.
+         *
+         * @param file specifies the log file.
+         * @return true if the log file has not changed since it failed to parse, false otherwise.
+         */
+        boolean isCurrent(File file)
+        {
+            return file.length() == size && file.lastModified() == lastModified;
+        }   //isCurrent
+
+    }   //class ParseFailure
+
+    private static final String LOG_FILE_SUFFIX = ".csv";
+    private static final int CACHE_MAGIC = 0x54524349;
+    private static final int CACHE_VERSION = 2;
+    //
+    // Error messages are cut short so they always fit in a cache file string.
+    //
+    private static final int MAX_MESSAGE_LENGTH = 1024;
+
+    private File folder;
+    private File cacheFile;
+    private TreeMap<String, LogSummary> summaries = new TreeMap<String, LogSummary>();
+    private TreeMap<String, ParseFailure> failures = new TreeMap<String, ParseFailure>();
+    private TreeMap<String, long[]> totals = null;
+
+    /**
+     * Constructor: Create an instance of the object. If a cache file is specified and exists,
+     * the summaries and failures are loaded from it.
+     *
+     * @param folder specifies the folder containing the log files.
+     * @param cacheFile specifies the file to keep the summaries in between runs, null if none.
+     */
+    public LogDirectoryIndex(File folder, File cacheFile)
+    {
+        this.folder = folder;
+        this.cacheFile = cacheFile;
+
+        if (cacheFile != null && cacheFile.exists())
+        {
+            try
+            {
+                readCacheFile();
+            }
+            catch (IOException e)
+            {
+                //
+                // A bad cache file just means everything is parsed again.
+                //
+                summaries.clear();
+                failures.clear();
+            }
+        }
+    }   //LogDirectoryIndex
+
+    /**
+     * This method reads a count from the cache file and checks that it is within bounds.
+     *
+     * @param input specifies the cache file input.
+     * @param maxCount specifies the upper bound of the count.
+     * @return count read.
+     * @throws IOException if the count cannot be read or is out of bounds.
+     */
+    private static int readCount(DataInputStream input, long maxCount) throws IOException
+    {
+        int count = input.readInt();
+
+        if (count < 0 || count > maxCount)
+        {
+            throw new IOException("Invalid count " + count + " in the index cache file.");
+        }
+
+        return count;
+    }   //readCount
+
+    /**
+     * This method loads the summaries and failures from the cache file.
+     *
+     * @throws IOException if the cache file cannot be read or contains invalid data.
+     */
+    private void readCacheFile() throws IOException
+    {
+        //
+        // No count in the cache file can be larger than the file itself, so a damaged count
+        // cannot make us allocate more than that.
+        //
+        long maxCount = cacheFile.length();
+
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(cacheFile))))
+        {
+            if (input.readInt() != CACHE_MAGIC || input.readInt() != CACHE_VERSION)
+            {
+                throw new IOException(cacheFile + " is not an index cache file.");
+            }
+
+            int numSummaries = readCount(input, maxCount);
+            for (int i = 0; i < numSummaries; i++)
+            {
+                LogSummary summary = new LogSummary(input, maxCount);
+                summaries.put(summary.getPath(), summary);
+            }
+
+            int numFailures = readCount(input, maxCount);
+            for (int i = 0; i < numFailures; i++)
+            {
+                String path = input.readUTF();
+                failures.put(path, new ParseFailure(input));
+            }
+        }
+    }   //readCacheFile
+
+    /**
+     * This method writes the summaries and failures to the cache file.
+     *
+     * @throws IOException if the cache file cannot be written.
+     */
+    private void writeCacheFile() throws IOException
+    {
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(cacheFile))))
+        {
+            output.writeInt(CACHE_MAGIC);
+            output.writeInt(CACHE_VERSION);
+
+            output.writeInt(summaries.size());
+            for (LogSummary summary: summaries.values())
+            {
+                summary.write(output);
+            }
+
+            output.writeInt(failures.size());
+            for (Map.Entry<String, ParseFailure> entry: failures.entrySet())
+            {
+                output.writeUTF(entry.getKey());
+                entry.getValue().write(output);
+            }
+        }
+    }   //writeCacheFile
+
+    /**
+     * This method brings the index up to date with the log files in the folder. Log files that
+     * are new or have changed are parsed in parallel, summaries and failures of log files that no
+     * longer exist are dropped. If there is a cache file and anything has changed, the cache file
+     * is rewritten.
+     *
+     * @return number of log files parsed.
+     * @throws IOException if the cache file cannot be written.
+     */
+    public synchronized int refresh() throws IOException
+    {
+        File[] files = folder.listFiles();
+        TreeMap<String, File> logFiles = new TreeMap<String, File>();
+        int numRemoved = 0;
+
+        if (files != null)
+        {
+            for (File file: files)
+            {
+                if (file.isFile() && file.getName().toLowerCase().endsWith(LOG_FILE_SUFFIX))
+                {
+                    logFiles.put(file.getPath(), file);
+                }
+            }
+        }
+
+        for (Iterator<String> iterator = summaries.keySet().iterator(); iterator.hasNext();)
+        {
+            if (!logFiles.containsKey(iterator.next()))
+            {
+                iterator.remove();
+                numRemoved++;
+            }
+        }
+
+        for (Iterator<String> iterator = failures.keySet().iterator(); iterator.hasNext();)
+        {
+            if (!logFiles.containsKey(iterator.next()))
+            {
+                iterator.remove();
+                numRemoved++;
+            }
+        }
+
+        ArrayList<File> changedFiles = new ArrayList<File>();
+        for (File file: logFiles.values())
+        {
+            LogSummary summary = summaries.get(file.getPath());
+            ParseFailure failure = failures.get(file.getPath());
+            if ((summary == null || !summary.isCurrent(file)) && (failure == null || !failure.isCurrent(file)))
+            {
+                changedFiles.add(file);
+            }
+        }
+
+        if (!changedFiles.isEmpty())
+        {
+            parseFiles(changedFiles);
+        }
+
+        if (numRemoved > 0 || !changedFiles.isEmpty())
+        {
+            totals = null;
+            if (cacheFile != null)
+            {
+                writeCacheFile();
+            }
+        }
+
+        return changedFiles.size();
+    }   //refresh
+
+    /**
+     * This method parses the specified log files in parallel and stores their summaries, or their
+     * errors if they fail to parse.
+     *
+     * @param files specifies the log files to parse.
+     */
+    private void parseFiles(List<File> files)
+    {
+        int numThreads = Math.min(files.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        ArrayList<Future<LogSummary>> futures = new ArrayList<Future<LogSummary>>();
+        long[] sizes = new long[files.size()];
+        long[] lastModifiedTimes = new long[files.size()];
+
+        try
+        {
+            for (int i = 0; i < files.size(); i++)
+            {
+                final File file = files.get(i);
+                //
+                // The failure of a log file is kept with its size and time before parsing, like
+                // a summary, so a log file changed while it was parsed is parsed again.
+                //
+                sizes[i] = file.length();
+                lastModifiedTimes[i] = file.lastModified();
+                futures.add(executor.submit(new Callable<LogSummary>()
+                {
+                    @Override
+                    public LogSummary call() throws Exception
+                    {
+                        return new LogSummary(file);
+                    }
+                }));
+            }
+
+            for (int i = 0; i < files.size(); i++)
+            {
+                String path = files.get(i).getPath();
+                try
+                {
+                    summaries.put(path, futures.get(i).get());
+                    failures.remove(path);
+                }
+                catch (ExecutionException e)
+                {
+                    String message = String.valueOf(e.getCause().getMessage());
+                    if (message.length() > MAX_MESSAGE_LENGTH)
+                    {
+                        message = message.substring(0, MAX_MESSAGE_LENGTH);
+                    }
+                    summaries.remove(path);
+                    failures.put(path, new ParseFailure(sizes[i], lastModifiedTimes[i], message));
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }   //parseFiles
+
+    /**
+     * This method returns the summaries of all valid log files in the folder.
+     *
+     * @return collection of summaries ordered by path.
+     */
+    public synchronized Collection<LogSummary> getSummaries()
+    {
+        return Collections.unmodifiableCollection(new ArrayList<LogSummary>(summaries.values()));
+    }   //getSummaries
+
+    /**
+     * This method returns the log files in the folder that fail to parse, whether they were
+     * parsed in the last refresh or their failure was cached.
+     *
+     * @return map of file paths to error messages.
+     */
+    public synchronized Map<String, String> getInvalidFiles()
+    {
+        TreeMap<String, String> invalidFiles = new TreeMap<String, String>();
+
+        for (Map.Entry<String, ParseFailure> entry: failures.entrySet())
+        {
+            invalidFiles.put(entry.getKey(), entry.getValue().message);
+        }
+
+        return Collections.unmodifiableMap(invalidFiles);
+    }   //getInvalidFiles
+
+    /**
+     * This method returns the total minutes and sessions attended of each attendant across all
+     * log files in the folder, matching attendants by name. The totals are computed once per
+     * refresh that changed anything.
+     *
+     * @return map of attendant names to {total minutes, sessions attended}, ordered by name.
+     */
+    public synchronized SortedMap<String, long[]> getTotals()
+    {
+        if (totals == null)
+        {
+            totals = new TreeMap<String, long[]>();
+            for (LogSummary summary: summaries.values())
+            {
+                for (int i = 0; i < summary.getNumAttendants(); i++)
+                {
+                    long[] total = totals.get(summary.getName(i));
+                    if (total == null)
+                    {
+                        total = new long[2];
+                        totals.put(summary.getName(i), total);
+                    }
+                    total[0] += summary.getTotalMinutes(i);
+                    total[1] += summary.getSessionsAttended(i);
+                }
+            }
+        }
+
+        return Collections.unmodifiableSortedMap(totals);
+    }   //getTotals
+
+}   //class LogDirectoryIndex
@@ -0,0 +1,240 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class implements the dispatcher of the events of an AttendanceLog. Publishing an event only
+ * queues it, so the check-in path never waits for a listener. The dispatcher thread waits for
+ * events, takes everything that has been queued in one batch and delivers the batch to each
+ * listener in one call. A listener only receives the events published after it was added, e.g.
+ * the session journal added after a meeting has been replayed from it does not receive the
+ * replayed check-ins again.
+ */
+class LogEventDispatcher implements Runnable
+{
+    private static final AttendanceLogEvent END_OF_EVENTS = new AttendanceLogEvent(
+            AttendanceLogEvent.Type.SESSION_CLOSED, Collections.<Attendant>emptyList(), null, 0, 0);
+
+    /**
+     * This class contains a listener and the sequence number of the last event published before
+     * it was added.
+     */
+    private static class Subscription
+    {
+        final AttendanceLogListener listener;
+        final long startSequence;
+
+        /**
+         * Constructor: Create an instance of the object.
+         *
+         * @param listener specifies the listener.
+         * @param startSequence specifies the sequence number of the last event not delivered to it.
+         */
+        Subscription(AttendanceLogListener listener, long startSequence)
+        {
+            this.listener = listener;
+            this.startSequence = startSequence;
+        }   //Subscription
+
+    }   //class Subscription
+
+    private final AttendanceLog log;
+    private final LinkedBlockingQueue<AttendanceLogEvent> queue = new LinkedBlockingQueue<AttendanceLogEvent>();
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<Subscription>();
+    private final AtomicLong sequence = new AtomicLong(0);
+    private final Thread dispatcherThread;
+
+    /**
+     * Constructor: Create an instance of the object and start the dispatcher thread.
+     *
+     * @param log specifies the AttendanceLog publishing the events.
+     */
+    LogEventDispatcher(AttendanceLog log)
+    {
+        this.log = log;
+        dispatcherThread = new Thread(this, "LogEventDispatcher");
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+    }   //LogEventDispatcher
+
+    /**
+     * This method adds a listener. It receives the events published from now on.
+     *
+     * @param listener specifies the listener.
+     */
+    void addListener(AttendanceLogListener listener)
+    {
+        subscriptions.add(new Subscription(listener, sequence.get()));
+    }   //addListener
+
+    /**
+     * This method removes a listener. Events already being delivered may still reach it.
+     *
+     * @param listener specifies the listener.
+     * @return true if there is no listener left, false otherwise.
+     */
+    boolean removeListener(AttendanceLogListener listener)
+    {
+        for (Subscription subscription: subscriptions)
+        {
+            if (subscription.listener == listener)
+            {
+                subscriptions.remove(subscription);
+            }
+        }
+
+        return subscriptions.isEmpty();
+    }   //removeListener
+
+    /**
+     * This method queues an event to be delivered to the listeners.
+     *
+     * @param type specifies the event type.
+     * @param attendants specifies the attendants of the event.
+     * @param session specifies the session of a session event, null otherwise.
+     * @param timestamp specifies the time of the event.
+     */
+    void publish(AttendanceLogEvent.Type type, List<Attendant> attendants, Session session, long timestamp)
+    {
+        //
+        // The sequence number is taken before the event is queued, so an event queued after a
+        // listener is added may still be older than the listener and is then skipped for it.
+        //
+        queue.add(new AttendanceLogEvent(type, attendants, session, timestamp, sequence.incrementAndGet()));
+    }   //publish
+
+    /**
+     * This method delivers all pending events and stops the dispatcher thread.
+     */
+    void close()
+    {
+        queue.add(END_OF_EVENTS);
+        if (dispatcherThread != Thread.currentThread())
+        {
+            try
+            {
+                dispatcherThread.join();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }   //close
+
+    //
+    // Implements Runnable interface.
+    //
+
+    /**
+     * This method runs the dispatcher thread. It waits for events and delivers everything that
+     * has been queued in one batch.
+     */
+    @Override
+    public void run()
+    {
+        boolean done = false;
+
+        while (!done)
+        {
+            //
+            // Listeners may keep the batch, e.g. to handle it on the UI thread, so every batch
+            // gets its own list.
+            //
+            ArrayList<AttendanceLogEvent> batch = new ArrayList<AttendanceLogEvent>();
+            try
+            {
+                batch.add(queue.take());
+            }
+            catch (InterruptedException e)
+            {
+                break;
+            }
+            queue.drainTo(batch);
+
+            int endIndex = batch.indexOf(END_OF_EVENTS);
+            if (endIndex != -1)
+            {
+                batch.subList(endIndex, batch.size()).clear();
+                done = true;
+            }
+
+            if (!batch.isEmpty())
+            {
+                deliver(batch);
+            }
+        }
+    }   //run
+
+    /**
+     * This method delivers a batch of events to each listener, leaving out the events published
+     * before the listener was added. A listener that throws does not affect the others.
+     *
+     * @param batch specifies the events.
+     */
+    private void deliver(List<AttendanceLogEvent> batch)
+    {
+        List<AttendanceLogEvent> events = Collections.unmodifiableList(batch);
+        long minSequence = Long.MAX_VALUE;
+
+        for (AttendanceLogEvent event: batch)
+        {
+            minSequence = Math.min(minSequence, event.getSequence());
+        }
+
+        for (Subscription subscription: subscriptions)
+        {
+            List<AttendanceLogEvent> newEvents = events;
+            if (minSequence <= subscription.startSequence)
+            {
+                newEvents = new ArrayList<AttendanceLogEvent>(batch.size());
+                for (AttendanceLogEvent event: batch)
+                {
+                    if (event.getSequence() > subscription.startSequence)
+                    {
+                        newEvents.add(event);
+                    }
+                }
+            }
+
+            if (!newEvents.isEmpty())
+            {
+                try
+                {
+                    subscription.listener.onLogEvents(log, newEvents);
+                }
+                catch (RuntimeException e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }   //deliver
+
+}   //class LogEventDispatcher
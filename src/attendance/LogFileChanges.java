@@ -0,0 +1,397 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.*;
+
+/**
+ * This class computes the changes made to a log file by another program, e.g. a mentor fixing
+ * a name or the minutes of a past session in a spreadsheet while the meeting is running. The
+ * lines of the edited file are compared with the lines of the file as last loaded by the
+ * AttendanceLog. Only the header, the ID row and the session rows that differ are parsed, the
+ * unchanged rows are skipped without being split. Renamed attendant columns are recognized by
+ * position when the number of columns has not changed. The changes are validated as a whole
+ * before anything is applied, so an edit that cannot be merged leaves the AttendanceLog as is.
+ */
+public class LogFileChanges
+{
+    private static final String QUOTED_SPLIT_REGEX = ",(?=([^\"]*\"[^\"]*\")*[^\"]*$)";
+
+    private ArrayList<Attendant> addedAttendants = new ArrayList<Attendant>();
+    private ArrayList<Attendant> removedAttendants = new ArrayList<Attendant>();
+    private HashMap<Attendant, String> renamedAttendants = new HashMap<Attendant, String>();
+    private HashMap<Attendant, String> changedIds = new HashMap<Attendant, String>();
+    private ArrayList<Attendant> columnAttendants = new ArrayList<Attendant>();
+    private TreeMap<Integer, Session> changedSessions = new TreeMap<Integer, Session>();
+    private TreeMap<Integer, long[]> changedMinutes = new TreeMap<Integer, long[]>();
+    private int numChangedRows = 0;
+
+    /**
+     * Constructor: Create an instance of the object.
+     *
+     * @param log specifies the AttendanceLog to merge the changes into.
+     * @param oldLines specifies the non-blank lines of the log file as last loaded.
+     * @param newLines specifies the non-blank lines of the edited log file.
+     * @throws IllegalArgumentException if the edited log file contains invalid data or changes
+     *         that cannot be merged.
+     */
+    public LogFileChanges(AttendanceLog log, List<String> oldLines, List<String> newLines)
+        throws IllegalArgumentException
+    {
+        if (newLines.isEmpty())
+        {
+            throw new IllegalArgumentException("Log file is empty.");
+        }
+
+        String[] newNames = parseHeader(newLines.get(0));
+        String[] oldNames = oldLines.isEmpty()? new String[0]: parseHeader(oldLines.get(0));
+        boolean headerChanged = oldLines.isEmpty() || !oldLines.get(0).equals(newLines.get(0));
+        int numFields = Session.header.length + newNames.length;
+
+        if (headerChanged)
+        {
+            numChangedRows++;
+            mapColumns(log, oldNames, newNames);
+        }
+        else
+        {
+            for (int i = 0; i < newNames.length; i++)
+            {
+                columnAttendants.add(log.findAttendant(newNames[i]));
+            }
+        }
+
+        //
+        // The ID row is parsed if it has changed or the columns have moved.
+        //
+        String oldIdRow = getIdRow(oldLines);
+        String newIdRow = getIdRow(newLines);
+        if (headerChanged || (oldIdRow == null? newIdRow != null: !oldIdRow.equals(newIdRow)))
+        {
+            if (newIdRow != null || oldIdRow != null)
+            {
+                numChangedRows++;
+            }
+            parseIdRow(newIdRow, numFields);
+        }
+
+        //
+        // Compare the session rows and parse only those that differ.
+        //
+        int oldFirstRow = oldIdRow != null? 2: 1;
+        int newFirstRow = newIdRow != null? 2: 1;
+        int numOldRows = Math.max(oldLines.size() - oldFirstRow, 0);
+        int numNewRows = newLines.size() - newFirstRow;
+
+        if (numNewRows < numOldRows)
+        {
+            throw new IllegalArgumentException(
+                    String.format("%d sessions were removed from the log file.", numOldRows - numNewRows));
+        }
+        else if (numNewRows > numOldRows && log.getNumSessions() != numOldRows)
+        {
+            throw new IllegalArgumentException("Sessions were added to the log file after the log was changed.");
+        }
+
+        for (int i = 0; i < numNewRows; i++)
+        {
+            String line = newLines.get(newFirstRow + i);
+            if (headerChanged || i >= numOldRows || !line.equals(oldLines.get(oldFirstRow + i)))
+            {
+                parseSessionRow(i, line, numFields);
+            }
+        }
+    }   //LogFileChanges
+
+    /**
+     * This method parses the header line of a log file into the attendant names.
+     *
+     * @param line specifies the header line.
+     * @return attendant names without quotes.
+     * @throws IllegalArgumentException if the header has no attendant column.
+     */
+    private static String[] parseHeader(String line)
+    {
+        String[] fields = line.split(QUOTED_SPLIT_REGEX, -1);
+
+        if (fields.length <= Session.header.length)
+        {
+            throw new IllegalArgumentException(
+                    String.format("Data file must have at least 6 fields (numFields=%d)", fields.length));
+        }
+
+        String[] names = new String[fields.length - Session.header.length];
+        for (int i = 0; i < names.length; i++)
+        {
+            names[i] = unquote(fields[Session.header.length + i]);
+        }
+
+        return names;
+    }   //parseHeader
+
+    /**
+     * This method removes the surrounding quotes of a field if any.
+     *
+     * @param field specifies the field.
+     * @return field without quotes.
+     */
+    private static String unquote(String field)
+    {
+        if (field.length() > 1 && field.charAt(0) == '"' && field.charAt(field.length() - 1) == '"')
+        {
+            field = field.substring(1, field.length() - 1);
+        }
+
+        return field;
+    }   //unquote
+
+    /**
+     * This method returns the ID row of a log file.
+     *
+     * @param lines specifies the lines of the log file.
+     * @return ID row, null if the log file has none.
+     */
+    private static String getIdRow(List<String> lines)
+    {
+        return lines.size() > 1 && lines.get(1).startsWith(AttendanceLog.ID_ROW_TAG + ",")? lines.get(1): null;
+    }   //getIdRow
+
+    /**
+     * This method maps each attendant column of the edited header to an attendant. Names that
+     * disappeared from the header are removed unless they are in the current session. If the
+     * number of columns is the same, a name replaced in place by a name that is new to the
+     * header is taken as a rename. Any other new name becomes a new attendant unless the log
+     * already has an attendant with that name, e.g. one added in the Editor dialog but not saved.
+     *
+     * @param log specifies the AttendanceLog.
+     * @param oldNames specifies the attendant names of the header as last loaded.
+     * @param newNames specifies the attendant names of the edited header.
+     */
+    private void mapColumns(AttendanceLog log, String[] oldNames, String[] newNames)
+    {
+        HashSet<String> oldSet = new HashSet<String>(Arrays.asList(oldNames));
+        HashSet<String> newSet = new HashSet<String>(Arrays.asList(newNames));
+        HashSet<String> renamedFrom = new HashSet<String>();
+        HashMap<String, Attendant> newAttendants = new HashMap<String, Attendant>();
+
+        for (int i = 0; i < newNames.length; i++)
+        {
+            String name = newNames[i];
+            Attendant attendant = newAttendants.get(name);
+
+            if (attendant == null)
+            {
+                attendant = log.findAttendant(name);
+            }
+
+            if (attendant == null && oldNames.length == newNames.length && !oldSet.contains(name) &&
+                !newSet.contains(oldNames[i]))
+            {
+                //
+                // The name in this column has been corrected.
+                //
+                attendant = log.findAttendant(oldNames[i]);
+                if (attendant != null)
+                {
+                    renamedAttendants.put(attendant, name);
+                    renamedFrom.add(oldNames[i]);
+                }
+            }
+
+            if (attendant == null)
+            {
+                attendant = new Attendant(name);
+                addedAttendants.add(attendant);
+            }
+
+            newAttendants.put(name, attendant);
+            columnAttendants.add(attendant);
+        }
+
+        for (String name: oldSet)
+        {
+            Attendant attendant = log.findAttendant(name);
+            if (attendant != null && !newSet.contains(name) && !renamedFrom.contains(name) &&
+                !attendant.isCheckedIn() && attendant.getCurrentSessionMinutes() == 0)
+            {
+                removedAttendants.add(attendant);
+            }
+        }
+    }   //mapColumns
+
+    /**
+     * This method parses the ID row and records the badge IDs that have changed.
+     *
+     * @param line specifies the ID row, null if the edited log file has none.
+     * @param numFields specifies the number of fields of the header.
+     * @throws IllegalArgumentException if the ID row has the wrong number of fields.
+     */
+    private void parseIdRow(String line, int numFields)
+    {
+        String[] fields = line != null? line.split(QUOTED_SPLIT_REGEX, -1): null;
+
+        if (fields != null && fields.length != numFields)
+        {
+            throw new IllegalArgumentException(
+                    String.format("Invalid ID row (incorrect number of fields - %d).", fields.length));
+        }
+
+        for (int i = 0; i < columnAttendants.size(); i++)
+        {
+            Attendant attendant = columnAttendants.get(i);
+            if (attendant == null)
+            {
+                continue;
+            }
+
+            String id = fields != null? unquote(fields[Session.header.length + i].trim()).trim(): "";
+            String oldId = attendant.getId() != null? attendant.getId(): "";
+
+            if (!id.equals(oldId))
+            {
+                changedIds.put(attendant, id);
+            }
+        }
+    }   //parseIdRow
+
+    /**
+     * This method parses a changed or added session row.
+     *
+     * @param index specifies the index of the past session.
+     * @param line specifies the session row.
+     * @param numFields specifies the number of fields of the header.
+     * @throws IllegalArgumentException if the row contains invalid data.
+     */
+    private void parseSessionRow(int index, String line, int numFields)
+    {
+        String[] fields = line.split(",");
+
+        if (fields.length != numFields)
+        {
+            throw new IllegalArgumentException(
+                    String.format("Invalid data file (incorrect number of fields - %d).", fields.length));
+        }
+
+        long[] minutes = new long[numFields - Session.header.length];
+        for (int i = 0; i < minutes.length; i++)
+        {
+            minutes[i] = Long.parseLong(fields[Session.header.length + i]);
+        }
+
+        changedSessions.put(index, new Session(fields));
+        changedMinutes.put(index, minutes);
+        numChangedRows++;
+    }   //parseSessionRow
+
+    /**
+     * This method determines if the edited log file is the same as the log file as last loaded.
+     *
+     * @return true if there is no change, false otherwise.
+     */
+    public boolean isEmpty()
+    {
+        return numChangedRows == 0;
+    }   //isEmpty
+
+    /**
+     * This method returns the number of changed lines: the header, the ID row and the changed
+     * or added session rows.
+     *
+     * @return number of changed lines.
+     */
+    public int getNumChangedRows()
+    {
+        return numChangedRows;
+    }   //getNumChangedRows
+
+    /**
+     * This method returns the attendants of new columns in the edited header.
+     *
+     * @return list of new attendants in column order.
+     */
+    public List<Attendant> getAddedAttendants()
+    {
+        return Collections.unmodifiableList(addedAttendants);
+    }   //getAddedAttendants
+
+    /**
+     * This method returns the attendants whose columns were removed from the edited header.
+     *
+     * @return list of removed attendants.
+     */
+    public List<Attendant> getRemovedAttendants()
+    {
+        return Collections.unmodifiableList(removedAttendants);
+    }   //getRemovedAttendants
+
+    /**
+     * This method returns the attendants whose names were corrected in the edited header.
+     *
+     * @return map of attendants to their new names.
+     */
+    public Map<Attendant, String> getRenamedAttendants()
+    {
+        return Collections.unmodifiableMap(renamedAttendants);
+    }   //getRenamedAttendants
+
+    /**
+     * This method returns the attendants whose badge IDs were changed in the edited ID row.
+     *
+     * @return map of attendants to their new badge IDs (empty string to clear the badge ID).
+     */
+    public Map<Attendant, String> getChangedIds()
+    {
+        return Collections.unmodifiableMap(changedIds);
+    }   //getChangedIds
+
+    /**
+     * This method returns the attendant of each attendant column of the edited log file.
+     *
+     * @return list of attendants in column order, null for a column whose attendant has been
+     *         removed in the Editor dialog.
+     */
+    public List<Attendant> getColumnAttendants()
+    {
+        return Collections.unmodifiableList(columnAttendants);
+    }   //getColumnAttendants
+
+    /**
+     * This method returns the changed or added past sessions.
+     *
+     * @return map of session indices to sessions in index order.
+     */
+    public SortedMap<Integer, Session> getChangedSessions()
+    {
+        return Collections.unmodifiableSortedMap(changedSessions);
+    }   //getChangedSessions
+
+    /**
+     * This method returns the minutes of the changed or added past sessions.
+     *
+     * @return map of session indices to the minutes of each attendant column.
+     */
+    public SortedMap<Integer, long[]> getChangedMinutes()
+    {
+        return Collections.unmodifiableSortedMap(changedMinutes);
+    }   //getChangedMinutes
+
+}   //class LogFileChanges
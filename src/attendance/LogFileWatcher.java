@@ -0,0 +1,199 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class watches the log file of an AttendanceLog with the NIO WatchService and reloads it
+ * when it is changed by another program. Spreadsheet programs usually save by writing several
+ * times or by renaming a temporary file over the log file, so the reload waits until the folder
+ * has been quiet for the settle time before reading the file. The reload is done on the watcher
+ * thread and its result is reported to the listener on that thread.
+ */
+public class LogFileWatcher implements Closeable, Runnable
+{
+    public static final long DEFAULT_SETTLE_MILLIS = 500;
+
+    /**
+     * This interface is implemented by the receiver of the reload results.
+     */
+    public interface Listener
+    {
+        /**
+         * This method is called after changes of the log file have been merged into the log.
+         *
+         * @param log specifies the AttendanceLog.
+         * @param changes specifies the merged changes.
+         */
+        void onLogFileReloaded(AttendanceLog log, LogFileChanges changes);
+
+        /**
+         * This method is called if the changed log file could not be merged into the log. The
+         * log is not changed, so the edits of the log file will be overwritten when the log
+         * file is saved unless they are fixed.
+         *
+         * @param log specifies the AttendanceLog.
+         * @param e specifies the reason of the failure.
+         */
+        void onLogFileReloadFailed(AttendanceLog log, Exception e);
+
+    }   //interface Listener
+
+    private final AttendanceLog log;
+    private final long settleMillis;
+    private final Listener listener;
+    private final Path fileName;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /**
+     * Constructor: Create an instance of the object and start watching the log file.
+     *
+     * @param log specifies the AttendanceLog whose log file is watched.
+     * @param settleMillis specifies the time in milliseconds the folder must be quiet before
+     *                     the log file is reloaded.
+     * @param listener specifies the receiver of the reload results.
+     * @throws IOException if the folder of the log file cannot be watched.
+     */
+    public LogFileWatcher(AttendanceLog log, long settleMillis, Listener listener) throws IOException
+    {
+        Path path = log.getFile().getAbsoluteFile().toPath();
+
+        this.log = log;
+        this.settleMillis = settleMillis;
+        this.listener = listener;
+        fileName = path.getFileName();
+        watchService = path.getFileSystem().newWatchService();
+        path.getParent().register(
+                watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        thread = new Thread(this, "LogFileWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }   //LogFileWatcher
+
+    /**
+     * This method stops watching the log file. A reload in progress is completed first so that
+     * the log file can be saved safely afterwards.
+     */
+    @Override
+    public void close()
+    {
+        try
+        {
+            watchService.close();
+            if (thread != Thread.currentThread())
+            {
+                thread.join();
+            }
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }   //close
+
+    /**
+     * This method runs the watcher thread. It waits for a change of the log file, waits for the
+     * folder to settle and then reloads the log file.
+     */
+    @Override
+    public void run()
+    {
+        try
+        {
+            while (true)
+            {
+                if (isLogFileChanged(watchService.take()))
+                {
+                    WatchKey key;
+                    while ((key = watchService.poll(settleMillis, TimeUnit.MILLISECONDS)) != null)
+                    {
+                        isLogFileChanged(key);
+                    }
+                    reload();
+                }
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException e)
+        {
+            //
+            // The watcher has been closed.
+            //
+        }
+    }   //run
+
+    /**
+     * This method determines if the events of a watch key include a change of the log file.
+     *
+     * @param key specifies the watch key.
+     * @return true if the log file has changed or events were lost, false otherwise.
+     */
+    private boolean isLogFileChanged(WatchKey key)
+    {
+        boolean changed = false;
+
+        for (WatchEvent<?> event: key.pollEvents())
+        {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context()))
+            {
+                changed = true;
+            }
+        }
+        key.reset();
+
+        return changed;
+    }   //isLogFileChanged
+
+    /**
+     * This method reloads the log file and reports the result to the listener.
+     */
+    private void reload()
+    {
+        try
+        {
+            LogFileChanges changes = log.reloadFile();
+            if (!changes.isEmpty())
+            {
+                listener.onLogFileReloaded(log, changes);
+            }
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            listener.onLogFileReloadFailed(log, e);
+        }
+        catch (IllegalStateException e)
+        {
+            //
+            // The log file has been closed.
+            //
+        }
+    }   //reload
+
+}   //class LogFileWatcher
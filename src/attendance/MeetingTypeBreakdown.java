@@ -0,0 +1,104 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+/**
+ * This class computes the attendance minutes of every attendant broken down by meeting type.
+ * It goes through the past sessions of an AttendanceLog once, session by session, using the
+ * meeting type bit mask of each session to add the session minutes of all attendants to the
+ * columns of the session's meeting types. A session of more than one meeting type (e.g.
+ * "Mechanical/Programming") counts fully towards each of its types.
+ */
+public class MeetingTypeBreakdown
+{
+    private long[][] minutes;
+
+    /**
+     * Constructor: Create an instance of the object.
+     *
+     * @param log specifies the attendance log.
+     * @param cutoffDay specifies the last meeting date to be included as a day number (see
+     *                  Session.getEpochDay), Long.MAX_VALUE to include all sessions. With a
+     *                  cutoff date, sessions with an invalid date are not included.
+     */
+    public MeetingTypeBreakdown(AttendanceLog log, long cutoffDay)
+    {
+        int numAttendants = log.getNumAttendants();
+        int numSessions = log.getNumSessions();
+        int[] types = new int[Session.meetingTypes.length];
+        Attendant[] attendants = new Attendant[numAttendants];
+
+        minutes = new long[numAttendants][Session.meetingTypes.length];
+        for (int i = 0; i < numAttendants; i++)
+        {
+            attendants[i] = log.getAttendant(i);
+        }
+
+        for (int i = 0; i < numSessions; i++)
+        {
+            Session session = log.getSession(i);
+            //
+            // With a cutoff date, undated sessions are left out as they are by EligibilityService,
+            // so that the columns add up to the hours of the report.
+            //
+            if (cutoffDay != Long.MAX_VALUE &&
+                (session.getEpochDay() == Session.INVALID_DATE || session.getEpochDay() > cutoffDay)) continue;
+            //
+            // Decode the meeting type bits of the session once.
+            //
+            int mask = session.getMeetingTypeMask();
+            int numTypes = 0;
+            for (int type = 0; type < types.length; type++)
+            {
+                if ((mask & (1 << type)) != 0)
+                {
+                    types[numTypes++] = type;
+                }
+            }
+
+            for (int j = 0; j < numAttendants; j++)
+            {
+                long sessionMinutes = attendants[j].getSessionMinutes(i);
+                if (sessionMinutes > 0)
+                {
+                    for (int k = 0; k < numTypes; k++)
+                    {
+                        minutes[j][types[k]] += sessionMinutes;
+                    }
+                }
+            }
+        }
+    }   //MeetingTypeBreakdown
+
+    /**
+     * This method returns the minutes of an attendant in meetings of the specified type.
+     *
+     * @param attendantIndex specifies the index of the attendant in the attendance log.
+     * @param type specifies the index of the meeting type in Session.meetingTypes.
+     * @return minutes of the attendant in meetings of that type.
+     */
+    public long getMinutes(int attendantIndex, int type)
+    {
+        return minutes[attendantIndex][type];
+    }   //getMinutes
+
+}   //class MeetingTypeBreakdown
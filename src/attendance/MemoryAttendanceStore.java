@@ -0,0 +1,86 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * This class implements the memory store of an AttendanceLog. The log data is kept in memory and
+ * never written to a file, e.g. to try the program out on a copy of a real roster, to test, or to
+ * benchmark the rest of the program without any file I/O. The saved data is returned by the next
+ * load.
+ */
+public class MemoryAttendanceStore implements AttendanceStore
+{
+    private final File file;
+    private volatile LogData data;
+
+    /**
+     * Constructor: Create an instance of the object.
+     *
+     * @param file specifies the log file the data came from, only used to name related files.
+     * @param data specifies the initial log data, null for an empty log.
+     */
+    public MemoryAttendanceStore(File file, LogData data)
+    {
+        this.file = file;
+        this.data = data != null? data: new LogData(
+                Collections.<String>emptyList(), Collections.<String>emptyList(),
+                new ArrayList<String[]>(), new ArrayList<long[]>());
+    }   //MemoryAttendanceStore
+
+    /**
+     * This method returns the log file the data came from. The file is never written.
+     *
+     * @return log file.
+     */
+    @Override
+    public File getFile()
+    {
+        return file;
+    }   //getFile
+
+    /**
+     * This method returns the log data last saved.
+     *
+     * @return log data.
+     */
+    @Override
+    public LogData load()
+    {
+        return data;
+    }   //load
+
+    /**
+     * This method keeps the log data in memory.
+     *
+     * @param data specifies the log data.
+     */
+    @Override
+    public void save(LogData data)
+    {
+        this.data = data;
+    }   //save
+
+}   //class MemoryAttendanceStore
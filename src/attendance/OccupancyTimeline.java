@@ -0,0 +1,270 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * This class computes the occupancy of a meeting minute by minute from its check-in and check-out
+ * events, e.g. read from a session journal or an event store. The events are sorted by time and
+ * swept once, keeping the set of attendants present. The occupancy of a minute is the highest
+ * number of attendants present at any time during that minute. Timelines of many meetings can be
+ * computed in parallel and combined into a heatmap of the average occupancy by day of the week
+ * and time of day.
+ */
+public class OccupancyTimeline
+{
+    private static final long MILLIS_PER_MINUTE = 60*1000;
+
+    //
+    // Orders events by time, with check-outs before check-ins at the same time so that an
+    // attendant checking out and another checking in at once are not counted together.
+    //
+    private static final Comparator<AttendanceEvent> timeComparator = new Comparator<AttendanceEvent>()
+    {
+        @Override
+        public int compare(AttendanceEvent event1, AttendanceEvent event2)
+        {
+            int result = Long.compare(event1.getTimestamp(), event2.getTimestamp());
+            return result != 0? result: -event1.getType().compareTo(event2.getType());
+        }
+    };
+
+    private long startMinute = 0;
+    private int[] occupancy = new int[0];
+    private int peak = 0;
+
+    /**
+     * Constructor: Create an instance of the object. The timeline spans from the minute of the
+     * first event to the minute of the last event. A check-in of an attendant already present or
+     * a check-out of an attendant not present is ignored.
+     *
+     * @param events specifies the check-in and check-out events of the meeting in any order.
+     */
+    public OccupancyTimeline(List<AttendanceEvent> events)
+    {
+        if (!events.isEmpty())
+        {
+            AttendanceEvent[] sortedEvents = events.toArray(new AttendanceEvent[events.size()]);
+            Arrays.sort(sortedEvents, timeComparator);
+
+            startMinute = Math.floorDiv(sortedEvents[0].getTimestamp(), MILLIS_PER_MINUTE);
+            long endMinute = Math.floorDiv(sortedEvents[sortedEvents.length - 1].getTimestamp(), MILLIS_PER_MINUTE);
+            occupancy = new int[(int)(endMinute - startMinute + 1)];
+
+            HashSet<String> present = new HashSet<String>();
+            int lastIndex = 0;
+            for (AttendanceEvent event: sortedEvents)
+            {
+                int index = (int)(Math.floorDiv(event.getTimestamp(), MILLIS_PER_MINUTE) - startMinute);
+                //
+                // Nobody came or left in the minutes since the last event.
+                //
+                for (int i = lastIndex + 1; i <= index; i++)
+                {
+                    occupancy[i] = present.size();
+                }
+                lastIndex = index;
+
+                if (event.getType() == AttendanceEvent.Type.CHECK_IN)
+                {
+                    present.add(event.getName());
+                }
+                else
+                {
+                    present.remove(event.getName());
+                }
+                occupancy[index] = Math.max(occupancy[index], present.size());
+                peak = Math.max(peak, present.size());
+            }
+        }
+    }   //OccupancyTimeline
+
+    /**
+     * This method computes the timelines of many meetings in parallel.
+     *
+     * @param meetings specifies the events of each meeting.
+     * @return timelines in the same order as the meetings.
+     */
+    public static List<OccupancyTimeline> computeAll(List<List<AttendanceEvent>> meetings)
+    {
+        ArrayList<OccupancyTimeline> timelines = new ArrayList<OccupancyTimeline>(meetings.size());
+
+        if (!meetings.isEmpty())
+        {
+            int numThreads = Math.min(meetings.size(), Runtime.getRuntime().availableProcessors());
+            ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+            ArrayList<Future<OccupancyTimeline>> futures = new ArrayList<Future<OccupancyTimeline>>();
+
+            try
+            {
+                for (final List<AttendanceEvent> events: meetings)
+                {
+                    futures.add(executor.submit(new Callable<OccupancyTimeline>()
+                    {
+                        @Override
+                        public OccupancyTimeline call()
+                        {
+                            return new OccupancyTimeline(events);
+                        }
+                    }));
+                }
+
+                for (Future<OccupancyTimeline> future: futures)
+                {
+                    timelines.add(future.get());
+                }
+            }
+            catch (ExecutionException e)
+            {
+                throw new RuntimeException(e.getCause());
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            finally
+            {
+                executor.shutdownNow();
+            }
+        }
+
+        return timelines;
+    }   //computeAll
+
+    /**
+     * This method splits events into meetings by their local date, e.g. to compute the timelines
+     * of the meetings kept in an event store.
+     *
+     * @param events specifies the events.
+     * @return events of each date in date order.
+     */
+    public static List<List<AttendanceEvent>> groupByDate(List<AttendanceEvent> events)
+    {
+        TreeMap<LocalDate, List<AttendanceEvent>> meetings = new TreeMap<LocalDate, List<AttendanceEvent>>();
+        ZoneId zone = ZoneId.systemDefault();
+
+        for (AttendanceEvent event: events)
+        {
+            LocalDate date = Instant.ofEpochMilli(event.getTimestamp()).atZone(zone).toLocalDate();
+            List<AttendanceEvent> meeting = meetings.get(date);
+            if (meeting == null)
+            {
+                meeting = new ArrayList<AttendanceEvent>();
+                meetings.put(date, meeting);
+            }
+            meeting.add(event);
+        }
+
+        return new ArrayList<List<AttendanceEvent>>(meetings.values());
+    }   //groupByDate
+
+    /**
+     * This method combines timelines into a heatmap of the average occupancy by day of the week
+     * and local time of day. A cell is the average over the timelines covering that minute on
+     * that day of the week, or zero if none does.
+     *
+     * @param timelines specifies the timelines.
+     * @return heatmap indexed by day of the week (0 for Monday) and minute of the day.
+     */
+    public static double[][] getWeeklyHeatmap(List<OccupancyTimeline> timelines)
+    {
+        double[][] heatmap = new double[7][Session.MINUTES_PER_DAY];
+        int[][] counts = new int[7][Session.MINUTES_PER_DAY];
+        ZoneId zone = ZoneId.systemDefault();
+
+        for (OccupancyTimeline timeline: timelines)
+        {
+            for (int i = 0; i < timeline.occupancy.length; i++)
+            {
+                LocalDateTime time = LocalDateTime.ofInstant(
+                        Instant.ofEpochMilli(timeline.getTime(i)), zone);
+                int day = time.getDayOfWeek().getValue() - 1;
+                int minute = time.getHour()*60 + time.getMinute();
+                heatmap[day][minute] += timeline.occupancy[i];
+                counts[day][minute]++;
+            }
+        }
+
+        for (int day = 0; day < heatmap.length; day++)
+        {
+            for (int minute = 0; minute < heatmap[day].length; minute++)
+            {
+                if (counts[day][minute] > 0)
+                {
+                    heatmap[day][minute] /= counts[day][minute];
+                }
+            }
+        }
+
+        return heatmap;
+    }   //getWeeklyHeatmap
+
+    /**
+     * This method returns the number of minutes in the timeline.
+     *
+     * @return number of minutes.
+     */
+    public int getNumMinutes()
+    {
+        return occupancy.length;
+    }   //getNumMinutes
+
+    /**
+     * This method returns the start time of a minute in the timeline.
+     *
+     * @param index specifies the minute index in the timeline.
+     * @return start time of the minute in milliseconds since the epoch.
+     */
+    public long getTime(int index)
+    {
+        return (startMinute + index)*MILLIS_PER_MINUTE;
+    }   //getTime
+
+    /**
+     * This method returns the occupancy of a minute in the timeline.
+     *
+     * @param index specifies the minute index in the timeline.
+     * @return highest number of attendants present during the minute.
+     */
+    public int getOccupancy(int index)
+    {
+        return occupancy[index];
+    }   //getOccupancy
+
+    /**
+     * This method returns the highest occupancy of the meeting.
+     *
+     * @return peak number of attendants present.
+     */
+    public int getPeak()
+    {
+        return peak;
+    }   //getPeak
+
+}   //class OccupancyTimeline
@@ -0,0 +1,227 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.List;
+
+/**
+ * This class keeps the occupancy counters of a meeting session: the number of attendants
+ * currently present, the peak number present, the total person-minutes so far and the number
+ * of arrivals within a recent time window. All counters are updated incrementally on each
+ * check-in and check-out in constant time. Person-minutes are integrated between changes so
+ * no attendant needs to be visited, and arrivals are counted in a ring buffer of one-minute
+ * buckets covering the time window. The counters may be updated from several input sources
+ * at once, so all methods are synchronized. The tracker may subscribe to an AttendanceLog to be
+ * updated from the log's check-in and check-out events.
+ */
+public class OccupancyTracker implements AttendanceLogListener
+{
+    private static final long MILLIS_PER_MINUTE = 60000;
+
+    private int numPresent = 0;
+    private int peakPresent = 0;
+    private long accumulatedMillis = 0;
+    private long lastChangeTime = 0;
+    private long[] bucketMinutes;
+    private int[] bucketArrivals;
+
+    /**
+     * Constructor: Create an instance of the object.
+     *
+     * @param windowMinutes specifies the length of the arrivals time window in minutes.
+     */
+    public OccupancyTracker(int windowMinutes)
+    {
+        bucketMinutes = new long[windowMinutes];
+        bucketArrivals = new int[windowMinutes];
+        reset();
+    }   //OccupancyTracker
+
+    /**
+     * This method clears all counters for a new meeting session.
+     */
+    public synchronized void reset()
+    {
+        numPresent = 0;
+        peakPresent = 0;
+        accumulatedMillis = 0;
+        lastChangeTime = 0;
+        for (int i = 0; i < bucketMinutes.length; i++)
+        {
+            bucketMinutes[i] = -1;
+            bucketArrivals[i] = 0;
+        }
+    }   //reset
+
+    /**
+     * This method records the arrival of one or more attendants.
+     *
+     * @param timestamp specifies the check-in time.
+     * @param count specifies the number of attendants checking in.
+     */
+    public synchronized void checkIn(long timestamp, int count)
+    {
+        integrate(timestamp);
+        numPresent += count;
+        if (numPresent > peakPresent)
+        {
+            peakPresent = numPresent;
+        }
+
+        long minute = timestamp/MILLIS_PER_MINUTE;
+        int index = (int)(minute%bucketMinutes.length);
+        if (bucketMinutes[index] != minute)
+        {
+            bucketMinutes[index] = minute;
+            bucketArrivals[index] = 0;
+        }
+        bucketArrivals[index] += count;
+    }   //checkIn
+
+    /**
+     * This method records the departure of one or more attendants.
+     *
+     * @param timestamp specifies the check-out time.
+     * @param count specifies the number of attendants checking out.
+     */
+    public synchronized void checkOut(long timestamp, int count)
+    {
+        integrate(timestamp);
+        numPresent = Math.max(numPresent - count, 0);
+    }   //checkOut
+
+    /**
+     * This method returns the number of attendants currently present.
+     *
+     * @return number of attendants present.
+     */
+    public synchronized int getNumPresent()
+    {
+        return numPresent;
+    }   //getNumPresent
+
+    /**
+     * This method returns the peak number of attendants present in this session.
+     *
+     * @return peak number of attendants present.
+     */
+    public synchronized int getPeakPresent()
+    {
+        return peakPresent;
+    }   //getPeakPresent
+
+    /**
+     * This method returns the total attendance of all attendants so far, including the time of
+     * the attendants still present.
+     *
+     * @param now specifies the current time.
+     * @return total person-minutes.
+     */
+    public synchronized long getPersonMinutes(long now)
+    {
+        long millis = accumulatedMillis;
+        if (lastChangeTime != 0 && now > lastChangeTime)
+        {
+            millis += numPresent*(now - lastChangeTime);
+        }
+
+        return millis/MILLIS_PER_MINUTE;
+    }   //getPersonMinutes
+
+    /**
+     * This method returns the number of arrivals within the time window ending now.
+     *
+     * @param now specifies the current time.
+     * @return number of arrivals in the time window.
+     */
+    public synchronized int getRecentArrivals(long now)
+    {
+        long nowMinute = now/MILLIS_PER_MINUTE;
+        int arrivals = 0;
+
+        for (int i = 0; i < bucketMinutes.length; i++)
+        {
+            if (bucketMinutes[i] > nowMinute - bucketMinutes.length && bucketMinutes[i] <= nowMinute)
+            {
+                arrivals += bucketArrivals[i];
+            }
+        }
+
+        return arrivals;
+    }   //getRecentArrivals
+
+    /**
+     * This method returns the length of the arrivals time window.
+     *
+     * @return time window in minutes.
+     */
+    public int getWindowMinutes()
+    {
+        return bucketMinutes.length;
+    }   //getWindowMinutes
+
+    /**
+     * This method accumulates the person time of the attendants present since the last change.
+     *
+     * @param timestamp specifies the time of the change.
+     */
+    private void integrate(long timestamp)
+    {
+        if (lastChangeTime != 0 && timestamp > lastChangeTime)
+        {
+            accumulatedMillis += numPresent*(timestamp - lastChangeTime);
+        }
+
+        if (timestamp > lastChangeTime)
+        {
+            lastChangeTime = timestamp;
+        }
+    }   //integrate
+
+    //
+    // Implements AttendanceLogListener interface.
+    //
+
+    /**
+     * This method is called with the events of the AttendanceLog. It updates the counters with
+     * the check-ins and check-outs.
+     *
+     * @param log specifies the AttendanceLog.
+     * @param events specifies the events.
+     */
+    @Override
+    public synchronized void onLogEvents(AttendanceLog log, List<AttendanceLogEvent> events)
+    {
+        for (AttendanceLogEvent event: events)
+        {
+            if (event.getType() == AttendanceLogEvent.Type.CHECK_IN)
+            {
+                checkIn(event.getTimestamp(), event.getAttendants().size());
+            }
+            else if (event.getType() == AttendanceLogEvent.Type.CHECK_OUT)
+            {
+                checkOut(event.getTimestamp(), event.getAttendants().size());
+            }
+        }
+    }   //onLogEvents
+
+}   //class OccupancyTracker
@@ -0,0 +1,216 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
+import java.util.*;
+
+/**
+ * This class keeps the attendance minutes of each attendant rolled up into time buckets, either
+ * ISO weeks or calendar months. A bucket is identified by a number: year*100 + week for weeks
+ * (using the ISO week-based year) and year*100 + month for months, so buckets sort in time
+ * order. The rollup is maintained incrementally, one session at a time, so a trend report reads
+ * one value per bucket instead of going through every session.
+ */
+public class Rollup
+{
+    /**
+     * Specifies the bucket size of a rollup.
+     */
+    public enum Period
+    {
+        WEEK,
+        MONTH
+    }   //enum Period
+
+    private Period period;
+    private HashMap<Attendant, TreeMap<Integer, Long>> buckets = new HashMap<Attendant, TreeMap<Integer, Long>>();
+
+    /**
+     * Constructor: Create an instance of the object.
+     *
+     * @param period specifies the bucket size.
+     */
+    public Rollup(Period period)
+    {
+        this.period = period;
+    }   //Rollup
+
+    /**
+     * This method returns the bucket of the specified date.
+     *
+     * @param period specifies the bucket size.
+     * @param epochDay specifies the date as a day number (see Session.getEpochDay).
+     * @return bucket number.
+     */
+    public static int getBucket(Period period, long epochDay)
+    {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+
+        return period == Period.WEEK?
+                date.get(IsoFields.WEEK_BASED_YEAR)*100 + date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR):
+                date.getYear()*100 + date.getMonthValue();
+    }   //getBucket
+
+    /**
+     * This method returns the bucket size of the rollup.
+     *
+     * @return bucket size.
+     */
+    public Period getPeriod()
+    {
+        return period;
+    }   //getPeriod
+
+    /**
+     * This method returns the minutes of each bucket of an attendant.
+     *
+     * @param attendant specifies the attendant.
+     * @return map of bucket numbers to minutes in time order, empty if the attendant has not
+     *         attended any session.
+     */
+    public synchronized SortedMap<Integer, Long> getMinutes(Attendant attendant)
+    {
+        TreeMap<Integer, Long> attendantBuckets = buckets.get(attendant);
+        //
+        // Return a copy since the rollup may be extended by another thread closing a session.
+        //
+        return attendantBuckets != null?
+                new TreeMap<Integer, Long>(attendantBuckets): Collections.<Integer, Long>emptySortedMap();
+    }   //getMinutes
+
+    /**
+     * This method adds the minutes of each attendant in a session to the bucket of the session
+     * date. The bucket is computed once for the whole session.
+     *
+     * @param epochDay specifies the session date as a day number.
+     * @param attendants specifies the attendants.
+     * @param sessionIndex specifies the index of the session in the past sessions of the attendants.
+     */
+    synchronized void addSession(long epochDay, List<Attendant> attendants, int sessionIndex)
+    {
+        if (epochDay != Session.INVALID_DATE)
+        {
+            int bucket = getBucket(period, epochDay);
+
+            for (int i = 0; i < attendants.size(); i++)
+            {
+                Attendant attendant = attendants.get(i);
+                long minutes = attendant.getSessionMinutes(sessionIndex);
+
+                if (minutes > 0)
+                {
+                    TreeMap<Integer, Long> attendantBuckets = buckets.get(attendant);
+                    if (attendantBuckets == null)
+                    {
+                        attendantBuckets = new TreeMap<Integer, Long>();
+                        buckets.put(attendant, attendantBuckets);
+                    }
+
+                    Long total = attendantBuckets.get(bucket);
+                    attendantBuckets.put(bucket, total != null? total + minutes: minutes);
+                }
+            }
+        }
+    }   //addSession
+
+    /**
+     * This method adds the minutes of each attendant in all the past sessions, e.g. when a log is
+     * loaded. The bucket of each session is computed once, and the attendants are gone through
+     * one at a time so that the minutes of consecutive sessions in the same bucket are summed up
+     * before they are added to it.
+     *
+     * @param epochDays specifies the date of each past session as a day number.
+     * @param attendants specifies the attendants.
+     */
+    synchronized void addSessions(long[] epochDays, List<Attendant> attendants)
+    {
+        int[] sessionBuckets = new int[epochDays.length];
+
+        for (int i = 0; i < epochDays.length; i++)
+        {
+            sessionBuckets[i] = epochDays[i] != Session.INVALID_DATE? getBucket(period, epochDays[i]): -1;
+        }
+
+        for (int i = 0; i < attendants.size(); i++)
+        {
+            Attendant attendant = attendants.get(i);
+            TreeMap<Integer, Long> attendantBuckets = buckets.get(attendant);
+            int bucket = -1;
+            long sum = 0;
+
+            for (int j = 0; j <= sessionBuckets.length; j++)
+            {
+                long minutes = j < sessionBuckets.length? attendant.getSessionMinutes(j): 0;
+
+                if (j == sessionBuckets.length || (minutes > 0 && sessionBuckets[j] != bucket))
+                {
+                    //
+                    // Add the minutes summed up in the previous bucket.
+                    //
+                    if (sum > 0)
+                    {
+                        if (attendantBuckets == null)
+                        {
+                            attendantBuckets = new TreeMap<Integer, Long>();
+                            buckets.put(attendant, attendantBuckets);
+                        }
+
+                        Long total = attendantBuckets.get(bucket);
+                        attendantBuckets.put(bucket, total != null? total + sum: sum);
+                    }
+
+                    if (j < sessionBuckets.length)
+                    {
+                        bucket = sessionBuckets[j];
+                        sum = 0;
+                    }
+                }
+
+                if (minutes > 0 && bucket != -1)
+                {
+                    sum += minutes;
+                }
+            }
+        }
+    }   //addSessions
+
+    /**
+     * This method removes all buckets of an attendant.
+     *
+     * @param attendant specifies the attendant.
+     */
+    synchronized void remove(Attendant attendant)
+    {
+        buckets.remove(attendant);
+    }   //remove
+
+    /**
+     * This method removes all buckets of all attendants.
+     */
+    synchronized void clear()
+    {
+        buckets.clear();
+    }   //clear
+
+}   //class Rollup
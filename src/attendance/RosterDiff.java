@@ -0,0 +1,165 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.*;
+
+/**
+ * This class computes the difference between the attendants list of an AttendanceLog and an
+ * edited roster. Each entry of the edited roster is an attendant name with an optional badge
+ * ID. The difference consists of the new attendants to be added, the attendants to be removed and the
+ * attendants to be kept, as well as the kept attendants whose badge IDs have changed. Both
+ * sides are hashed by name so the difference is computed in linear time no matter how many
+ * names are pasted into the roster.
+ */
+public class RosterDiff
+{
+    private ArrayList<Attendant> addedAttendants = new ArrayList<Attendant>();
+    private ArrayList<Attendant> removedAttendants = new ArrayList<Attendant>();
+    private ArrayList<Attendant> keptAttendants = new ArrayList<Attendant>();
+    private HashMap<Attendant, String> changedIds = new HashMap<Attendant, String>();
+
+    /**
+     * Constructor: Create an instance of the object.
+     *
+     * @param log specifies the AttendanceLog to compare against.
+     * @param names specifies the attendant names of the edited roster.
+     * @param ids specifies the badge IDs of the edited roster, one for each name (may contain
+     *            nulls). Null if the edited roster has no badge IDs, in which case the existing
+     *            badge IDs are kept.
+     */
+    public RosterDiff(AttendanceLog log, List<String> names, List<String> ids)
+    {
+        int numAttendants = log.getNumAttendants();
+        LinkedHashMap<String, String> roster = new LinkedHashMap<String, String>(names.size()*2);
+
+        //
+        // Normalize the names and eliminate duplicates and blank names.
+        //
+        for (int i = 0; i < names.size(); i++)
+        {
+            String name = normalize(names.get(i));
+            if (name.length() > 0 && !roster.containsKey(name))
+            {
+                String id = ids != null? ids.get(i): null;
+                roster.put(name, id != null? id.trim(): "");
+            }
+        }
+
+        for (int i = 0; i < numAttendants; i++)
+        {
+            Attendant attendant = log.getAttendant(i);
+            String id = roster.remove(attendant.toString());
+
+            if (id == null)
+            {
+                removedAttendants.add(attendant);
+            }
+            else
+            {
+                keptAttendants.add(attendant);
+                String oldId = attendant.getId() != null? attendant.getId(): "";
+                if (ids != null && !id.equals(oldId))
+                {
+                    changedIds.put(attendant, id);
+                }
+            }
+        }
+        //
+        // Whatever is left in the roster is new.
+        //
+        for (Map.Entry<String, String> entry: roster.entrySet())
+        {
+            Attendant attendant = new Attendant(entry.getKey());
+            attendant.setId(entry.getValue());
+            addedAttendants.add(attendant);
+        }
+    }   //RosterDiff
+
+    /**
+     * This method normalizes an attendant name by trimming white spaces and surrounding quotes.
+     *
+     * @param name specifies the attendant name.
+     * @return normalized name.
+     */
+    private static String normalize(String name)
+    {
+        name = name.trim();
+        if (name.length() > 1 && name.charAt(0) == '"' && name.charAt(name.length() - 1) == '"')
+        {
+            name = name.substring(1, name.length() - 1).trim();
+        }
+
+        return name;
+    }   //normalize
+
+    /**
+     * This method determines if the edited roster is the same as the attendants list.
+     *
+     * @return true if there is no difference, false otherwise.
+     */
+    public boolean isEmpty()
+    {
+        return addedAttendants.isEmpty() && removedAttendants.isEmpty() && changedIds.isEmpty();
+    }   //isEmpty
+
+    /**
+     * This method returns the new attendants to be added.
+     *
+     * @return list of new attendants in roster order.
+     */
+    public List<Attendant> getAddedAttendants()
+    {
+        return Collections.unmodifiableList(addedAttendants);
+    }   //getAddedAttendants
+
+    /**
+     * This method returns the attendants to be removed.
+     *
+     * @return list of removed attendants.
+     */
+    public List<Attendant> getRemovedAttendants()
+    {
+        return Collections.unmodifiableList(removedAttendants);
+    }   //getRemovedAttendants
+
+    /**
+     * This method returns the attendants to be kept.
+     *
+     * @return list of kept attendants.
+     */
+    public List<Attendant> getKeptAttendants()
+    {
+        return Collections.unmodifiableList(keptAttendants);
+    }   //getKeptAttendants
+
+    /**
+     * This method returns the kept attendants whose badge IDs have changed.
+     *
+     * @return map of attendants to their new badge IDs (empty string to clear the badge ID).
+     */
+    public Map<Attendant, String> getChangedIds()
+    {
+        return Collections.unmodifiableMap(changedIds);
+    }   //getChangedIds
+
+}   //class RosterDiff
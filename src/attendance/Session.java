@@ -21,14 +21,34 @@ package attendance;
  * SOFTWARE.
  */
 
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
 /**
  * This class implements a meeting session. A meeting session contains 5 pieces of information:
  * meeting date, meeting start time, meeting end time, meeting place and the type of meeting.
+ * The type of meeting is one or more of the meetingTypes joined by slashes (e.g.
+ * "Mechanical/Programming"). It is encoded as a bit mask when the session is created, bit i
+ * being set if the meeting is of meetingTypes[i], so the meeting type string doesn't have to be
+ * parsed again. Unknown types are counted as "Other".
+ * The meeting date and start/end times are also parsed when the session is created so that
+ * sessions can be sorted and searched by date and time (see SessionIndex).
  */
 public class Session
 {
     public static final String[] header = {"Date", "Start Time", "End Time", "Place", "Meeting"};
+    public static final long INVALID_DATE = Long.MIN_VALUE;
+    public static final int INVALID_TIME = -1;
+    public static final int MINUTES_PER_DAY = 24*60;
+    public static final String[] meetingTypes = {"Mechanical", "Programming", "Drive", "Other"};
+    public static final int OTHER_MEETING_TYPE = meetingTypes.length - 1;
+    private static final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("M/d/yyyy");
     private String[] sessionInfo = new String[header.length];
+    private long epochDay;
+    private int startMinute;
+    private int endMinute;
+    private int meetingTypeMask;
 
     /**
      * Constructor: Create an instance of the object.
@@ -44,8 +64,195 @@ public class Session
         {
             sessionInfo[i] = info[i];
         }
+        epochDay = parseDate(sessionInfo[0]);
+        startMinute = parseTime(sessionInfo[1]);
+        endMinute = parseTime(sessionInfo[2]);
+        meetingTypeMask = parseMeetingTypes(sessionInfo[4]);
     }   //Session
 
+    /**
+     * This method returns the meeting start time as the minute of the day.
+     *
+     * @return start minute of the day, INVALID_TIME if the start time is invalid.
+     */
+    public int getStartMinute()
+    {
+        return startMinute;
+    }   //getStartMinute
+
+    /**
+     * This method returns the meeting end time as the minute of the day.
+     *
+     * @return end minute of the day, INVALID_TIME if the end time is invalid.
+     */
+    public int getEndMinute()
+    {
+        return endMinute;
+    }   //getEndMinute
+
+    /**
+     * This method returns the key for sorting sessions by date and start time.
+     *
+     * @return minutes since 01/01/1970 00:00 of the meeting start, Long.MIN_VALUE if the date
+     *         is invalid.
+     */
+    public long getSortKey()
+    {
+        return epochDay == INVALID_DATE?
+                Long.MIN_VALUE: epochDay*MINUTES_PER_DAY + Math.max(startMinute, 0);
+    }   //getSortKey
+
+    /**
+     * This method returns the meeting date string.
+     *
+     * @return meeting date in the format of MM/dd/yyyy.
+     */
+    public String getDate()
+    {
+        return sessionInfo[0];
+    }   //getDate
+
+    /**
+     * This method returns the meeting place.
+     *
+     * @return meeting place.
+     */
+    public String getPlace()
+    {
+        return sessionInfo[3];
+    }   //getPlace
+
+    /**
+     * This method encodes a slash separated meeting type string as a bit mask.
+     *
+     * @param meeting specifies the meeting type string.
+     * @return meeting type bit mask, the Other bit if no type is specified.
+     */
+    public static int parseMeetingTypes(String meeting)
+    {
+        String[] types = meeting.split("/");
+        int mask = 0;
+
+        for (int i = 0; i < types.length; i++)
+        {
+            int type = OTHER_MEETING_TYPE;
+            for (int j = 0; j < meetingTypes.length; j++)
+            {
+                if (types[i].trim().equals(meetingTypes[j]))
+                {
+                    type = j;
+                    break;
+                }
+            }
+            mask |= 1 << type;
+        }
+
+        return mask;
+    }   //parseMeetingTypes
+
+    /**
+     * This method builds the slash separated meeting type string from a bit mask.
+     *
+     * @param mask specifies the meeting type bit mask.
+     * @return meeting type string, "Other" if no bit is set.
+     */
+    public static String formatMeetingTypes(int mask)
+    {
+        String meeting = "";
+
+        for (int i = 0; i < meetingTypes.length; i++)
+        {
+            if ((mask & (1 << i)) != 0)
+            {
+                if (meeting.length() > 0) meeting += "/";
+                meeting += meetingTypes[i];
+            }
+        }
+
+        return meeting.length() > 0? meeting: meetingTypes[OTHER_MEETING_TYPE];
+    }   //formatMeetingTypes
+
+    /**
+     * This method returns the meeting types of the session as a bit mask.
+     *
+     * @return meeting type bit mask.
+     */
+    public int getMeetingTypeMask()
+    {
+        return meetingTypeMask;
+    }   //getMeetingTypeMask
+
+    /**
+     * This method parses a meeting date in the format of MM/dd/yyyy. Months and days without the
+     * leading zero (e.g. 1/5/2016, as Excel saves them) are accepted too.
+     *
+     * @param date specifies the meeting date.
+     * @return day number of the date since 01/01/1970, INVALID_DATE if the date is invalid.
+     */
+    public static long parseDate(String date)
+    {
+        try
+        {
+            return LocalDate.parse(date.trim(), dateFormatter).toEpochDay();
+        }
+        catch (DateTimeParseException e)
+        {
+            return INVALID_DATE;
+        }
+    }   //parseDate
+
+    /**
+     * This method parses a meeting time in the format of HH:mm.
+     *
+     * @param time specifies the meeting time.
+     * @return minute of the day, INVALID_TIME if the time is invalid.
+     */
+    public static int parseTime(String time)
+    {
+        String[] fields = time.trim().split(":");
+
+        try
+        {
+            if (fields.length == 2)
+            {
+                int hour = Integer.parseInt(fields[0]);
+                int minute = Integer.parseInt(fields[1]);
+                if (hour >= 0 && hour < 24 && minute >= 0 && minute < 60)
+                {
+                    return hour*60 + minute;
+                }
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            //
+            // Fall through to return INVALID_TIME.
+            //
+        }
+
+        return INVALID_TIME;
+    }   //parseTime
+
+    /**
+     * This method returns the meeting date as a day number for sorting and comparison.
+     *
+     * @return day number of the meeting date since 01/01/1970, INVALID_DATE if the date is invalid.
+     */
+    public long getEpochDay()
+    {
+        return epochDay;
+    }   //getEpochDay
+
+    /**
+     * This method returns the meeting info fields.
+     *
+     * @return copy of the meeting info fields.
+     */
+    public String[] getInfo()
+    {
+        return sessionInfo.clone();
+    }   //getInfo
+
     /**
      * This method is called to get a string representation of the meeting info. It concatenates
      * all the info separated by commas. This is primarily used for formatting the meeting info
@@ -0,0 +1,273 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.*;
+
+/**
+ * This class implements a sorted index over the past sessions of an AttendanceLog. Sessions are
+ * kept in the log file in the order they were created, which is not necessarily date order. The
+ * index keeps the session indices sorted by date and start time, per meeting place, and by start
+ * time of day, so that range queries take a binary search instead of parsing and scanning every
+ * session. Sessions with an invalid date sort before all others in the date index but are left
+ * out of every date query (getSessionsInDateOrder, getNumSessionsUntil and the date ranges of
+ * getSessions), so that a cutoff count and a range query never disagree about them.
+ */
+public class SessionIndex
+{
+    /**
+     * This class contains session indices sorted by a key, with the keys in a parallel array for
+     * binary searching.
+     */
+    private static class SortedSessions
+    {
+        int[] sessions;
+        long[] keys;
+
+        /**
+         * Constructor: Create an instance of the object.
+         *
+         * @param sessionIndices specifies the session indices to be sorted.
+         * @param sessionKeys specifies the key of each session in the log, indexed by session index.
+         */
+        SortedSessions(List<Integer> sessionIndices, final long[] sessionKeys)
+        {
+            Integer[] order = sessionIndices.toArray(new Integer[sessionIndices.size()]);
+            //
+            // The sort is stable so sessions with the same key stay in log file order.
+            //
+            Arrays.sort(order, new Comparator<Integer>()
+            {
+                @Override
+                public int compare(Integer index1, Integer index2)
+                {
+                    return Long.compare(sessionKeys[index1], sessionKeys[index2]);
+                }
+            });
+
+            sessions = new int[order.length];
+            keys = new long[order.length];
+            for (int i = 0; i < order.length; i++)
+            {
+                sessions[i] = order[i];
+                keys[i] = sessionKeys[order[i]];
+            }
+        }   //SortedSessions
+
+        /**
+         * This method returns the position of the first key that is not less than the
+         * specified key.
+         *
+         * @param key specifies the key to search for.
+         * @return position of the first key >= key, number of keys if there is none.
+         */
+        int lowerBound(long key)
+        {
+            int low = 0, high = keys.length;
+
+            while (low < high)
+            {
+                int mid = (low + high) >>> 1;
+                if (keys[mid] < key)
+                {
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid;
+                }
+            }
+
+            return low;
+        }   //lowerBound
+
+        /**
+         * This method returns the session indices with keys in the specified range in key order.
+         *
+         * @param fromKey specifies the lowest key, inclusive.
+         * @param toKey specifies the highest key, inclusive.
+         * @return session indices in the range.
+         */
+        int[] getRange(long fromKey, long toKey)
+        {
+            int from = lowerBound(fromKey);
+            int to = toKey == Long.MAX_VALUE? keys.length: lowerBound(toKey + 1);
+
+            return from < to? Arrays.copyOfRange(sessions, from, to): new int[0];
+        }   //getRange
+
+    }   //class SortedSessions
+
+    private static final long MAX_DAY = Long.MAX_VALUE/Session.MINUTES_PER_DAY - 1;
+    //
+    // Undated sessions have the sort key Long.MIN_VALUE, so every date query starts above it.
+    //
+    private static final long MIN_DATED_KEY = Long.MIN_VALUE + 1;
+
+    private SortedSessions byDate;
+    private SortedSessions byStartTime;
+    private int numUndatedSessions;
+    private HashMap<String, SortedSessions> byPlace = new HashMap<String, SortedSessions>();
+
+    /**
+     * Constructor: Create an instance of the object.
+     *
+     * @param log specifies the attendance log whose past sessions are to be indexed.
+     */
+    public SessionIndex(AttendanceLog log)
+    {
+        int numSessions = log.getNumSessions();
+        long[] dateKeys = new long[numSessions];
+        long[] timeKeys = new long[numSessions];
+        ArrayList<Integer> allSessions = new ArrayList<Integer>(numSessions);
+        HashMap<String, ArrayList<Integer>> placeSessions = new HashMap<String, ArrayList<Integer>>();
+
+        for (int i = 0; i < numSessions; i++)
+        {
+            Session session = log.getSession(i);
+            dateKeys[i] = session.getSortKey();
+            timeKeys[i] = session.getStartMinute();
+            allSessions.add(i);
+
+            String place = getPlaceKey(session.getPlace());
+            ArrayList<Integer> sessions = placeSessions.get(place);
+            if (sessions == null)
+            {
+                sessions = new ArrayList<Integer>();
+                placeSessions.put(place, sessions);
+            }
+            sessions.add(i);
+        }
+
+        byDate = new SortedSessions(allSessions, dateKeys);
+        byStartTime = new SortedSessions(allSessions, timeKeys);
+        numUndatedSessions = byDate.lowerBound(MIN_DATED_KEY);
+        for (Map.Entry<String, ArrayList<Integer>> entry: placeSessions.entrySet())
+        {
+            byPlace.put(entry.getKey(), new SortedSessions(entry.getValue(), dateKeys));
+        }
+    }   //SessionIndex
+
+    /**
+     * This method normalizes a meeting place for looking up the place index.
+     *
+     * @param place specifies the meeting place.
+     * @return place key.
+     */
+    private static String getPlaceKey(String place)
+    {
+        return place.trim().toLowerCase();
+    }   //getPlaceKey
+
+    /**
+     * This method returns the session indices of all sessions with a valid date in date and start
+     * time order. Sessions with an invalid date are left out.
+     *
+     * @return session indices in date order.
+     */
+    public int[] getSessionsInDateOrder()
+    {
+        return Arrays.copyOfRange(byDate.sessions, numUndatedSessions, byDate.sessions.length);
+    }   //getSessionsInDateOrder
+
+    /**
+     * This method returns the number of sessions with a valid date on or before the specified
+     * date. In date order, they are the first sessions returned by getSessionsInDateOrder.
+     *
+     * @param cutoffDay specifies the date as a day number (see Session.getEpochDay).
+     * @return number of sessions on or before the date.
+     */
+    public int getNumSessionsUntil(long cutoffDay)
+    {
+        long endKey = getDayEndKey(cutoffDay);
+        int end = endKey == Long.MAX_VALUE? byDate.keys.length: byDate.lowerBound(endKey + 1);
+        return Math.max(end - numUndatedSessions, 0);
+    }   //getNumSessionsUntil
+
+    /**
+     * This method returns the sessions within a date range in date and start time order. Sessions
+     * with an invalid date are not in any date range.
+     *
+     * @param fromDay specifies the first date as a day number, inclusive.
+     * @param toDay specifies the last date as a day number, inclusive.
+     * @return session indices in the date range.
+     */
+    public int[] getSessions(long fromDay, long toDay)
+    {
+        return byDate.getRange(getDayStartKey(fromDay), getDayEndKey(toDay));
+    }   //getSessions
+
+    /**
+     * This method returns the sessions at a meeting place within a date range in date and start
+     * time order. The place is matched ignoring case and surrounding spaces.
+     *
+     * @param place specifies the meeting place.
+     * @param fromDay specifies the first date as a day number, inclusive.
+     * @param toDay specifies the last date as a day number, inclusive.
+     * @return session indices at the place in the date range.
+     */
+    public int[] getSessions(String place, long fromDay, long toDay)
+    {
+        SortedSessions sessions = byPlace.get(getPlaceKey(place));
+        return sessions != null?
+                sessions.getRange(getDayStartKey(fromDay), getDayEndKey(toDay)): new int[0];
+    }   //getSessions
+
+    /**
+     * This method returns the sessions starting within a time of day range, on any date, in
+     * start time order.
+     *
+     * @param fromMinute specifies the earliest start time as minute of the day, inclusive.
+     * @param toMinute specifies the latest start time as minute of the day, inclusive.
+     * @return session indices in the start time range.
+     */
+    public int[] getSessionsByStartTime(int fromMinute, int toMinute)
+    {
+        return byStartTime.getRange(fromMinute, toMinute);
+    }   //getSessionsByStartTime
+
+    /**
+     * This method returns the lowest sort key of the specified day. Day numbers out of range
+     * (e.g. Long.MIN_VALUE for an open ended query) are clamped instead of overflowing, never
+     * below the lowest key of a dated session.
+     *
+     * @param day specifies the day number.
+     * @return lowest sort key of the day.
+     */
+    private static long getDayStartKey(long day)
+    {
+        return day < -MAX_DAY? MIN_DATED_KEY: day > MAX_DAY? Long.MAX_VALUE: day*Session.MINUTES_PER_DAY;
+    }   //getDayStartKey
+
+    /**
+     * This method returns the highest sort key of the specified day. Day numbers out of range
+     * (e.g. Long.MAX_VALUE for an open ended query) are clamped instead of overflowing.
+     *
+     * @param day specifies the day number.
+     * @return highest sort key of the day.
+     */
+    private static long getDayEndKey(long day)
+    {
+        return day < -MAX_DAY? Long.MIN_VALUE: day >= MAX_DAY? Long.MAX_VALUE: getDayStartKey(day + 1) - 1;
+    }   //getDayEndKey
+
+}   //class SessionIndex
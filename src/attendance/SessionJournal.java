@@ -0,0 +1,610 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * This class implements the session journal. The session journal records every check-in and
+ * check-out transaction of the current meeting session so that the session can be recovered
+ * if the program is terminated unexpectedly. The first line of the journal is the meeting
+ * info of the session, followed by one line per transaction. A transaction of a single attendant
+ * has the format:
+ *  CheckIn|CheckOut,"<Name>",<Timestamp>
+ * A transaction of a group of attendants checking in or out together is a single line so that
+ * the group is either recovered as a whole or not at all:
+ *  CheckInGroup|CheckOutGroup,<Timestamp>,"<Name1>","<Name2>",...
+ * If an attendant already in the journal is renamed during the session, e.g. by editing the log
+ * file, the rename is recorded before the next transaction of the attendant:
+ *  Rename,"<OldName>","<NewName>"
+ * The reader applies the renames to the transactions before them, so the journal can be replayed
+ * against the log file as edited. Transactions are queued and
+ * written by a background writer thread in batches so that a burst of transactions (e.g. badge
+ * scans) costs one write and one flush instead of opening and closing the file for each of them.
+ */
+public class SessionJournal implements Runnable
+{
+    /**
+     * This class implements a reader of a session journal. It reads the journal one transaction
+     * at a time so that a journal of any size can be processed in constant memory.
+     */
+    public static class Reader implements Closeable
+    {
+        /**
+         * This class contains a rename recorded in the journal.
+         */
+        private static class Rename
+        {
+            int lineNumber;
+            String oldName;
+            String newName;
+        }   //class Rename
+
+        private BufferedReader input;
+        private String[] sessionInfo;
+        private ArrayList<Rename> renames = new ArrayList<Rename>();
+        private int lineNumber = 1;
+
+        /**
+         * Constructor: Create an instance of the object. It collects the renames of the journal,
+         * then opens the journal and reads the meeting info.
+         *
+         * @param file specifies the journal file.
+         * @throws IOException if the journal file cannot be read.
+         * @throws IllegalArgumentException if the journal does not start with valid meeting info.
+         */
+        public Reader(File file) throws IOException, IllegalArgumentException
+        {
+            readRenames(file);
+            input = new BufferedReader(new FileReader(file));
+            String line = readLine(input);
+            sessionInfo = line != null? line.trim().split(FIELD_SEPARATOR, -1): null;
+
+            if (sessionInfo == null || sessionInfo.length != Session.header.length)
+            {
+                input.close();
+                throw new IllegalArgumentException("Invalid meeting info.");
+            }
+        }   //Reader
+
+        /**
+         * This method collects the renames of the journal so that they can be applied to the
+         * transactions recorded before them.
+         *
+         * @param file specifies the journal file.
+         * @throws IOException if the journal file cannot be read.
+         */
+        private void readRenames(File file) throws IOException
+        {
+            try (BufferedReader reader = new BufferedReader(new FileReader(file)))
+            {
+                String line;
+                int lineNumber = 0;
+
+                while ((line = readLine(reader)) != null)
+                {
+                    lineNumber++;
+                    if (line.startsWith("Rename,"))
+                    {
+                        String[] fields = line.trim().split(FIELD_SEPARATOR, -1);
+                        try
+                        {
+                            if (fields.length == 3)
+                            {
+                                Rename rename = new Rename();
+                                rename.lineNumber = lineNumber;
+                                rename.oldName = unquote(fields[1]);
+                                rename.newName = unquote(fields[2]);
+                                renames.add(rename);
+                            }
+                        }
+                        catch (IllegalArgumentException e)
+                        {
+                            //
+                            // Skip the malformed rename.
+                            //
+                        }
+                    }
+                }
+            }
+        }   //readRenames
+
+        /**
+         * This method returns the latest name of an attendant of a transaction by applying the
+         * renames recorded after the transaction in order.
+         *
+         * @param name specifies the name in the transaction.
+         * @return latest name.
+         */
+        private String getLatestName(String name)
+        {
+            for (Rename rename: renames)
+            {
+                if (rename.lineNumber > lineNumber && rename.oldName.equals(name))
+                {
+                    name = rename.newName;
+                }
+            }
+
+            return name;
+        }   //getLatestName
+
+        /**
+         * This method returns the meeting info of the session.
+         *
+         * @return meeting info fields.
+         */
+        public String[] getSessionInfo()
+        {
+            return sessionInfo;
+        }   //getSessionInfo
+
+        /**
+         * This method reads the next transaction from the journal. A group transaction returns
+         * one event for each attendant in the group, all with the same type and timestamp. The
+         * names are the latest names of the attendants (see getLatestName). A malformed
+         * transaction or a rename returns no event. A last transaction that was not completely
+         * written is discarded (see readLine).
+         *
+         * @return list of events of the transaction, null if the end of the journal is reached.
+         * @throws IOException if the journal cannot be read.
+         */
+        public List<AttendanceEvent> readTransaction() throws IOException
+        {
+            String line = readLine(input);
+            List<AttendanceEvent> events = null;
+
+            if (line != null)
+            {
+                lineNumber++;
+                String[] fields = line.trim().split(FIELD_SEPARATOR, -1);
+                events = new ArrayList<AttendanceEvent>();
+                try
+                {
+                    if (fields.length == 3 && (fields[0].equals("CheckIn") || fields[0].equals("CheckOut")))
+                    {
+                        events.add(new AttendanceEvent(
+                                fields[0].equals("CheckIn")? AttendanceEvent.Type.CHECK_IN: AttendanceEvent.Type.CHECK_OUT,
+                                getLatestName(unquote(fields[1])), Long.parseLong(fields[2])));
+                    }
+                    else if (fields.length > 2 &&
+                             (fields[0].equals("CheckInGroup") || fields[0].equals("CheckOutGroup")))
+                    {
+                        AttendanceEvent.Type type = fields[0].equals("CheckInGroup")?
+                                AttendanceEvent.Type.CHECK_IN: AttendanceEvent.Type.CHECK_OUT;
+                        long timestamp = Long.parseLong(fields[1]);
+                        for (int i = 2; i < fields.length; i++)
+                        {
+                            events.add(new AttendanceEvent(type, getLatestName(unquote(fields[i])), timestamp));
+                        }
+                    }
+                }
+                catch (IllegalArgumentException e)
+                {
+                    events.clear();
+                }
+            }
+
+            return events;
+        }   //readTransaction
+
+        /**
+         * This method reads the next line of the journal. Every line is written with its line
+         * terminator, so a last line without one was cut off while it was written, e.g. in the
+         * middle of a name or a timestamp, and is discarded as a whole.
+         *
+         * @param reader specifies the journal.
+         * @return line without the line terminator, null if the end of the journal is reached.
+         * @throws IOException if the journal cannot be read.
+         */
+        private static String readLine(BufferedReader reader) throws IOException
+        {
+            StringBuilder line = new StringBuilder();
+            int c;
+
+            while ((c = reader.read()) != -1 && c != '\n')
+            {
+                line.append((char)c);
+            }
+
+            if (c == -1)
+            {
+                return null;
+            }
+
+            int length = line.length();
+            if (length > 0 && line.charAt(length - 1) == '\r')
+            {
+                line.setLength(length - 1);
+            }
+
+            return line.toString();
+        }   //readLine
+
+        /**
+         * This method removes the quotes around an attendant name.
+         *
+         * @param field specifies the quoted name.
+         * @return name without quotes.
+         * @throws IllegalArgumentException if the name is not quoted.
+         */
+        private static String unquote(String field)
+        {
+            if (field.length() < 2 || field.charAt(0) != '"' || field.charAt(field.length() - 1) != '"')
+            {
+                throw new IllegalArgumentException("Malformed name " + field);
+            }
+
+            return field.substring(1, field.length() - 1);
+        }   //unquote
+
+        /**
+         * This method closes the journal.
+         *
+         * @throws IOException if the journal cannot be closed.
+         */
+        @Override
+        public void close() throws IOException
+        {
+            input.close();
+        }   //close
+
+    }   //class Reader
+
+    public static final String DEFAULT_FILE_NAME = "SessionLog.txt";
+    private static final String FIELD_SEPARATOR = ",(?=([^\"]*\"[^\"]*\")*[^\"]*$)";
+    private static final String END_OF_JOURNAL = new String("EndOfJournal");
+
+    private File journalFile;
+    private PrintStream journal;
+    private LinkedBlockingQueue<String> queue = new LinkedBlockingQueue<String>();
+    private IdentityHashMap<Attendant, String> journalNames = new IdentityHashMap<Attendant, String>();
+    private Thread writerThread;
+
+    /**
+     * Constructor: Create an instance of the object. If the journal file does not exist, it is
+     * created with the meeting info of the specified session as the first line. Otherwise,
+     * new transactions are appended to it, after a torn last line left by a crash (see Reader)
+     * has been cut off so that the first new transaction does not run into it.
+     *
+     * @param file specifies the journal file.
+     * @param session specifies the current meeting session.
+     * @throws FileNotFoundException if the journal file cannot be opened.
+     * @throws IOException if the torn last line of the journal file cannot be cut off.
+     */
+    public SessionJournal(File file, Session session) throws IOException
+    {
+        boolean exist = file.exists() && truncateTornLine(file) > 0;
+
+        journalFile = file;
+        journal = new PrintStream(new BufferedOutputStream(new FileOutputStream(file, exist)));
+        if (!exist)
+        {
+            journal.println(session);
+            journal.flush();
+        }
+
+        writerThread = new Thread(this, "SessionJournal");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }   //SessionJournal
+
+    /**
+     * This method cuts off the last line of a journal file if it is not terminated, i.e. it was
+     * torn by a crash while it was being written. The Reader ignores such a line anyway.
+     *
+     * @param file specifies the journal file.
+     * @return length of the journal file after the torn line has been cut off, 0 if not even the
+     *         meeting info line is complete.
+     * @throws IOException if the journal file cannot be read or truncated.
+     */
+    private static long truncateTornLine(File file) throws IOException
+    {
+        try (RandomAccessFile journal = new RandomAccessFile(file, "rw"))
+        {
+            byte[] buffer = new byte[4096];
+            long length = journal.length();
+            long end = length;
+
+            while (end > 0)
+            {
+                int size = (int)Math.min(buffer.length, end);
+                journal.seek(end - size);
+                journal.readFully(buffer, 0, size);
+
+                int i = size - 1;
+                while (i >= 0 && buffer[i] != '\n')
+                {
+                    i--;
+                }
+
+                if (i >= 0)
+                {
+                    end = end - size + i + 1;
+                    break;
+                }
+                end -= size;
+            }
+
+            if (end < length)
+            {
+                journal.setLength(end);
+            }
+
+            return end;
+        }
+    }   //truncateTornLine
+
+    /**
+     * This method returns the default journal file of a log file. It is next to the log file and
+     * named after it, e.g. the journal of TrcAttendance.csv is TrcAttendance.SessionLog.txt, so
+     * that the meetings of several logs can run at the same time.
+     *
+     * @param logFile specifies the log file.
+     * @return journal file.
+     */
+    public static File getDefaultFile(File logFile)
+    {
+        String name = logFile.getName();
+        int dotIndex = name.lastIndexOf('.');
+
+        return new File(logFile.getAbsoluteFile().getParentFile(),
+                (dotIndex > 0? name.substring(0, dotIndex): name) + "." + DEFAULT_FILE_NAME);
+    }   //getDefaultFile
+
+    /**
+     * This method returns the journal file of the versions that kept a single journal in the
+     * current folder.
+     *
+     * @return legacy journal file.
+     */
+    public static File getLegacyFile()
+    {
+        return new File(DEFAULT_FILE_NAME);
+    }   //getLegacyFile
+
+    /**
+     * This method adopts the legacy journal (see getLegacyFile) as the journal of a log, so that a
+     * meeting interrupted before the journals were moved next to their log files is recovered.
+     * The legacy journal is moved to the journal file of the log if the log has no journal yet and
+     * the legacy journal records a meeting of the log: the meeting is not a past session of the
+     * log yet and every attendant in it is an attendant of the log.
+     *
+     * @param log specifies the log.
+     * @return true if the legacy journal has been adopted, false otherwise.
+     * @throws IOException if the legacy journal cannot be read or moved.
+     */
+    public static boolean adoptLegacyFile(AttendanceLog log) throws IOException
+    {
+        File legacyFile = getLegacyFile();
+        File file = getDefaultFile(log.getFile());
+        boolean adopted = false;
+
+        if (!file.exists() && legacyFile.exists() &&
+            !legacyFile.getAbsoluteFile().equals(file.getAbsoluteFile()) && isJournalOf(legacyFile, log))
+        {
+            Files.move(legacyFile.toPath(), file.toPath());
+            adopted = true;
+        }
+
+        return adopted;
+    }   //adoptLegacyFile
+
+    /**
+     * This method determines if a journal records a meeting of a log.
+     *
+     * @param file specifies the journal file.
+     * @param log specifies the log.
+     * @return true if the journal has transactions, all of attendants of the log, and its meeting
+     *         is not a past session of the log, false otherwise.
+     * @throws IOException if the journal cannot be read.
+     */
+    private static boolean isJournalOf(File file, AttendanceLog log) throws IOException
+    {
+        boolean hasTransactions = false;
+
+        try (Reader reader = new Reader(file))
+        {
+            for (int i = 0; i < log.getNumSessions(); i++)
+            {
+                if (Arrays.equals(log.getSession(i).getInfo(), reader.getSessionInfo()))
+                {
+                    return false;
+                }
+            }
+
+            List<AttendanceEvent> events;
+            while ((events = reader.readTransaction()) != null)
+            {
+                for (AttendanceEvent event: events)
+                {
+                    if (log.findAttendant(event.getName()) == null)
+                    {
+                        return false;
+                    }
+                    hasTransactions = true;
+                }
+            }
+        }
+        catch (IllegalArgumentException e)
+        {
+            //
+            // The journal does not start with valid meeting info.
+            //
+            return false;
+        }
+
+        return hasTransactions;
+    }   //isJournalOf
+
+    /**
+     * This method returns the name of an attendant to write to the journal. If the attendant has
+     * been renamed since it was last written, the rename is queued first.
+     *
+     * @param attendant specifies the attendant.
+     * @return name of the attendant.
+     */
+    private String getJournalName(Attendant attendant)
+    {
+        String name = attendant.toString();
+        String journalName = journalNames.put(attendant, name);
+
+        if (journalName != null && !journalName.equals(name))
+        {
+            queue.add(String.format("Rename,\"%s\",\"%s\"", journalName, name));
+        }
+
+        return name;
+    }   //getJournalName
+
+    /**
+     * This method records the renames of attendants already in the journal, e.g. on a roster
+     * change event, so that the journal can be replayed against the renamed attendants even if
+     * they have no more transactions.
+     *
+     * @param attendants specifies the attendants that may have been renamed.
+     */
+    public synchronized void logRenames(List<Attendant> attendants)
+    {
+        for (Attendant attendant: attendants)
+        {
+            if (journalNames.containsKey(attendant))
+            {
+                getJournalName(attendant);
+            }
+        }
+    }   //logRenames
+
+    /**
+     * This method queues a transaction entry to be written to the journal.
+     *
+     * @param checkOut specifies true if it is a check-out transaction, false if it is a check-in transaction.
+     * @param attendant specifies the attendant.
+     * @param timestamp specifies the transaction time.
+     */
+    public synchronized void logTransaction(boolean checkOut, Attendant attendant, long timestamp)
+    {
+        queue.add(String.format(
+                "%s,\"%s\",%d", checkOut? "CheckOut": "CheckIn", getJournalName(attendant), timestamp));
+    }   //logTransaction
+
+    /**
+     * This method queues a transaction entry of a group of attendants to be written to the
+     * journal as a single line.
+     *
+     * @param checkOut specifies true if it is a check-out transaction, false if it is a check-in transaction.
+     * @param attendants specifies the attendants.
+     * @param timestamp specifies the transaction time.
+     */
+    public synchronized void logTransactions(boolean checkOut, List<Attendant> attendants, long timestamp)
+    {
+        if (attendants.size() == 1)
+        {
+            logTransaction(checkOut, attendants.get(0), timestamp);
+        }
+        else if (attendants.size() > 1)
+        {
+            StringBuilder entry = new StringBuilder(checkOut? "CheckOutGroup,": "CheckInGroup,");
+            entry.append(timestamp);
+            for (Attendant attendant: attendants)
+            {
+                entry.append(",\"").append(getJournalName(attendant)).append("\"");
+            }
+            queue.add(entry.toString());
+        }
+    }   //logTransactions
+
+    /**
+     * This method writes all pending transactions to the journal and closes it.
+     */
+    public void close()
+    {
+        queue.add(END_OF_JOURNAL);
+        try
+        {
+            writerThread.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+    }   //close
+
+    /**
+     * This method returns the journal file.
+     *
+     * @return journal file.
+     */
+    public File getFile()
+    {
+        return journalFile;
+    }   //getFile
+
+    //
+    // Implements Runnable interface.
+    //
+
+    /**
+     * This method runs the writer thread. It waits for transactions and writes everything
+     * that has been queued in one batch, then flushes the journal.
+     */
+    @Override
+    public void run()
+    {
+        ArrayList<String> batch = new ArrayList<String>();
+        boolean done = false;
+
+        while (!done)
+        {
+            try
+            {
+                batch.add(queue.take());
+            }
+            catch (InterruptedException e)
+            {
+                break;
+            }
+            queue.drainTo(batch);
+
+            for (int i = 0; i < batch.size(); i++)
+            {
+                String entry = batch.get(i);
+                if (entry == END_OF_JOURNAL)
+                {
+                    done = true;
+                    break;
+                }
+                journal.println(entry);
+            }
+            journal.flush();
+            batch.clear();
+        }
+    }   //run
+
+}   //class SessionJournal
@@ -0,0 +1,315 @@
+package attendance;
+/*
+ * Copyright (c) 2016 Titan Robotics Club (http://www.titanrobotics.net)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class makes sure only one instance of the program runs at a time. The running instance
+ * holds a lock on a lock file and listens on a loopback port for the arguments of later
+ * launches. The port and a random token are written to the lock file. A later launch finds the
+ * lock taken, sends its arguments with the token to the port and exits as soon as the running
+ * instance acknowledges them, so it never loads a log or opens a window itself.
+ *
+ * The lock is taken on a byte past the end of the text because file locks are mandatory on
+ * Windows: a lock on the text would keep the later launch from reading the port.
+ */
+public class SingleInstance implements Closeable, Runnable
+{
+    public static final String DEFAULT_FILE_NAME = ".TrcAttendance.lock";
+    private static final long LOCK_POSITION = 1024;
+    private static final int HANDOFF_TIMEOUT = 5000;
+    private static final int RETRY_INTERVAL = 100;
+    private static final String ACK = "OK";
+
+    /**
+     * This interface is implemented by the receiver of the arguments handed over by later
+     * launches.
+     */
+    public interface Listener
+    {
+        /**
+         * This method is called on the instance thread with the arguments of a later launch.
+         *
+         * @param args specifies the arguments.
+         */
+        void onInstanceArgs(List<String> args);
+
+    }   //interface Listener
+
+    private final FileChannel channel;
+    private final FileLock lock;
+    private final ServerSocket serverSocket;
+    private final String token;
+    private volatile Listener listener = null;
+    private Thread thread = null;
+
+    /**
+     * Constructor: Create an instance of the object. It opens the loopback port and writes it to
+     * the locked lock file. Later launches can connect right away but their arguments are not
+     * taken until the instance is started.
+     *
+     * @param channel specifies the lock file.
+     * @param lock specifies the lock held on the lock file.
+     * @throws IOException if the port cannot be opened or the lock file cannot be written.
+     */
+    private SingleInstance(FileChannel channel, FileLock lock) throws IOException
+    {
+        this.channel = channel;
+        this.lock = lock;
+        serverSocket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress());
+        token = new BigInteger(128, new SecureRandom()).toString(36);
+
+        try
+        {
+            channel.truncate(0);
+            channel.write(ByteBuffer.wrap(
+                    (serverSocket.getLocalPort() + " " + token + "\n").getBytes(StandardCharsets.UTF_8)), 0);
+        }
+        catch (IOException e)
+        {
+            serverSocket.close();
+            throw e;
+        }
+    }   //SingleInstance
+
+    /**
+     * This method returns the default lock file. It is in the home folder of the user so that
+     * every shortcut finds the same instance no matter which folder it starts in.
+     *
+     * @return lock file.
+     */
+    public static File getDefaultFile()
+    {
+        return new File(System.getProperty("user.home"), DEFAULT_FILE_NAME);
+    }   //getDefaultFile
+
+    /**
+     * This method makes this program the running instance, or hands the arguments over to the
+     * running instance if there is one. If the running instance is still starting up, or is
+     * exiting, it keeps trying for a few seconds.
+     *
+     * @param lockFile specifies the lock file.
+     * @param args specifies the arguments to hand over.
+     * @return the running instance if this program is now the running instance, null if the
+     *         arguments have been handed over.
+     * @throws IOException if the lock file cannot be used or the running instance does not
+     *         respond.
+     */
+    public static SingleInstance acquire(File lockFile, List<String> args) throws IOException
+    {
+        FileChannel channel = FileChannel.open(
+                lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        SingleInstance instance = null;
+        boolean handedOver = false;
+
+        try
+        {
+            long deadline = System.currentTimeMillis() + HANDOFF_TIMEOUT;
+
+            while (instance == null && !handedOver)
+            {
+                FileLock lock = channel.tryLock(LOCK_POSITION, 1, false);
+                if (lock != null)
+                {
+                    instance = new SingleInstance(channel, lock);
+                }
+                else if (!(handedOver = handOver(channel, args)))
+                {
+                    if (System.currentTimeMillis() >= deadline)
+                    {
+                        throw new IOException("The running instance of the program does not respond.");
+                    }
+                    Thread.sleep(RETRY_INTERVAL);
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the running instance of the program.");
+        }
+        finally
+        {
+            if (instance == null)
+            {
+                channel.close();
+            }
+        }
+
+        return instance;
+    }   //acquire
+
+    /**
+     * This method sends the arguments to the port written in the lock file and waits for the
+     * acknowledgement.
+     *
+     * @param channel specifies the lock file.
+     * @param args specifies the arguments.
+     * @return true if the running instance took the arguments, false if the lock file has no
+     *         port yet or nothing answers on it.
+     */
+    private static boolean handOver(FileChannel channel, List<String> args)
+    {
+        boolean handedOver = false;
+
+        try
+        {
+            ByteBuffer buffer = ByteBuffer.allocate((int)LOCK_POSITION);
+            channel.read(buffer, 0);
+            String[] fields = new String(
+                    buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).trim().split(" ");
+
+            if (fields.length == 2)
+            {
+                try (Socket socket = new Socket())
+                {
+                    socket.connect(
+                            new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(fields[0])),
+                            HANDOFF_TIMEOUT);
+                    socket.setSoTimeout(HANDOFF_TIMEOUT);
+
+                    Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                    out.write(fields[1] + "\n");
+                    for (String arg: args)
+                    {
+                        out.write(arg + "\n");
+                    }
+                    out.write("\n");
+                    out.flush();
+
+                    BufferedReader in = new BufferedReader(
+                            new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                    handedOver = ACK.equals(in.readLine());
+                }
+            }
+        }
+        catch (IOException | NumberFormatException e)
+        {
+            //
+            // The running instance has not written its port yet or has just exited.
+            //
+        }
+
+        return handedOver;
+    }   //handOver
+
+    /**
+     * This method starts taking the arguments of later launches.
+     *
+     * @param listener specifies the receiver of the arguments.
+     */
+    public synchronized void start(Listener listener)
+    {
+        if (thread == null)
+        {
+            this.listener = listener;
+            thread = new Thread(this, "SingleInstance");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }   //start
+
+    /**
+     * This method stops taking the arguments of later launches and releases the lock file.
+     */
+    @Override
+    public void close()
+    {
+        try
+        {
+            serverSocket.close();
+            lock.release();
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }   //close
+
+    /**
+     * This method runs the instance thread. It takes the arguments of one later launch at a
+     * time, passes them to the listener and acknowledges them. Connections without the token
+     * are dropped.
+     */
+    @Override
+    public void run()
+    {
+        while (!serverSocket.isClosed())
+        {
+            try (Socket socket = serverSocket.accept())
+            {
+                socket.setSoTimeout(HANDOFF_TIMEOUT);
+
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                if (token.equals(in.readLine()))
+                {
+                    List<String> args = new ArrayList<String>();
+                    String line;
+
+                    while ((line = in.readLine()) != null && !line.isEmpty())
+                    {
+                        args.add(line);
+                    }
+
+                    if (line != null)
+                    {
+                        listener.onInstanceArgs(args);
+
+                        Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                        out.write(ACK + "\n");
+                        out.flush();
+                    }
+                }
+            }
+            catch (IOException e)
+            {
+                if (!serverSocket.isClosed())
+                {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }   //run
+
+}   //class SingleInstance